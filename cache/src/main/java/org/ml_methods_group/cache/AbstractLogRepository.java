@@ -0,0 +1,335 @@
+package org.ml_methods_group.cache;
+
+import org.ml_methods_group.common.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+abstract class AbstractLogRepository<K, V> implements Repository<K, V> {
+
+    private static final long FLUSH_PERIOD_SECONDS = 5;
+    private static final long MIN_COMPACTION_LOG_SIZE = 64L << 20;
+
+    private static final ScheduledExecutorService SERVICE = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "log-repository-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path logPath;
+    private final Path indexPath;
+    private final ReadWriteLock lockManager = new ReentrantReadWriteLock();
+    private RecordLog log;
+    private MappedIndex index;
+    private ScheduledFuture<?> flushing;
+    private long obsoleteRecords = 0;
+    private boolean compacting = false;
+    private boolean closed = false;
+    private final AtomicReference<IOException> maintenanceFailure = new AtomicReference<>();
+    private final InFlightComputations<K, V> computations = new InFlightComputations<>();
+
+    protected AbstractLogRepository(Path pathToStorage) {
+        this.logPath = pathToStorage.resolveSibling(pathToStorage.getFileName() + ".log");
+        this.indexPath = pathToStorage.resolveSibling(pathToStorage.getFileName() + ".index");
+    }
+
+    protected abstract byte[] encodeKey(K key);
+
+    protected abstract byte[] encodeValue(V value);
+
+    protected abstract long payloadFor(byte[] key, byte[] value, long offset);
+
+    protected abstract boolean matches(long payload, byte[] key, RecordLog log) throws IOException;
+
+    protected abstract V valueOf(long payload, RecordLog log) throws IOException;
+
+    protected abstract void copy(long hash, long payload, RecordLog source, RecordLog target, MappedIndex index)
+            throws IOException;
+
+    protected final void open() throws IOException {
+        final Path directory = logPath.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Files.deleteIfExists(compactionPath(logPath));
+        Files.deleteIfExists(compactionPath(indexPath));
+        log = new RecordLog(logPath);
+        index = MappedIndex.open(indexPath);
+        final long from;
+        if (index != null && index.isCheckpointed() && index.getLogGeneration() == log.getGeneration()
+                && index.getLogEnd() >= RecordLog.FIRST_RECORD_OFFSET && index.getLogEnd() <= log.size()) {
+            // records up to the checkpoint are indexed, only the ones written after it are replayed
+            from = index.getLogEnd();
+        } else {
+            if (index != null) {
+                index.close();
+            }
+            index = MappedIndex.create(indexPath, MappedIndex.MIN_CAPACITY);
+            from = RecordLog.FIRST_RECORD_OFFSET;
+        }
+        log.recover(from, (offset, key, value) -> {
+            if (apply(index, log, offset, key, value)) {
+                obsoleteRecords++;
+            }
+        });
+        index.checkpoint(log.getGeneration(), log.size());
+        flushing = SERVICE.scheduleWithFixedDelay(this::flushInBackground,
+                FLUSH_PERIOD_SECONDS, FLUSH_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Optional<V> loadValue(K key) {
+        final V value = find(key);
+        computations.recordLoad(value != null);
+        return Optional.ofNullable(value);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        return computations.computeIfAbsent(key, this::find, this::storeValue, loader);
+    }
+
+    public RepositoryStatistics getStatistics() {
+        final Lock lock = lockManager.readLock();
+        lock.lock();
+        try {
+            return computations.getStatistics(index.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private V find(K key) {
+        final byte[] keyBytes = encodeKey(key);
+        final long hash = hash(keyBytes);
+        final Lock lock = lockManager.readLock();
+        lock.lock();
+        try {
+            final RecordLog current = log;
+            final int slot = index.find(hash, payload -> matchesQuietly(payload, keyBytes, current));
+            return slot == -1 ? null : valueOf(index.payload(slot), current);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void storeValue(K key, V value) {
+        final IOException failure = maintenanceFailure.getAndSet(null);
+        if (failure != null) {
+            throw new UncheckedIOException("Background maintenance failed: " + logPath, failure);
+        }
+        final byte[] keyBytes = encodeKey(key);
+        final byte[] valueBytes = encodeValue(value);
+        final Lock lock = lockManager.writeLock();
+        lock.lock();
+        try {
+            final long offset = log.append(keyBytes, valueBytes);
+            if (apply(index, log, offset, keyBytes, valueBytes)) {
+                obsoleteRecords++;
+            }
+            computations.recordStore();
+            if (!compacting && log.size() >= MIN_COMPACTION_LOG_SIZE && obsoleteRecords > index.size()) {
+                compacting = true;
+                SERVICE.execute(this::compactInBackground);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the log and checkpoints the index up to its end, so that recovery replays only later records.
+     */
+    public synchronized void flush() throws IOException {
+        final Lock lock = lockManager.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            log.force();
+            index.checkpoint(log.getGeneration(), log.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites live records to a new log. The index is checkpointed first: its file and the log up to
+     * the checkpoint don't change until the next checkpoint, which waits for compaction, so they are
+     * copied without the lock. Only records written meanwhile are copied under the lock.
+     */
+    public synchronized void compact() throws IOException {
+        final Path compactLogPath = compactionPath(logPath);
+        final Path compactIndexPath = compactionPath(indexPath);
+        final RecordLog source;
+        final MappedIndex snapshot;
+        final int expectedSize;
+        final long copiedEnd;
+        final Lock writeLock = lockManager.writeLock();
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            log.force();
+            index.checkpoint(log.getGeneration(), log.size());
+            source = log;
+            snapshot = index;
+            expectedSize = index.size();
+            copiedEnd = log.size();
+        } finally {
+            writeLock.unlock();
+        }
+        Files.deleteIfExists(compactLogPath);
+        final RecordLog newLog = new RecordLog(compactLogPath);
+        MappedIndex newIndex = null;
+        try {
+            newIndex = MappedIndex.create(compactIndexPath, expectedSize);
+            final MappedIndex target = newIndex;
+            snapshot.forEach((hash, payload) -> copy(hash, payload, source, newLog, target));
+            writeLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                log.replay(copiedEnd, (offset, key, value) ->
+                        apply(target, newLog, newLog.append(key, value), key, value));
+                newLog.force();
+                newIndex.checkpoint(newLog.getGeneration(), newLog.size());
+                newLog.close();
+                newIndex.close();
+                newIndex = null;
+                Files.move(compactLogPath, logPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                Files.move(compactIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                log.close();
+                index.close();
+                log = new RecordLog(logPath);
+                index = MappedIndex.open(indexPath);
+                if (index == null) {
+                    throw new IOException("Failed to reopen compacted index: " + indexPath);
+                }
+                obsoleteRecords = 0;
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            newLog.close();
+            if (newIndex != null) {
+                newIndex.close();
+            }
+            Files.deleteIfExists(compactLogPath);
+            Files.deleteIfExists(compactIndexPath);
+        }
+    }
+
+    /**
+     * Waits for a running compaction, which reads files of the log without the lock.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        final Lock lock = lockManager.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushing.cancel(false);
+            log.force();
+            index.checkpoint(log.getGeneration(), log.size());
+            log.close();
+            index.close();
+        } finally {
+            lock.unlock();
+        }
+        final IOException failure = maintenanceFailure.getAndSet(null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    protected static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private boolean apply(MappedIndex target, RecordLog targetLog, long offset, byte[] key, byte[] value)
+            throws IOException {
+        return target.put(hash(key), payloadFor(key, value, offset),
+                payload -> matchesQuietly(payload, key, targetLog));
+    }
+
+    private boolean matchesQuietly(long payload, byte[] key, RecordLog source) {
+        try {
+            return matches(payload, key, source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (IOException e) {
+            reportMaintenanceFailure(e);
+        }
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException e) {
+            reportMaintenanceFailure(e);
+        } finally {
+            final Lock lock = lockManager.writeLock();
+            lock.lock();
+            compacting = false;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Failures of background tasks are rethrown by the next {@link #storeValue} or {@link #close()} call.
+     */
+    private void reportMaintenanceFailure(IOException exception) {
+        maintenanceFailure.accumulateAndGet(exception, (previous, next) -> {
+            if (previous == null) {
+                return next;
+            }
+            previous.addSuppressed(next);
+            return previous;
+        });
+    }
+
+    private static Path compactionPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+}
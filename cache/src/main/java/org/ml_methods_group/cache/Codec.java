@@ -0,0 +1,104 @@
+package org.ml_methods_group.cache;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+interface Codec<T> {
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    @SuppressWarnings("unchecked")
+    static <T> Codec<T> forClass(Class<T> type) {
+        if (type == Integer.class) {
+            return (Codec<T>) new IntegerCodec();
+        } else if (type == Long.class) {
+            return (Codec<T>) new LongCodec();
+        } else if (type == String.class) {
+            return (Codec<T>) new StringCodec();
+        } else if (type == byte[].class) {
+            return (Codec<T>) new BytesCodec();
+        }
+        return new SerializableCodec<>(type);
+    }
+
+    class IntegerCodec implements Codec<Integer> {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+    }
+
+    class LongCodec implements Codec<Long> {
+        @Override
+        public byte[] encode(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getLong();
+        }
+    }
+
+    class StringCodec implements Codec<String> {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    class BytesCodec implements Codec<byte[]> {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+    }
+
+    class SerializableCodec<T> implements Codec<T> {
+        private final Class<T> type;
+
+        SerializableCodec(Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public byte[] encode(T value) {
+            try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                 ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(value);
+                output.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public T decode(byte[] bytes) {
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return type.cast(input.readObject());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.ml_methods_group.cache;
+
+import org.ml_methods_group.common.Repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class ConcurrentHashRepository<K, V> implements Repository<K, V> {
+
+    private final Path pathToStorage;
+    private final ConcurrentHashMap<K, V> cache;
+    private final InFlightComputations<K, V> computations = new InFlightComputations<>();
+
+    public ConcurrentHashRepository(Path pathToStorage, Class<K> keyClass, Class<V> valueClass) throws Exception {
+        this.pathToStorage = pathToStorage;
+        this.cache = new ConcurrentHashMap<>(HashRepository.loadMap(pathToStorage, keyClass, valueClass));
+    }
+
+    @Override
+    public Optional<V> loadValue(K key) {
+        final V value = cache.get(key);
+        computations.recordLoad(value != null);
+        return Optional.ofNullable(value);
+    }
+
+    @Override
+    public void storeValue(K key, V value) {
+        cache.put(key, value);
+        computations.recordStore();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        return computations.computeIfAbsent(key, cache::get, this::storeValue, loader);
+    }
+
+    public RepositoryStatistics getStatistics() {
+        return computations.getStatistics(cache.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        HashRepository.storeMap(pathToStorage, new HashMap<>(cache));
+    }
+}
@@ -3,28 +3,105 @@ package org.ml_methods_group.cache;
 import org.ml_methods_group.common.Database;
 import org.ml_methods_group.common.Repository;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class HashDatabase implements Database {
 
     private final Path pathToDirectory;
+    private final StorageMode mode;
     private final List<Repository> repositories = new ArrayList<>();
+    private final Map<String, Supplier<RepositoryStatistics>> statistics = new LinkedHashMap<>();
 
     public HashDatabase(Path pathToDirectory) {
+        this(pathToDirectory, StorageMode.LOG);
+    }
+
+    public HashDatabase(Path pathToDirectory, StorageMode mode) {
         this.pathToDirectory = pathToDirectory;
+        this.mode = mode;
     }
 
     @Override
     public <K, V> Repository<K, V> repositoryForName(String name,
                                                      Class<K> keyClass, Class<V> valueClass) throws Exception {
-        final String fullName = keyClass.getSimpleName() + "2" + valueClass.getSimpleName() + "#" + name + ".cache";
-        final var repository = new HashRepository<>(pathToDirectory.resolve(fullName), keyClass, valueClass);
+        final String baseName = keyClass.getSimpleName() + "2" + valueClass.getSimpleName() + "#" + name;
+        final Path legacyPath = pathToDirectory.resolve(baseName + ".cache");
+        final Repository<K, V> repository;
+        switch (mode) {
+            case SERIALIZED_MAP:
+                repository = new HashRepository<>(legacyPath, keyClass, valueClass);
+                break;
+            case CONCURRENT:
+                final var concurrentRepository = new ConcurrentHashRepository<>(legacyPath, keyClass, valueClass);
+                statistics.put(baseName, concurrentRepository::getStatistics);
+                repository = concurrentRepository;
+                break;
+            case LOG:
+                final Path path = pathToDirectory.resolve(baseName);
+                if (!Files.exists(logPathOf(path)) && Files.exists(legacyPath)) {
+                    importLegacy(legacyPath, path, keyClass, valueClass);
+                }
+                final var logRepository = createLogRepository(path, keyClass, valueClass);
+                statistics.put(baseName, logRepository::getStatistics);
+                repository = logRepository;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported storage mode: " + mode);
+        }
         repositories.add(repository);
         return repository;
     }
 
+    /**
+     * Usage of repositories opened so far, {@link StorageMode#SERIALIZED_MAP} repositories aren't tracked.
+     */
+    public Map<String, RepositoryStatistics> getStatistics() {
+        final Map<String, RepositoryStatistics> result = new LinkedHashMap<>();
+        statistics.forEach((name, source) -> result.put(name, source.get()));
+        return result;
+    }
+
+    /**
+     * Imports into temporary files first, so an interrupted import leaves no log behind and is started again.
+     */
+    private static <K, V> void importLegacy(Path legacyPath, Path path,
+                                            Class<K> keyClass, Class<V> valueClass) throws Exception {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".import");
+        Files.deleteIfExists(logPathOf(temporary));
+        Files.deleteIfExists(indexPathOf(temporary));
+        try (Repository<K, V> repository = createLogRepository(temporary, keyClass, valueClass)) {
+            HashRepository.loadMap(legacyPath, keyClass, valueClass).forEach(repository::storeValue);
+        }
+        Files.move(indexPathOf(temporary), indexPathOf(path),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(logPathOf(temporary), logPathOf(path),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path logPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".log");
+    }
+
+    private static Path indexPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".index");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> AbstractLogRepository<K, V> createLogRepository(Path path, Class<K> keyClass,
+                                                                         Class<V> valueClass) throws Exception {
+        if (keyClass == Integer.class && valueClass == Integer.class) {
+            return (AbstractLogRepository<K, V>) (AbstractLogRepository<?, ?>) new IntLogRepository(path);
+        }
+        return new LogRepository<>(path, keyClass, valueClass);
+    }
+
     @Override
     public void close() throws Exception {
         final List<Exception> exceptions = new ArrayList<>();
@@ -41,4 +118,6 @@ public class HashDatabase implements Database {
             throw exception;
         }
     }
+
+    public enum StorageMode {SERIALIZED_MAP, CONCURRENT, LOG}
 }
@@ -5,6 +5,7 @@ import org.ml_methods_group.common.Repository;
 import java.io.*;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -36,9 +37,6 @@ public class HashRepository<K, V> implements Repository<K, V> {
         final Lock lock = lockManager.writeLock();
         lock.lock();
         cache.put(key, value);
-        if (cache.size() % 10 == 0) {
-            System.out.println("Size: " + cache.size());
-        }
         lock.unlock();
     }
 
@@ -50,24 +48,30 @@ public class HashRepository<K, V> implements Repository<K, V> {
     private void flush() throws IOException {
         final Lock lock = lockManager.readLock();
         lock.lock();
-        final Path directory = pathToStorage.getParent();
+        try {
+            storeMap(pathToStorage, cache);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static <K, V> void storeMap(Path path, Map<K, V> map) throws IOException {
+        final Path directory = path.getParent();
         if (directory != null && !directory.toFile().exists() && !directory.toFile().mkdirs()) {
             throw new IOException("Failed to create parent directories: " + directory.toString());
         }
-        try (FileOutputStream fileOutputStream = new FileOutputStream(pathToStorage.toFile());
+        try (FileOutputStream fileOutputStream = new FileOutputStream(path.toFile());
              ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream)) {
-            final var entrySet = cache.entrySet();
+            final var entrySet = map.entrySet();
             objectOutputStream.writeInt(entrySet.size());
             for (var entry : entrySet) {
                 objectOutputStream.writeObject(entry.getKey());
                 objectOutputStream.writeObject(entry.getValue());
             }
-        } finally {
-            lock.unlock();
         }
     }
 
-    private static <K, V> HashMap<K, V> loadMap(Path path, Class<K> keyClass, Class<V> valueClass) throws Exception {
+    static <K, V> HashMap<K, V> loadMap(Path path, Class<K> keyClass, Class<V> valueClass) throws Exception {
         try (FileInputStream fileInputStream = new FileInputStream(path.toFile());
              ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream)) {
             final HashMap<K, V> result = new HashMap<>();
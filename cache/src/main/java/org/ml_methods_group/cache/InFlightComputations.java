@@ -0,0 +1,101 @@
+package org.ml_methods_group.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Runs concurrent misses of the same key once and counts repository usage for {@link RepositoryStatistics}.
+ */
+class InFlightComputations<K, V> {
+
+    private final ConcurrentHashMap<K, Computation<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder computationNanos = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    void recordLoad(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    void recordStore() {
+        stores.increment();
+    }
+
+    /**
+     * @param lookup returns stored value of the key or null, without counting it as a load
+     * @param store  stores computed non-null values
+     * @throws IllegalStateException if {@code loader} requests the key it is computing
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> lookup, BiConsumer<? super K, ? super V> store,
+                      Function<? super K, ? extends V> loader) {
+        final V cached = lookup.apply(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        final Computation<V> computation = new Computation<>(Thread.currentThread());
+        final Computation<V> running = inFlight.putIfAbsent(key, computation);
+        if (running != null) {
+            if (running.owner == Thread.currentThread()) {
+                // joining would wait for the loader, which is waiting for this call
+                throw new IllegalStateException("Recursive computeIfAbsent for key " + key);
+            }
+            deduplicated.increment();
+            return await(running);
+        }
+        try {
+            V value = lookup.apply(key);
+            if (value == null) {
+                final long start = System.nanoTime();
+                value = loader.apply(key);
+                computationNanos.add(System.nanoTime() - start);
+                computations.increment();
+                if (value != null) {
+                    store.accept(key, value);
+                }
+            }
+            computation.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, computation);
+        }
+    }
+
+    RepositoryStatistics getStatistics(long size) {
+        return new RepositoryStatistics(hits.sum(), misses.sum(), computations.sum(), deduplicated.sum(),
+                computationNanos.sum(), stores.sum(), size);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class Computation<V> extends CompletableFuture<V> {
+        private final Thread owner;
+
+        Computation(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.ml_methods_group.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public class IntLogRepository extends AbstractLogRepository<Integer, Integer> {
+
+    public IntLogRepository(Path pathToStorage) throws IOException {
+        super(pathToStorage);
+        open();
+    }
+
+    @Override
+    protected byte[] encodeKey(Integer key) {
+        return toBytes(key);
+    }
+
+    @Override
+    protected byte[] encodeValue(Integer value) {
+        return toBytes(value);
+    }
+
+    @Override
+    protected long payloadFor(byte[] key, byte[] value, long offset) {
+        return pack(fromBytes(key), fromBytes(value));
+    }
+
+    @Override
+    protected boolean matches(long payload, byte[] key, RecordLog log) {
+        return (int) (payload >>> 32) == fromBytes(key);
+    }
+
+    @Override
+    protected Integer valueOf(long payload, RecordLog log) {
+        return (int) payload;
+    }
+
+    @Override
+    protected void copy(long hash, long payload, RecordLog source, RecordLog target, MappedIndex index)
+            throws IOException {
+        target.append(toBytes((int) (payload >>> 32)), toBytes((int) payload));
+        index.put(hash, payload, x -> false);
+    }
+
+    private static long pack(int key, int value) {
+        return ((long) key << 32) | (value & 0xffffffffL);
+    }
+
+    private static byte[] toBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+
+    private static int fromBytes(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+}
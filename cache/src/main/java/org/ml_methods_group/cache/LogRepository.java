@@ -0,0 +1,54 @@
+package org.ml_methods_group.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class LogRepository<K, V> extends AbstractLogRepository<K, V> {
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+
+    public LogRepository(Path pathToStorage, Class<K> keyClass, Class<V> valueClass) throws IOException {
+        super(pathToStorage);
+        this.keyCodec = Codec.forClass(keyClass);
+        this.valueCodec = Codec.forClass(valueClass);
+        open();
+    }
+
+    @Override
+    protected byte[] encodeKey(K key) {
+        return keyCodec.encode(key);
+    }
+
+    @Override
+    protected byte[] encodeValue(V value) {
+        return valueCodec.encode(value);
+    }
+
+    @Override
+    protected long payloadFor(byte[] key, byte[] value, long offset) {
+        return offset;
+    }
+
+    @Override
+    protected boolean matches(long payload, byte[] key, RecordLog log) throws IOException {
+        final RecordLog.Record record = log.read(payload);
+        return record != null && Arrays.equals(record.key, key);
+    }
+
+    @Override
+    protected V valueOf(long payload, RecordLog log) throws IOException {
+        final RecordLog.Record record = log.read(payload);
+        return record == null ? null : valueCodec.decode(record.value);
+    }
+
+    @Override
+    protected void copy(long hash, long payload, RecordLog source, RecordLog target, MappedIndex index)
+            throws IOException {
+        final RecordLog.Record record = source.read(payload);
+        if (record != null) {
+            index.put(hash, target.append(record.key, record.value), offset -> false);
+        }
+    }
+}
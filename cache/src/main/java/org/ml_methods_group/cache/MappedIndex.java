@@ -0,0 +1,340 @@
+package org.ml_methods_group.cache;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.LongPredicate;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Open-addressing hash table in a memory-mapped file. Once the file holds a checkpoint, slots changed
+ * after it are kept in memory and are written by the next checkpoint, so that the file never has slots
+ * of records, which may be lost in a crash. Records after the checkpoint are replayed on top of it.
+ */
+class MappedIndex implements AutoCloseable {
+    static final int MIN_CAPACITY = 1 << 10;
+
+    private static final int MAGIC = 0x42434958;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CHECKPOINTED_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int LOG_END_OFFSET = 24;
+    private static final int LOG_GENERATION_OFFSET = 32;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+    private PendingSlots pending;
+
+    private MappedIndex(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.size = (int) buffer.getLong(SIZE_OFFSET);
+        this.pending = isCheckpointed() ? new PendingSlots() : null;
+    }
+
+    static MappedIndex open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return null;
+        }
+        final FileChannel channel = FileChannel.open(path, READ, WRITE);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        final int capacity = buffer.getInt(CAPACITY_OFFSET);
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || Integer.bitCount(capacity) != 1
+                || channel.size() != fileSize(capacity)) {
+            channel.close();
+            return null;
+        }
+        final MappedIndex index = new MappedIndex(path, channel, buffer);
+        // a crash during a checkpoint may leave some of its slots without the updated header
+        index.size = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (buffer.getLong(slotOffset(slot)) != 0) {
+                index.size++;
+            }
+        }
+        return index;
+    }
+
+    static MappedIndex create(Path path, int expectedSize) throws IOException {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        Files.deleteIfExists(path);
+        final FileChannel channel = FileChannel.open(path, CREATE_NEW, READ, WRITE);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(CHECKPOINTED_OFFSET, 0);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(SIZE_OFFSET, 0);
+        buffer.putLong(LOG_END_OFFSET, 0);
+        buffer.putLong(LOG_GENERATION_OFFSET, 0);
+        return new MappedIndex(path, channel, buffer);
+    }
+
+    boolean isCheckpointed() {
+        return buffer.getInt(CHECKPOINTED_OFFSET) != 0;
+    }
+
+    long getLogEnd() {
+        return buffer.getLong(LOG_END_OFFSET);
+    }
+
+    long getLogGeneration() {
+        return buffer.getLong(LOG_GENERATION_OFFSET);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes pending slots to the file and records the log end, which they are up to date with.
+     * Records of pending slots have to be forced to the log before.
+     */
+    void checkpoint(long logGeneration, long logEnd) throws IOException {
+        if (pending != null && pending.size != 0) {
+            // file slots of overwritten keys are moved by growth, so they are written first
+            pending.forEach((key, payload, fileSlot) -> {
+                if (fileSlot != -1) {
+                    buffer.putLong(slotOffset(fileSlot) + Long.BYTES, payload);
+                }
+            });
+            while (size * 2L > capacity) {
+                grow();
+            }
+            pending.forEach((key, payload, fileSlot) -> {
+                if (fileSlot == -1) {
+                    insert(buffer, capacity, key, payload);
+                }
+            });
+            buffer.force();
+        }
+        buffer.putLong(SIZE_OFFSET, size);
+        buffer.putLong(LOG_GENERATION_OFFSET, logGeneration);
+        buffer.putLong(LOG_END_OFFSET, logEnd);
+        buffer.putInt(CHECKPOINTED_OFFSET, 1);
+        buffer.force();
+        pending = new PendingSlots();
+    }
+
+    /**
+     * @return slot, which is negative for pending slots, or {@code -1} if the key is missing
+     */
+    int find(long hash, LongPredicate matcher) {
+        final long key = normalize(hash);
+        if (pending != null) {
+            final int slot = pending.find(key, matcher);
+            if (slot != -1) {
+                return -2 - slot;
+            }
+        }
+        return findInFile(key, matcher);
+    }
+
+    long payload(int slot) {
+        return slot < -1 ? pending.payloads[-2 - slot] : buffer.getLong(slotOffset(slot) + Long.BYTES);
+    }
+
+    boolean put(long hash, long payload, LongPredicate matcher) throws IOException {
+        final long key = normalize(hash);
+        if (pending != null) {
+            final int slot = pending.find(key, matcher);
+            if (slot != -1) {
+                pending.payloads[slot] = payload;
+                return true;
+            }
+            final int fileSlot = findInFile(key, matcher);
+            if (fileSlot == -1 && (size + 1) * 2L > MAX_CAPACITY) {
+                throw new IOException("Index capacity limit exceeded: " + path);
+            }
+            pending.add(key, payload, fileSlot);
+            if (fileSlot == -1) {
+                size++;
+            }
+            return fileSlot != -1;
+        }
+        final int slot = findInFile(key, matcher);
+        if (slot != -1) {
+            buffer.putLong(slotOffset(slot) + Long.BYTES, payload);
+            return true;
+        }
+        if ((size + 1) * 2L > capacity) {
+            grow();
+        }
+        insert(buffer, capacity, key, payload);
+        size++;
+        return false;
+    }
+
+    /**
+     * Visits slots of the file, pending slots are skipped. After a checkpoint the file doesn't change
+     * until the next one, so the slots may be visited without blocking writes.
+     */
+    void forEach(SlotConsumer consumer) throws IOException {
+        for (int slot = 0; slot < capacity; slot++) {
+            final long hash = buffer.getLong(slotOffset(slot));
+            if (hash != 0) {
+                consumer.accept(hash, buffer.getLong(slotOffset(slot) + Long.BYTES));
+            }
+        }
+    }
+
+    private int findInFile(long key, LongPredicate matcher) {
+        final int mask = capacity - 1;
+        for (int slot = start(key, mask); ; slot = (slot + 1) & mask) {
+            final long stored = buffer.getLong(slotOffset(slot));
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == key && matcher.test(buffer.getLong(slotOffset(slot) + Long.BYTES))) {
+                return slot;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("Index capacity limit exceeded: " + path);
+        }
+        final int newCapacity = capacity * 2;
+        final Path temporary = path.resolveSibling(path.getFileName() + ".grow");
+        Files.deleteIfExists(temporary);
+        try (FileChannel newChannel = FileChannel.open(temporary, CREATE_NEW, READ, WRITE)) {
+            final MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    fileSize(newCapacity));
+            for (int offset = 0; offset < HEADER_SIZE; offset++) {
+                newBuffer.put(offset, buffer.get(offset));
+            }
+            newBuffer.putInt(CAPACITY_OFFSET, newCapacity);
+            for (int slot = 0; slot < capacity; slot++) {
+                final long hash = buffer.getLong(slotOffset(slot));
+                if (hash != 0) {
+                    insert(newBuffer, newCapacity, hash, buffer.getLong(slotOffset(slot) + Long.BYTES));
+                }
+            }
+            newBuffer.force();
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, READ, WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        capacity = newCapacity;
+    }
+
+    private static void insert(MappedByteBuffer target, int capacity, long key, long payload) {
+        final int mask = capacity - 1;
+        int slot = start(key, mask);
+        while (target.getLong(slotOffset(slot)) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        target.putLong(slotOffset(slot), key);
+        target.putLong(slotOffset(slot) + Long.BYTES, payload);
+    }
+
+    private static long normalize(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int start(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    @FunctionalInterface
+    interface SlotConsumer {
+        void accept(long hash, long payload) throws IOException;
+    }
+
+    /**
+     * In-memory open-addressing table of slots changed after the last checkpoint. Keys, which are
+     * in the file already, remember their file slot, so that the checkpoint doesn't search them again.
+     */
+    private static class PendingSlots {
+        private long[] keys = new long[64];
+        private long[] payloads = new long[64];
+        private int[] fileSlots = new int[64];
+        private int size;
+
+        private int find(long key, LongPredicate matcher) {
+            final int mask = keys.length - 1;
+            for (int slot = start(key, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+                if (keys[slot] == key && matcher.test(payloads[slot])) {
+                    return slot;
+                }
+            }
+        }
+
+        private void add(long key, long payload, int fileSlot) {
+            if ((size + 1) * 2L > keys.length) {
+                final long[] oldKeys = keys;
+                final long[] oldPayloads = payloads;
+                final int[] oldFileSlots = fileSlots;
+                keys = new long[oldKeys.length * 2];
+                payloads = new long[oldKeys.length * 2];
+                fileSlots = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        insert(oldKeys[i], oldPayloads[i], oldFileSlots[i]);
+                    }
+                }
+            }
+            insert(key, payload, fileSlot);
+            size++;
+        }
+
+        private void insert(long key, long payload, int fileSlot) {
+            final int mask = keys.length - 1;
+            int slot = start(key, mask);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            payloads[slot] = payload;
+            fileSlots[slot] = fileSlot;
+        }
+
+        private void forEach(PendingConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    consumer.accept(keys[slot], payloads[slot], fileSlots[slot]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface PendingConsumer {
+        void accept(long key, long payload, int fileSlot);
+    }
+}
@@ -0,0 +1,160 @@
+package org.ml_methods_group.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+class RecordLog implements AutoCloseable {
+    static final long FIRST_RECORD_OFFSET = 16;
+
+    private static final int MAGIC = 0x42434c47;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int MAX_RECORD_PART_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long generation;
+    private volatile long size;
+
+    RecordLog(Path path) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+        final ByteBuffer header = ByteBuffer.allocate((int) FIRST_RECORD_OFFSET);
+        if (channel.size() >= FIRST_RECORD_OFFSET && readFully(header, 0) && header.getInt(0) == MAGIC) {
+            generation = header.getLong(8);
+            size = channel.size();
+        } else {
+            generation = ThreadLocalRandom.current().nextLong();
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(0).putLong(generation).flip();
+            writeFully(header, 0);
+            size = FIRST_RECORD_OFFSET;
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long append(byte[] key, byte[] value) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length + value.length);
+        buffer.putInt(key.length)
+                .putInt(value.length)
+                .putInt(checksum(key, value))
+                .put(key)
+                .put(value)
+                .flip();
+        final long offset = size;
+        writeFully(buffer, offset);
+        size = offset + buffer.capacity();
+        return offset;
+    }
+
+    Record read(long offset) throws IOException {
+        final long end = size;
+        if (offset < FIRST_RECORD_OFFSET || offset + RECORD_HEADER_SIZE > end) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        if (!readFully(header, offset)) {
+            return null;
+        }
+        final int keyLength = header.getInt(0);
+        final int valueLength = header.getInt(4);
+        if (keyLength < 0 || valueLength < 0 || keyLength > MAX_RECORD_PART_SIZE || valueLength > MAX_RECORD_PART_SIZE
+                || offset + RECORD_HEADER_SIZE + keyLength + valueLength > end) {
+            return null;
+        }
+        final ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength);
+        if (!readFully(body, offset + RECORD_HEADER_SIZE)) {
+            return null;
+        }
+        final byte[] key = new byte[keyLength];
+        final byte[] value = new byte[valueLength];
+        body.flip();
+        body.get(key).get(value);
+        if (checksum(key, value) != header.getInt(8)) {
+            return null;
+        }
+        return new Record(key, value, offset + RECORD_HEADER_SIZE + keyLength + valueLength);
+    }
+
+    long replay(long from, RecordConsumer consumer) throws IOException {
+        long offset = from;
+        while (offset < size) {
+            final Record record = read(offset);
+            if (record == null) {
+                break;
+            }
+            consumer.accept(offset, record.key, record.value);
+            offset = record.next;
+        }
+        return offset;
+    }
+
+    long recover(long from, RecordConsumer consumer) throws IOException {
+        final long end = replay(from, consumer);
+        if (end < size) {
+            channel.truncate(end);
+            size = end;
+        }
+        return end;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static int checksum(byte[] key, byte[] value) {
+        final CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    static class Record {
+        final byte[] key;
+        final byte[] value;
+        final long next;
+
+        private Record(byte[] key, byte[] value, long next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long offset, byte[] key, byte[] value) throws IOException;
+    }
+}
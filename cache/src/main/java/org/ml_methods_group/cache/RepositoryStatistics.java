@@ -0,0 +1,69 @@
+package org.ml_methods_group.cache;
+
+public class RepositoryStatistics {
+    private final long hits;
+    private final long misses;
+    private final long computations;
+    private final long deduplicated;
+    private final long computationNanos;
+    private final long stores;
+    private final long size;
+
+    public RepositoryStatistics(long hits, long misses, long computations, long deduplicated,
+                                long computationNanos, long stores, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.computations = computations;
+        this.deduplicated = deduplicated;
+        this.computationNanos = computationNanos;
+        this.stores = stores;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public long getComputations() {
+        return computations;
+    }
+
+    public long getDeduplicated() {
+        return deduplicated;
+    }
+
+    public long getComputationNanos() {
+        return computationNanos;
+    }
+
+    public double getAverageComputationMillis() {
+        return computations == 0 ? 0 : computationNanos / 1e6 / computations;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "RepositoryStatistics{hits=" + hits +
+                ", misses=" + misses +
+                ", computations=" + computations +
+                ", deduplicated=" + deduplicated +
+                ", averageComputationMillis=" + getAverageComputationMillis() +
+                ", stores=" + stores +
+                ", size=" + size + "}";
+    }
+}
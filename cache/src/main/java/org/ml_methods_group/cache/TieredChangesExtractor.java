@@ -0,0 +1,172 @@
+package org.ml_methods_group.cache;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.ml_methods_group.common.FeaturesExtractor;
+import org.ml_methods_group.common.Repository;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.changes.Changes;
+import org.ml_methods_group.common.proto.ProtoChanges;
+import org.ml_methods_group.common.serialization.EntityToProtoUtils;
+import org.ml_methods_group.common.serialization.ProtoToEntityUtils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches changes of solutions in a LRU memory tier, bounded by the total number of code changes,
+ * over a persistent repository with {@link ProtoChanges} encoding. Keys carry a hash of
+ * {@code fingerprint}, which should identify the configuration of the oracle
+ * (see {@link org.ml_methods_group.common.ast.changes.ChangeGenerator#getFingerprint()}),
+ * so entries of another configuration are never reused. Concurrent requests for the same solution
+ * are computed once. Solutions without id (-1) are never cached. The repository isn't serialized,
+ * a deserialized extractor keeps the memory tier only.
+ */
+public class TieredChangesExtractor implements FeaturesExtractor<Solution, Changes> {
+    private final FeaturesExtractor<Solution, Changes> oracle;
+    private final String keyPrefix;
+    private final long maxWeight;
+    private final transient Repository<String, byte[]> storage;
+    private final Map<Integer, Changes> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private transient ConcurrentHashMap<Integer, CompletableFuture<Changes>> inFlight = new ConcurrentHashMap<>();
+    private long weight = 0;
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder storageHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TieredChangesExtractor(FeaturesExtractor<Solution, Changes> oracle, String fingerprint, long maxWeight,
+                                  Repository<String, byte[]> storage) {
+        this.oracle = oracle;
+        this.keyPrefix = UUID.nameUUIDFromBytes(fingerprint.getBytes(StandardCharsets.UTF_8)) + ":";
+        this.maxWeight = maxWeight;
+        this.storage = storage;
+    }
+
+    @Override
+    public Changes process(Solution value) {
+        final int id = value.getSolutionId();
+        if (id == -1) {
+            return oracle.process(value);
+        }
+        final Changes cached = lookup(id);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+        final CompletableFuture<Changes> future = new CompletableFuture<>();
+        final CompletableFuture<Changes> running = inFlight.putIfAbsent(id, future);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            final Changes changes = load(value);
+            put(id, changes);
+            future.complete(changes);
+            return changes;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, future);
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getStorageHits() {
+        return storageHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Changes load(Solution value) {
+        final Changes present = lookup(value.getSolutionId());
+        if (present != null) {
+            memoryHits.increment();
+            return present;
+        }
+        final String key = keyPrefix + value.getSolutionId();
+        final Optional<byte[]> stored = storage == null ? Optional.empty() : storage.loadValue(key);
+        if (stored.isPresent()) {
+            storageHits.increment();
+            return decode(stored.get());
+        }
+        misses.increment();
+        final Changes changes = oracle.process(value);
+        if (storage != null) {
+            storage.storeValue(key, EntityToProtoUtils.transform(changes).toByteArray());
+        }
+        return changes;
+    }
+
+    private synchronized Changes lookup(int id) {
+        return entries.get(id);
+    }
+
+    private synchronized void put(int id, Changes changes) {
+        final Changes previous = entries.put(id, changes);
+        if (previous != null) {
+            weight -= weightOf(previous);
+        }
+        weight += weightOf(changes);
+        final Iterator<Map.Entry<Integer, Changes>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            final Map.Entry<Integer, Changes> eldest = iterator.next();
+            if (eldest.getKey() == id) {
+                continue;
+            }
+            iterator.remove();
+            weight -= weightOf(eldest.getValue());
+            evictions.increment();
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        inFlight = new ConcurrentHashMap<>();
+    }
+
+    private static long weightOf(Changes changes) {
+        return 1 + changes.getChanges().size();
+    }
+
+    private static Changes decode(byte[] bytes) {
+        try {
+            return ProtoToEntityUtils.transform(ProtoChanges.parseFrom(bytes));
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Failed to decode stored changes", e);
+        }
+    }
+
+    private static Changes await(CompletableFuture<Changes> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.ml_methods_group.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentHashRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDeduplicatesInFlightComputations() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("values.cache");
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService service = Executors.newFixedThreadPool(4);
+        try (ConcurrentHashRepository<Integer, String> repository =
+                     new ConcurrentHashRepository<>(path, Integer.class, String.class)) {
+            final Callable<String> task = () -> repository.computeIfAbsent(1, key -> {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "one";
+            });
+            final Future<String> first = service.submit(task);
+            started.await();
+            final Future<String> second = service.submit(task);
+            final Future<String> third = service.submit(task);
+            while (repository.getStatistics().getDeduplicated() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            assertEquals("one", first.get());
+            assertEquals("one", second.get());
+            assertEquals("one", third.get());
+            assertEquals(1, calls.get());
+            final RepositoryStatistics statistics = repository.getStatistics();
+            assertEquals(1, statistics.getComputations());
+            assertEquals(3, statistics.getMisses());
+        } finally {
+            service.shutdownNow();
+        }
+        try (ConcurrentHashRepository<Integer, String> repository =
+                     new ConcurrentHashRepository<>(path, Integer.class, String.class)) {
+            assertEquals(Optional.of("one"), repository.loadValue(1));
+            assertEquals(1, repository.getStatistics().getHits());
+        }
+    }
+
+    @Test
+    public void testRecursiveComputationFails() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("values.cache");
+        try (ConcurrentHashRepository<Integer, String> repository =
+                     new ConcurrentHashRepository<>(path, Integer.class, String.class)) {
+            try {
+                repository.computeIfAbsent(1, key -> repository.computeIfAbsent(key, x -> "inner"));
+                fail("Recursive computation should fail");
+            } catch (IllegalStateException expected) {
+                // key is released, so it can be computed again
+            }
+            assertEquals("one", repository.computeIfAbsent(1, key -> "one"));
+            assertEquals("two", repository.computeIfAbsent(2, key -> repository.computeIfAbsent(3, x -> "two")));
+        }
+    }
+}
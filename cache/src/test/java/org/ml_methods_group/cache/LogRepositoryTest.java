@@ -0,0 +1,212 @@
+package org.ml_methods_group.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml_methods_group.common.Repository;
+
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class LogRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("strings");
+        try (LogRepository<String, String> repository = new LogRepository<>(path, String.class, String.class)) {
+            for (int i = 0; i < 5000; i++) {
+                repository.storeValue("key" + i, "value" + i);
+            }
+            repository.storeValue("key7", "updated");
+            assertEquals(Optional.of("value4999"), repository.loadValue("key4999"));
+            assertEquals(Optional.of("updated"), repository.loadValue("key7"));
+            assertEquals(Optional.empty(), repository.loadValue("missing"));
+        }
+        try (LogRepository<String, String> repository = new LogRepository<>(path, String.class, String.class)) {
+            assertEquals(Optional.of("value0"), repository.loadValue("key0"));
+            assertEquals(Optional.of("updated"), repository.loadValue("key7"));
+        }
+    }
+
+    /**
+     * Copies files of a repository, which is still open, as they would be left by a crash.
+     */
+    private static void copyCrashedState(Path source, Path target) throws Exception {
+        for (String extension : new String[]{".log", ".index"}) {
+            Files.copy(source.resolveSibling(source.getFileName() + extension),
+                    target.resolveSibling(target.getFileName() + extension));
+        }
+    }
+
+    @Test
+    public void testRecoveryWithoutClose() throws Exception {
+        final Path source = folder.getRoot().toPath().resolve("source");
+        final Path path = folder.getRoot().toPath().resolve("crashed");
+        try (IntLogRepository crashed = new IntLogRepository(source)) {
+            for (int i = 0; i < 3000; i++) {
+                crashed.storeValue(i, i * 3);
+            }
+            crashed.flush();
+            for (int i = 3000; i < 4000; i++) {
+                crashed.storeValue(i, i * 3);
+            }
+            crashed.storeValue(7, 1);
+            copyCrashedState(source, path);
+        }
+        try (FileOutputStream log = new FileOutputStream(path.resolveSibling("crashed.log").toFile(), true)) {
+            log.write(new byte[]{0, 0, 0, 4, 0, 0});
+        }
+        try (IntLogRepository recovered = new IntLogRepository(path)) {
+            assertEquals(Optional.of(0), recovered.loadValue(0));
+            assertEquals(Optional.of(1), recovered.loadValue(7));
+            assertEquals(Optional.of(3999 * 3), recovered.loadValue(3999));
+            assertEquals(Optional.empty(), recovered.loadValue(4000));
+            for (int i = 4000; i < 20000; i++) {
+                recovered.storeValue(i, i);
+            }
+            assertEquals(Optional.of(3999 * 3), recovered.loadValue(3999));
+            assertEquals(Optional.of(19999), recovered.loadValue(19999));
+            assertEquals(Optional.empty(), recovered.loadValue(20000));
+        }
+    }
+
+    @Test
+    public void testRecoveryFromCheckpointWhenTailIsLost() throws Exception {
+        final Path source = folder.getRoot().toPath().resolve("source");
+        final Path path = folder.getRoot().toPath().resolve("lost");
+        final long checkpointEnd;
+        try (IntLogRepository crashed = new IntLogRepository(source)) {
+            for (int i = 0; i < 3000; i++) {
+                crashed.storeValue(i, i * 3);
+            }
+            crashed.flush();
+            checkpointEnd = Files.size(source.resolveSibling("source.log"));
+            for (int i = 3000; i < 4000; i++) {
+                crashed.storeValue(i, i * 3);
+            }
+            crashed.storeValue(7, 1);
+            copyCrashedState(source, path);
+        }
+        // records after the checkpoint weren't forced and are lost
+        try (FileChannel log = FileChannel.open(path.resolveSibling("lost.log"), StandardOpenOption.WRITE)) {
+            log.truncate(checkpointEnd);
+        }
+        try (IntLogRepository recovered = new IntLogRepository(path)) {
+            assertEquals(Optional.of(21), recovered.loadValue(7));
+            assertEquals(Optional.of(2999 * 3), recovered.loadValue(2999));
+            assertEquals(Optional.empty(), recovered.loadValue(3000));
+            assertEquals(3000, recovered.getStatistics().getSize());
+        }
+    }
+
+    @Test
+    public void testStoreDuringCompaction() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("concurrent");
+        try (LogRepository<Integer, String> repository = new LogRepository<>(path, Integer.class, String.class)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    repository.storeValue(i, round + ":" + i);
+                }
+            }
+            final Thread writer = new Thread(() -> {
+                for (int i = 500; i < 2000; i++) {
+                    repository.storeValue(i, "new:" + i);
+                }
+            });
+            writer.start();
+            repository.compact();
+            writer.join();
+            assertEquals(Optional.of("9:499"), repository.loadValue(499));
+            assertEquals(Optional.of("new:500"), repository.loadValue(500));
+            assertEquals(Optional.of("new:1999"), repository.loadValue(1999));
+        }
+        try (LogRepository<Integer, String> repository = new LogRepository<>(path, Integer.class, String.class)) {
+            assertEquals(Optional.of("9:0"), repository.loadValue(0));
+            assertEquals(Optional.of("new:1999"), repository.loadValue(1999));
+            assertEquals(2000, repository.getStatistics().getSize());
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("compacted");
+        try (LogRepository<Integer, String> repository = new LogRepository<>(path, Integer.class, String.class)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 100; i++) {
+                    repository.storeValue(i, round + ":" + i);
+                }
+            }
+            final long before = Files.size(path.resolveSibling("compacted.log"));
+            repository.compact();
+            assertTrue(Files.size(path.resolveSibling("compacted.log")) < before / 5);
+            assertEquals(Optional.of("9:42"), repository.loadValue(42));
+            repository.storeValue(42, "after");
+        }
+        try (LogRepository<Integer, String> repository = new LogRepository<>(path, Integer.class, String.class)) {
+            assertEquals(Optional.of("after"), repository.loadValue(42));
+            assertEquals(Optional.of("9:99"), repository.loadValue(99));
+        }
+    }
+
+    @Test
+    public void testLegacyImport() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        try (HashDatabase database = new HashDatabase(directory, HashDatabase.StorageMode.SERIALIZED_MAP)) {
+            database.repositoryForName("legacy", Integer.class, Integer.class).storeValue(1, 2);
+        }
+        try (HashDatabase database = new HashDatabase(directory)) {
+            final Repository<Integer, Integer> repository =
+                    database.repositoryForName("legacy", Integer.class, Integer.class);
+            assertTrue(repository instanceof IntLogRepository);
+            assertEquals(Optional.of(2), repository.loadValue(1));
+        }
+    }
+
+    @Test
+    public void testInterruptedLegacyImportIsRepeated() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        try (HashDatabase database = new HashDatabase(directory, HashDatabase.StorageMode.SERIALIZED_MAP)) {
+            database.repositoryForName("partial", String.class, String.class).storeValue("key", "value");
+        }
+        final Path temporary = directory.resolve("String2String#partial.import");
+        try (LogRepository<String, String> partial = new LogRepository<>(temporary, String.class, String.class)) {
+            partial.storeValue("garbage", "garbage");
+        }
+        try (HashDatabase database = new HashDatabase(directory)) {
+            final Repository<String, String> repository =
+                    database.repositoryForName("partial", String.class, String.class);
+            assertEquals(Optional.of("value"), repository.loadValue("key"));
+            assertEquals(Optional.empty(), repository.loadValue("garbage"));
+        }
+        assertFalse(Files.exists(directory.resolve("String2String#partial.import.log")));
+    }
+
+    @Test
+    public void testStatisticsInLogMode() throws Exception {
+        final HashDatabase database = new HashDatabase(folder.getRoot().toPath());
+        try {
+            final Repository<String, String> repository =
+                    database.repositoryForName("statistics", String.class, String.class);
+            assertEquals("value", repository.computeIfAbsent("key", key -> "value"));
+            assertEquals("value", repository.computeIfAbsent("key", key -> "other"));
+            assertEquals(Optional.empty(), repository.loadValue("missing"));
+            final RepositoryStatistics statistics = database.getStatistics().get("String2String#statistics");
+            assertEquals(1, statistics.getHits());
+            assertEquals(2, statistics.getMisses());
+            assertEquals(1, statistics.getComputations());
+            assertEquals(1, statistics.getStores());
+            assertEquals(1, statistics.getSize());
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.ml_methods_group.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml_methods_group.common.FeaturesExtractor;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.changes.Changes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class TieredChangesExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Solution solution(int id) {
+        return new Solution("code" + id, 1, id, id, Solution.Verdict.FAIL);
+    }
+
+    private static FeaturesExtractor<Solution, Changes> oracle(AtomicInteger calls) {
+        return value -> {
+            calls.incrementAndGet();
+            return new Changes(value, solution(value.getSolutionId() + 1000), Collections.emptyList());
+        };
+    }
+
+    @Test
+    public void testTiers() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("changes");
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Solution> values = IntStream.range(0, 100)
+                .mapToObj(TieredChangesExtractorTest::solution)
+                .collect(Collectors.toList());
+        try (LogRepository<String, byte[]> storage = new LogRepository<>(path, String.class, byte[].class)) {
+            final TieredChangesExtractor extractor = new TieredChangesExtractor(oracle(calls), "first", 10, storage);
+            final List<Changes> changes = values.parallelStream()
+                    .map(extractor::process)
+                    .collect(Collectors.toList());
+            assertEquals(100, calls.get());
+            assertTrue(extractor.size() <= 10);
+            assertEquals(1042, changes.get(42).getTarget().getSolutionId());
+            extractor.process(values.get(99));
+            assertEquals(100, calls.get());
+            assertEquals(1, extractor.getMemoryHits() + extractor.getStorageHits());
+        }
+        try (LogRepository<String, byte[]> storage = new LogRepository<>(path, String.class, byte[].class)) {
+            final TieredChangesExtractor extractor = new TieredChangesExtractor(oracle(calls), "first", 10, storage);
+            final Changes changes = extractor.process(values.get(7));
+            assertEquals(values.get(7), changes.getOrigin());
+            assertEquals(solution(1007), changes.getTarget());
+            assertEquals(1, extractor.getStorageHits());
+            assertEquals(100, calls.get());
+
+            final TieredChangesExtractor other = new TieredChangesExtractor(oracle(calls), "second", 10, storage);
+            other.process(values.get(7));
+            assertEquals(1, other.getMisses());
+            assertEquals(101, calls.get());
+        }
+    }
+
+    @Test
+    public void testDeduplicatesConcurrentRequests() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("concurrent");
+        final AtomicInteger calls = new AtomicInteger();
+        try (LogRepository<String, byte[]> storage = new LogRepository<>(path, String.class, byte[].class)) {
+            final TieredChangesExtractor extractor = new TieredChangesExtractor(oracle(calls), "first", 100, storage);
+            IntStream.range(0, 10_000).parallel().forEach(i -> extractor.process(solution(i % 10)));
+            assertEquals(10, calls.get());
+        }
+    }
+
+    @Test
+    public void testDeserializedExtractorKeepsMemoryTier() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("serialized");
+        final AtomicInteger calls = new AtomicInteger();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LogRepository<String, byte[]> storage = new LogRepository<>(path, String.class, byte[].class)) {
+            final TieredChangesExtractor extractor = new TieredChangesExtractor(oracle(calls), "first", 100, storage);
+            extractor.process(solution(1));
+            try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+                stream.writeObject(extractor);
+            }
+        }
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            final TieredChangesExtractor restored = (TieredChangesExtractor) stream.readObject();
+            assertEquals(solution(1001), restored.process(solution(1)).getTarget());
+            assertEquals(solution(1002), restored.process(solution(2)).getTarget());
+            assertEquals(solution(1002), restored.process(solution(2)).getTarget());
+            assertEquals(2, restored.getMisses());
+            assertEquals(2, restored.size());
+        }
+    }
+}
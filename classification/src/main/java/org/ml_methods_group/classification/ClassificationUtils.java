@@ -3,12 +3,20 @@ package org.ml_methods_group.classification;
 import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.Wrapper;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 public class ClassificationUtils {
     public static <V> List<V> kNearest(V value, List<V> targets, int k, DistanceFunction<V> metric) {
+        return kNearestWithDistances(value, targets, k, metric).stream()
+                .map(Wrapper::getMeta)
+                .collect(Collectors.toList());
+    }
+
+    public static <V> List<Wrapper<Double, V>> kNearestWithDistances(V value, List<V> targets, int k,
+                                                                     DistanceFunction<V> metric) {
         double bound = Double.POSITIVE_INFINITY;
         final TreeSet<Wrapper<Double, Integer>> heap = new TreeSet<>(Wrapper::compare);
         for (int i = 0; i < targets.size(); i++) {
@@ -20,10 +28,60 @@ public class ClassificationUtils {
                 heap.pollLast();
                 bound = heap.last().getFeatures();
             }
+            if (heap.size() == k) {
+                bound = heap.last().getFeatures();
+            }
+        }
+        return heap.stream()
+                .map(wrapper -> new Wrapper<>(wrapper.getFeatures(), targets.get(wrapper.getMeta())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same neighbors as {@link #kNearestWithDistances(Object, List, int, DistanceFunction)}, but targets are
+     * visited in order of {@code lowerBound}, which has to be cheap and never exceed {@code metric}. The search
+     * stops at the first target, which lower bound exceeds distance to the k-th neighbor found so far. Neither
+     * symmetry nor the triangle inequality is needed, so it suits fuzzy Jaccard distance.
+     */
+    public static <V> List<Wrapper<Double, V>> kNearestWithDistances(V value, List<V> targets, int k,
+                                                                     DistanceFunction<V> metric,
+                                                                     DistanceFunction<V> lowerBound) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // float bound rounded down keeps being a lower bound and sorts together with the index as a long
+        final long[] order = new long[targets.size()];
+        for (int i = 0; i < order.length; i++) {
+            final double exact = Math.max(0, lowerBound.distance(value, targets.get(i)));
+            float bound = (float) exact;
+            if (bound > exact) {
+                bound = Math.nextDown(bound);
+            }
+            order[i] = ((long) Float.floatToIntBits(bound) << 32) | i;
+        }
+        Arrays.sort(order);
+        final TreeSet<Wrapper<Double, Integer>> heap = new TreeSet<>(Wrapper::compare);
+        for (long key : order) {
+            final int index = (int) key;
+            if (heap.size() < k) {
+                heap.add(new Wrapper<>(metric.distance(value, targets.get(index)), index));
+                continue;
+            }
+            final Wrapper<Double, Integer> last = heap.last();
+            final double bound = last.getFeatures();
+            if (Float.intBitsToFloat((int) (key >>> 32)) > bound) {
+                break;
+            }
+            // ties with the k-th neighbor are resolved by index as in the linear scan
+            final Wrapper<Double, Integer> candidate = new Wrapper<>(
+                    metric.distance(value, targets.get(index), Math.nextUp(bound)), index);
+            if (Wrapper.compare(candidate, last) < 0) {
+                heap.add(candidate);
+                heap.pollLast();
+            }
         }
         return heap.stream()
-                .mapToInt(Wrapper::getMeta)
-                .mapToObj(targets::get)
+                .map(wrapper -> new Wrapper<>(wrapper.getFeatures(), targets.get(wrapper.getMeta())))
                 .collect(Collectors.toList());
     }
 }
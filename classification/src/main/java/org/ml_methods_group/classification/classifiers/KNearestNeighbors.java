@@ -4,6 +4,7 @@ import org.ml_methods_group.classification.ClassificationUtils;
 import org.ml_methods_group.common.Classifier;
 import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.MarkedClusters;
+import org.ml_methods_group.common.Wrapper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -17,10 +18,20 @@ public class KNearestNeighbors<T, M> implements Classifier<T, M> {
     private final Map<T, M> marks = new HashMap<>();
     private final List<T> samples = new ArrayList<>();
     private final DistanceFunction<T> metric;
+    private final DistanceFunction<T> lowerBound;
 
     public KNearestNeighbors(int k, DistanceFunction<T> metric) {
+        this(k, metric, null);
+    }
+
+    /**
+     * @param lowerBound cheap lower bound of {@code metric}, which orders samples so that most of them
+     *                   are skipped without computing the distance, neighbors are the same as without it
+     */
+    public KNearestNeighbors(int k, DistanceFunction<T> metric, DistanceFunction<T> lowerBound) {
         this.k = k;
         this.metric = metric;
+        this.lowerBound = lowerBound;
     }
 
     @Override
@@ -33,9 +44,12 @@ public class KNearestNeighbors<T, M> implements Classifier<T, M> {
 
     @Override
     public Map<M, Double> reliability(T value) {
-        return ClassificationUtils.kNearest(value, samples, k, metric)
-                .stream()
-                .collect(Collectors.toMap(marks::get, x -> 1 - metric.distance(value, x),
+        final List<Wrapper<Double, T>> neighbors = lowerBound != null
+                ? ClassificationUtils.kNearestWithDistances(value, samples, k, metric, lowerBound)
+                : ClassificationUtils.kNearestWithDistances(value, samples, k, metric);
+        return neighbors.stream()
+                .collect(Collectors.toMap(neighbor -> marks.get(neighbor.getMeta()),
+                        neighbor -> 1 - neighbor.getFeatures(),
                         Double::sum))
                 .entrySet()
                 .stream()
@@ -0,0 +1,106 @@
+package org.ml_methods_group.classification;
+
+import org.junit.Test;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.SimilarityMetric;
+import org.ml_methods_group.common.Wrapper;
+import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction;
+import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction.Prepared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ClassificationUtilsTest {
+
+    private static final SimilarityMetric<Integer> METRIC = new SimilarityMetric<>() {
+        @Override
+        public double measure(Integer first, Integer second) {
+            return getElementType(first) == getElementType(second) ? 1.0 / (1 + Math.abs(first - second)) : 0;
+        }
+
+        @Override
+        public int getElementType(Integer value) {
+            return value % 16;
+        }
+    };
+
+    private static final FuzzyJaccardDistanceFunction<Integer> FUZZY = new FuzzyJaccardDistanceFunction<>(METRIC);
+
+    private static List<Prepared<Integer>> randomLists(int count, Random random) {
+        final List<Prepared<Integer>> lists = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int size = 1 + random.nextInt(12);
+            final List<Integer> list = new ArrayList<>();
+            for (int j = 0; j < size; j++) {
+                list.add(random.nextInt(96));
+            }
+            lists.add(FUZZY.prepare(list));
+        }
+        return lists;
+    }
+
+    private static void assertSameNeighbors(List<Wrapper<Double, Prepared<Integer>>> expected,
+                                            List<Wrapper<Double, Prepared<Integer>>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i).getMeta(), actual.get(i).getMeta());
+            assertEquals(expected.get(i).getFeatures(), actual.get(i).getFeatures(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testLowerBoundKeepsNeighborsOfFuzzyJaccard() {
+        final Random random = new Random(239);
+        final List<Prepared<Integer>> samples = randomLists(2000, random);
+        final DistanceFunction<Prepared<Integer>> distance = FUZZY.getPreparedDistance();
+        final DistanceFunction<Prepared<Integer>> lowerBound = FUZZY.getPreparedLowerBound();
+        for (Prepared<Integer> query : randomLists(100, random)) {
+            for (int k : new int[]{1, 5, 20}) {
+                assertSameNeighbors(ClassificationUtils.kNearestWithDistances(query, samples, k, distance),
+                        ClassificationUtils.kNearestWithDistances(query, samples, k, distance, lowerBound));
+            }
+        }
+    }
+
+    @Test
+    public void testLowerBoundPrunesDistanceCalls() {
+        final Random random = new Random(566);
+        final List<Prepared<Integer>> samples = randomLists(2000, random);
+        final DistanceFunction<Prepared<Integer>> distance = FUZZY.getPreparedDistance();
+        final AtomicInteger calls = new AtomicInteger();
+        final DistanceFunction<Prepared<Integer>> counting = new DistanceFunction<>() {
+            @Override
+            public double distance(Prepared<Integer> first, Prepared<Integer> second) {
+                calls.incrementAndGet();
+                return distance.distance(first, second);
+            }
+
+            @Override
+            public double distance(Prepared<Integer> first, Prepared<Integer> second, double upperBound) {
+                calls.incrementAndGet();
+                return distance.distance(first, second, upperBound);
+            }
+        };
+        final List<Prepared<Integer>> queries = randomLists(100, random);
+        for (Prepared<Integer> query : queries) {
+            ClassificationUtils.kNearestWithDistances(query, samples, 5, counting, FUZZY.getPreparedLowerBound());
+        }
+        assertTrue(calls.get() < queries.size() * samples.size() / 4);
+    }
+
+    @Test
+    public void testSmallAndEmpty() {
+        final List<Prepared<Integer>> samples = randomLists(3, new Random(42));
+        final Prepared<Integer> query = randomLists(1, new Random(7)).get(0);
+        final DistanceFunction<Prepared<Integer>> distance = FUZZY.getPreparedDistance();
+        final DistanceFunction<Prepared<Integer>> lowerBound = FUZZY.getPreparedLowerBound();
+        assertSameNeighbors(ClassificationUtils.kNearestWithDistances(query, samples, 5, distance),
+                ClassificationUtils.kNearestWithDistances(query, samples, 5, distance, lowerBound));
+        assertTrue(ClassificationUtils.kNearestWithDistances(query, new ArrayList<>(), 5, distance, lowerBound)
+                .isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+package org.ml_methods_group.clustering;
+
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class ClusteringUtils {
+
+    /**
+     * Share of pairs of values clustered together in {@code expected} which are clustered together
+     * in {@code actual} too. Values are compared by identity.
+     */
+    public static <V> double pairsRecall(Clusters<V> expected, Clusters<V> actual) {
+        final Map<V, Integer> clusterIds = new IdentityHashMap<>();
+        for (int i = 0; i < actual.getClusters().size(); i++) {
+            for (V value : actual.getClusters().get(i).getElements()) {
+                clusterIds.put(value, i);
+            }
+        }
+        long expectedPairs = 0;
+        long foundPairs = 0;
+        for (Cluster<V> cluster : expected.getClusters()) {
+            expectedPairs += pairs(cluster.size());
+            final Map<Integer, Integer> counters = new HashMap<>();
+            for (V value : cluster.getElements()) {
+                counters.merge(clusterIds.getOrDefault(value, -1), 1, Integer::sum);
+            }
+            for (Map.Entry<Integer, Integer> entry : counters.entrySet()) {
+                if (entry.getKey() != -1) {
+                    foundPairs += pairs(entry.getValue());
+                }
+            }
+        }
+        return expectedPairs == 0 ? 1 : (double) foundPairs / expectedPairs;
+    }
+
+    private static long pairs(long size) {
+        return size * (size - 1) / 2;
+    }
+}
@@ -1,5 +1,6 @@
 package org.ml_methods_group.clustering.clusterers;
 
+import org.ml_methods_group.clustering.pruning.PairsPruner;
 import org.ml_methods_group.common.DistanceFunction;
 
 public class ClusterSizeLimitedHAC<T> extends HAC<T> {
@@ -11,6 +12,17 @@ public class ClusterSizeLimitedHAC<T> extends HAC<T> {
         this.maxClusterSize = maxClusterSize;
     }
 
+    public ClusterSizeLimitedHAC(double distanceLimit, int maxClusterSize, DistanceFunction<T> metric,
+                                 PairsPruner<T> pruner) {
+        super(distanceLimit, 0, metric, pruner);
+        this.maxClusterSize = maxClusterSize;
+    }
+
+    @Override
+    protected String getCheckpointFingerprint() {
+        return super.getCheckpointFingerprint() + "+maxClusterSize=" + maxClusterSize;
+    }
+
     protected void insertTripleIfNecessary(double distance, Community first, Community second) {
         if (first.entities.size() + second.entities.size() > maxClusterSize) {
             return;
@@ -0,0 +1,25 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.common.DistanceFunction;
+
+public class ClusterSizeLimitedNNChainHAC<T> extends NNChainHAC<T> {
+
+    private final int maxClusterSize;
+
+    public ClusterSizeLimitedNNChainHAC(double distanceLimit, int maxClusterSize, DistanceFunction<T> metric) {
+        super(distanceLimit, 0, metric);
+        this.maxClusterSize = maxClusterSize;
+    }
+
+    public ClusterSizeLimitedNNChainHAC(double distanceLimit, int maxClusterSize, DistanceFunction<T> metric,
+                                        PairsPruner<T> pruner) {
+        super(distanceLimit, 0, metric, pruner);
+        this.maxClusterSize = maxClusterSize;
+    }
+
+    @Override
+    protected boolean canMerge(int firstSize, int secondSize) {
+        return firstSize + secondSize <= maxClusterSize;
+    }
+}
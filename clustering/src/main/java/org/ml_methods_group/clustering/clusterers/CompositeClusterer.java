@@ -4,6 +4,7 @@ import org.ml_methods_group.common.Clusterer;
 import org.ml_methods_group.common.Clusters;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Wrapper;
+import org.ml_methods_group.common.parallel.ItemBudget;
 import org.ml_methods_group.common.parallel.ParallelContext;
 import org.ml_methods_group.common.parallel.ParallelUtils;
 
@@ -14,22 +15,34 @@ public class CompositeClusterer<V, F> implements Clusterer<V> {
 
     private final FeaturesExtractor<V, F> featuresExtractor;
     private final Clusterer<Wrapper<F, V>> clusterer;
+    private final ItemBudget<V, Object, List<Wrapper<F, V>>> budget;
 
     public CompositeClusterer(FeaturesExtractor<V, F> featuresExtractor, Clusterer<Wrapper<F, V>> clusterer) {
+        this(featuresExtractor, clusterer, null);
+    }
+
+    /**
+     * Features extraction of every value is limited by {@code budget}, with {@link ItemBudget.Policy#SKIP}
+     * values exceeding it are left out of clusters.
+     */
+    public CompositeClusterer(FeaturesExtractor<V, F> featuresExtractor, Clusterer<Wrapper<F, V>> clusterer,
+                              ItemBudget<V, Object, List<Wrapper<F, V>>> budget) {
         this.featuresExtractor = featuresExtractor;
         this.clusterer = clusterer;
+        this.budget = budget;
     }
 
     @Override
     public Clusters<V> buildClusters(List<V> values) {
         final Function<V, Wrapper<F, V>> processor = Wrapper.wrap(featuresExtractor::process);
         final List<Wrapper<F, V>> wrappers;
-        try (ParallelContext context = new ParallelContext()) {
+        try (ParallelContext context = new ParallelContext().instrument("clustering.features")) {
             wrappers = context.runParallelWithConsumer(
                     values,
                     ParallelUtils::defaultListImplementation,
                     (x, accumulator) -> accumulator.add(processor.apply(x)),
-                    ParallelUtils::combineLists);
+                    ParallelUtils::combineLists,
+                    budget);
         }
         return clusterer.buildClusters(wrappers)
                 .map(Wrapper::getMeta);
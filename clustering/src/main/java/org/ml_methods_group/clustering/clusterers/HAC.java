@@ -1,5 +1,8 @@
 package org.ml_methods_group.clustering.clusterers;
 
+import org.ml_methods_group.clustering.pruning.CandidatePairs;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.PruningStatistics;
 import org.ml_methods_group.common.Cluster;
 import org.ml_methods_group.common.Clusterer;
 import org.ml_methods_group.common.Clusters;
@@ -7,67 +10,201 @@ import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.parallel.ParallelContext;
 import org.ml_methods_group.common.parallel.ParallelUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class HAC<T> implements Clusterer<T> {
 
+    private static final ExecutorService CHECKPOINT_SERVICE = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "hac-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final SortedSet<Triple> heap = new TreeSet<>();
     private final Map<Long, Triple> triples = new HashMap<>();
     private final Set<Community> communities = new HashSet<>();
     private final double distanceLimit;
     private int minClustersCount;
     private final DistanceFunction<T> metric;
+    private final PairsPruner<T> pruner;
     private int idGenerator = 0;
 
+    private Path checkpointPath;
+    private Path mergeLogPath;
+    private long checkpointInterval;
+    private ToIntFunction<T> keyExtractor;
+    private String checkpointFingerprint;
+    private int[] keys;
+    private long checkpointToken;
+    private long nextCheckpoint;
+    private Future<?> pendingCheckpoint;
+    // written by the checkpoint thread, read after pendingCheckpoint is done
+    private volatile int storedMerges;
+    private volatile long mergeLogSize;
+    private int[] mergeFirst = new int[0];
+    private int[] mergeSecond = new int[0];
+    private double[] mergeDistances = new double[0];
+    private int mergesCount;
+
     public HAC(double distanceLimit, int minClustersCount, DistanceFunction<T> metric) {
+        this(distanceLimit, minClustersCount, metric, PairsPruner.exhaustive());
+    }
+
+    public HAC(double distanceLimit, int minClustersCount, DistanceFunction<T> metric, PairsPruner<T> pruner) {
         this.distanceLimit = distanceLimit;
         this.minClustersCount = minClustersCount;
         this.metric = metric;
+        this.pruner = pruner;
+    }
+
+    /**
+     * Enables checkpoints of merge loop state: state after initialization is stored once and merges
+     * done since the previous checkpoint are periodically appended to a log next to it, both in background.
+     * Keys have to identify values uniquely among the clustered ones, fingerprint has to identify
+     * the metric and features of values, checkpoints made with another fingerprint are ignored.
+     * Checkpoint is removed when clustering is finished.
+     */
+    public void enableCheckpoints(Path path, long intervalMillis, ToIntFunction<T> keyExtractor,
+                                  String fingerprint) {
+        this.checkpointPath = path;
+        this.mergeLogPath = path.resolveSibling(path.getFileName() + ".merges");
+        this.checkpointInterval = intervalMillis;
+        this.keyExtractor = keyExtractor;
+        this.checkpointFingerprint = getCheckpointFingerprint() + "+" + fingerprint;
+    }
+
+    /**
+     * Identifies clustering parameters, which aren't stored in checkpoints, but change merges.
+     */
+    protected String getCheckpointFingerprint() {
+        return "HAC";
     }
 
     private void init(List<T> values) {
-        heap.clear();
-        triples.clear();
-        communities.clear();
-        idGenerator = 0;
-        values.stream()
-                .map(this::singletonCommunity)
-                .forEach(communities::add);
+        clear();
+        for (int i = 0; i < values.size(); i++) {
+            communities.add(singletonCommunity(values.get(i), i));
+        }
         final List<Community> communitiesAsList = new ArrayList<>(communities);
-        Collections.shuffle(communitiesAsList);
+        final CandidatePairs pairs = pruner.prepare(communitiesAsList.stream()
+                .map(community -> community.entities.get(0))
+                .collect(Collectors.toList()), distanceLimit);
+        final List<Integer> indexes = IntStream.range(0, communitiesAsList.size())
+                .boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.shuffle(indexes);
         try (ParallelContext context = new ParallelContext()) {
-            final List<Triple> toInsert = context.runParallel(communitiesAsList,
-                    ArrayList::new,
-                    this::findTriples,
+            final List<Triple> toInsert = context.runParallel(indexes,
+                    ParallelUtils::<Triple>defaultListImplementation,
+                    (index, accumulator) -> findTriples(communitiesAsList, pairs, index, accumulator),
                     ParallelUtils::combineLists);
             toInsert.forEach(this::insertTriple);
         }
     }
 
-    private List<Triple> findTriples(Community community, List<Triple> accumulator) {
+    private List<Triple> findTriples(List<Community> communitiesAsList, CandidatePairs pairs, int index,
+                                     List<Triple> accumulator) {
+        final Community community = communitiesAsList.get(index);
         final T representative = community.entities.get(0);
-        for (Community another : communities) {
-            if (another == community) {
-                break;
-            }
-            final double distance = metric.distance(representative, another.entities.get(0), distanceLimit);
+        pairs.forEachCandidate(index, (candidate, known) -> {
+            final Community another = communitiesAsList.get(candidate);
+            final double distance = Double.isNaN(known)
+                    ? metric.distance(representative, another.entities.get(0), distanceLimit)
+                    : known;
             if (distance < distanceLimit) {
                 accumulator.add(new Triple(distance, community, another));
+                return true;
             }
-        }
+            return false;
+        });
         return accumulator;
     }
 
+    public PruningStatistics getPruningStatistics() {
+        return pruner.getStatistics();
+    }
+
+    private void clear() {
+        heap.clear();
+        triples.clear();
+        communities.clear();
+        idGenerator = 0;
+        mergesCount = 0;
+    }
+
     @Override
     public Clusters<T> buildClusters(List<T> values) {
         init(values);
-        while (!heap.isEmpty() && communities.size() > minClustersCount) {
-            final Triple minTriple = heap.first();
-            invalidateTriple(minTriple);
-            final Community first = minTriple.first;
-            final Community second = minTriple.second;
-            mergeCommunities(first, second);
+        if (checkpointPath != null) {
+            keys = values.stream().mapToInt(keyExtractor).toArray();
+            startCheckpoints();
+        }
+        return runMerges();
+    }
+
+    /**
+     * Continues clustering from the last checkpoint if it was made for the same values and parameters,
+     * otherwise clusters values from scratch.
+     */
+    public Clusters<T> resumeClusters(List<T> values) {
+        if (checkpointPath == null || !Files.exists(checkpointPath)) {
+            return buildClusters(values);
+        }
+        final HACCheckpoint checkpoint;
+        final HACCheckpoint.MergeLog merges;
+        try {
+            checkpoint = HACCheckpoint.load(checkpointPath);
+            merges = HACCheckpoint.readMerges(mergeLogPath, checkpoint.token);
+        } catch (IOException e) {
+            System.err.println("Failed to read checkpoint " + checkpointPath + ", start from scratch: "
+                    + e.getMessage());
+            return buildClusters(values);
+        }
+        if (!restore(values, checkpoint)) {
+            System.err.println("Checkpoint " + checkpointPath + " doesn't match values, start from scratch");
+            return buildClusters(values);
+        }
+        replay(merges);
+        return runMerges();
+    }
+
+    private Clusters<T> runMerges() {
+        try {
+            while (!heap.isEmpty() && communities.size() > minClustersCount) {
+                final Triple minTriple = heap.first();
+                invalidateTriple(minTriple);
+                final Community first = minTriple.first;
+                final Community second = minTriple.second;
+                recordMerge(first, second, minTriple.distance);
+                mergeCommunities(first, second);
+                if (checkpointPath != null && System.currentTimeMillis() >= nextCheckpoint) {
+                    checkpoint();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // let the last checkpoint reach the disk before the failure is reported
+            if (checkpointPath != null && pendingCheckpoint != null) {
+                try {
+                    pendingCheckpoint.get();
+                } catch (Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        if (checkpointPath != null) {
+            finishCheckpoints();
         }
         final List<Cluster<T>> clusters = communities.stream()
                 .map(c -> c.entities)
@@ -78,15 +215,20 @@ public class HAC<T> implements Clusterer<T> {
 
     private void mergeCommunities(Community first, Community second) {
         final List<T> merged;
+        final List<Integer> mergedIndexes;
         if (first.entities.size() < second.entities.size()) {
             merged = second.entities;
             merged.addAll(first.entities);
+            mergedIndexes = second.indexes;
+            mergedIndexes.addAll(first.indexes);
         } else {
             merged = first.entities;
             merged.addAll(second.entities);
+            mergedIndexes = first.indexes;
+            mergedIndexes.addAll(second.indexes);
         }
 
-        final Community newCommunity = new Community(merged);
+        final Community newCommunity = new Community(merged, mergedIndexes);
         communities.remove(first);
         communities.remove(second);
 
@@ -137,20 +279,248 @@ public class HAC<T> implements Clusterer<T> {
         triple.release();
     }
 
-    private Community singletonCommunity(T entity) {
+    private Community singletonCommunity(T entity, int index) {
         final List<T> singletonList = new ArrayList<>(1);
         singletonList.add(entity);
-        return new Community(singletonList);
+        final List<Integer> indexes = new ArrayList<>(1);
+        indexes.add(index);
+        return new Community(singletonList, indexes);
+    }
+
+    private void recordMerge(Community first, Community second, double distance) {
+        if (checkpointPath == null) {
+            return;
+        }
+        if (mergesCount == mergeFirst.length) {
+            final int capacity = Math.max(16, mergesCount * 2);
+            mergeFirst = Arrays.copyOf(mergeFirst, capacity);
+            mergeSecond = Arrays.copyOf(mergeSecond, capacity);
+            mergeDistances = Arrays.copyOf(mergeDistances, capacity);
+        }
+        mergeFirst[mergesCount] = first.id;
+        mergeSecond[mergesCount] = second.id;
+        mergeDistances[mergesCount] = distance;
+        mergesCount++;
+    }
+
+    private void startCheckpoints() {
+        awaitPendingCheckpoint();
+        checkpointToken = new Random().nextLong();
+        storedMerges = 0;
+        mergeLogSize = 0;
+        nextCheckpoint = System.currentTimeMillis() + checkpointInterval;
+        final HACCheckpoint checkpoint = snapshot();
+        final Path path = checkpointPath;
+        final Path log = mergeLogPath;
+        pendingCheckpoint = CHECKPOINT_SERVICE.submit(() -> {
+            try {
+                checkpoint.store(path);
+                Files.deleteIfExists(log);
+            } catch (IOException e) {
+                System.err.println("Failed to store checkpoint " + path + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void checkpoint() {
+        nextCheckpoint = System.currentTimeMillis() + checkpointInterval;
+        if (pendingCheckpoint != null && !pendingCheckpoint.isDone()) {
+            // previous checkpoint is still being written, skip this one instead of waiting
+            return;
+        }
+        final int from = storedMerges;
+        final int to = mergesCount;
+        if (from == to) {
+            return;
+        }
+        final int[] first = Arrays.copyOfRange(mergeFirst, from, to);
+        final int[] second = Arrays.copyOfRange(mergeSecond, from, to);
+        final double[] distances = Arrays.copyOfRange(mergeDistances, from, to);
+        final long token = checkpointToken;
+        final long validSize = mergeLogSize;
+        final Path log = mergeLogPath;
+        pendingCheckpoint = CHECKPOINT_SERVICE.submit(() -> {
+            try {
+                mergeLogSize = HACCheckpoint.appendMerges(log, token, validSize, first, second, distances);
+                storedMerges = to;
+            } catch (IOException e) {
+                // merges stay unstored and are written again by the next checkpoint
+                System.err.println("Failed to store checkpoint " + log + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private HACCheckpoint snapshot() {
+        final int[] communityIds = new int[communities.size()];
+        final int[][] members = new int[communities.size()][];
+        int index = 0;
+        for (Community community : communities) {
+            communityIds[index] = community.id;
+            members[index] = community.indexes.stream().mapToInt(Integer::intValue).toArray();
+            index++;
+        }
+        final int[] pairFirst = new int[heap.size()];
+        final int[] pairSecond = new int[heap.size()];
+        final double[] pairDistances = new double[heap.size()];
+        index = 0;
+        for (Triple triple : heap) {
+            pairFirst[index] = triple.first.id;
+            pairSecond[index] = triple.second.id;
+            pairDistances[index] = triple.distance;
+            index++;
+        }
+        return new HACCheckpoint(checkpointFingerprint, checkpointToken, distanceLimit, minClustersCount, keys,
+                idGenerator, communityIds, members, pairFirst, pairSecond, pairDistances);
+    }
+
+    private boolean restore(List<T> values, HACCheckpoint checkpoint) {
+        if (!checkpoint.fingerprint.equals(checkpointFingerprint)
+                || checkpoint.distanceLimit != distanceLimit || checkpoint.minClustersCount != minClustersCount
+                || checkpoint.keys.length != values.size() || !isConsistent(checkpoint)) {
+            return false;
+        }
+        final Map<Integer, Integer> indexByKey = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (indexByKey.put(keyExtractor.applyAsInt(values.get(i)), i) != null) {
+                return false;
+            }
+        }
+        final int[] indexByStored = new int[checkpoint.keys.length];
+        for (int i = 0; i < indexByStored.length; i++) {
+            final Integer index = indexByKey.get(checkpoint.keys[i]);
+            if (index == null) {
+                return false;
+            }
+            indexByStored[i] = index;
+        }
+        awaitPendingCheckpoint();
+        clear();
+        keys = checkpoint.keys;
+        checkpointToken = checkpoint.token;
+        final Map<Integer, Community> communityById = new HashMap<>();
+        for (int i = 0; i < checkpoint.communityIds.length; i++) {
+            final List<T> entities = new ArrayList<>(checkpoint.members[i].length);
+            final List<Integer> indexes = new ArrayList<>(checkpoint.members[i].length);
+            for (int stored : checkpoint.members[i]) {
+                entities.add(values.get(indexByStored[stored]));
+                indexes.add(stored);
+            }
+            final Community community = new Community(entities, indexes, checkpoint.communityIds[i]);
+            communities.add(community);
+            communityById.put(community.id, community);
+        }
+        idGenerator = checkpoint.idGenerator;
+        for (int i = 0; i < checkpoint.pairDistances.length; i++) {
+            insertTriple(new Triple(checkpoint.pairDistances[i],
+                    communityById.get(checkpoint.pairFirst[i]),
+                    communityById.get(checkpoint.pairSecond[i])));
+        }
+        return true;
+    }
+
+    /**
+     * Checks that stored communities split all values and pairs connect distinct stored communities,
+     * so a corrupted checkpoint can't break the merge loop.
+     */
+    private boolean isConsistent(HACCheckpoint checkpoint) {
+        final int pairsCount = checkpoint.pairDistances.length;
+        if (checkpoint.members.length != checkpoint.communityIds.length
+                || checkpoint.pairFirst.length != pairsCount || checkpoint.pairSecond.length != pairsCount) {
+            return false;
+        }
+        final Set<Integer> ids = new HashSet<>();
+        final boolean[] covered = new boolean[checkpoint.keys.length];
+        int coveredCount = 0;
+        for (int i = 0; i < checkpoint.communityIds.length; i++) {
+            final int id = checkpoint.communityIds[i];
+            if (id < 0 || id >= checkpoint.idGenerator || !ids.add(id) || checkpoint.members[i].length == 0) {
+                return false;
+            }
+            for (int stored : checkpoint.members[i]) {
+                if (stored < 0 || stored >= covered.length || covered[stored]) {
+                    return false;
+                }
+                covered[stored] = true;
+                coveredCount++;
+            }
+        }
+        if (coveredCount != covered.length) {
+            return false;
+        }
+        final Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < pairsCount; i++) {
+            final int first = checkpoint.pairFirst[i];
+            final int second = checkpoint.pairSecond[i];
+            final double distance = checkpoint.pairDistances[i];
+            if (first == second || !ids.contains(first) || !ids.contains(second)
+                    || !(distance < distanceLimit)
+                    || !pairs.add(Math.max(first, second) * 1_000_000_009L + Math.min(first, second))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Repeats logged merges as long as they agree with the merge loop, merge loop is deterministic,
+     * so only a damaged log can disagree. Log is cut after the last repeated merge.
+     */
+    private void replay(HACCheckpoint.MergeLog merges) {
+        for (int i = 0; i < merges.first.length; i++) {
+            if (heap.isEmpty() || communities.size() <= minClustersCount) {
+                break;
+            }
+            final Triple minTriple = heap.first();
+            final Community first = minTriple.first;
+            final Community second = minTriple.second;
+            final double distance = minTriple.distance;
+            if (first.id != merges.first[i] || second.id != merges.second[i] || distance != merges.distances[i]) {
+                break;
+            }
+            invalidateTriple(minTriple);
+            recordMerge(first, second, distance);
+            mergeCommunities(first, second);
+        }
+        storedMerges = mergesCount;
+        mergeLogSize = HACCheckpoint.mergeLogSize(mergesCount);
+        nextCheckpoint = System.currentTimeMillis() + checkpointInterval;
+    }
+
+    private void awaitPendingCheckpoint() {
+        try {
+            if (pendingCheckpoint != null) {
+                pendingCheckpoint.get();
+                pendingCheckpoint = null;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void finishCheckpoints() {
+        awaitPendingCheckpoint();
+        try {
+            Files.deleteIfExists(checkpointPath);
+            Files.deleteIfExists(mergeLogPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     protected class Community implements Comparable<Community> {
 
         protected final List<T> entities;
+        private final List<Integer> indexes;
         private final int id;
 
-        Community(List<T> entities) {
+        Community(List<T> entities, List<Integer> indexes) {
+            this(entities, indexes, idGenerator++);
+        }
+
+        private Community(List<T> entities, List<Integer> indexes, int id) {
             this.entities = entities;
-            id = idGenerator++;
+            this.indexes = indexes;
+            this.id = id;
         }
 
         @Override
@@ -0,0 +1,212 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * State of {@link HAC} merge loop after initialization: communities as indexes of values and pairs
+ * of communities closer than the limit. Merges done after it are appended to a separate merge log
+ * and replayed on restore, so periodic checkpoints only write new merges. Values are identified by
+ * keys, so they may come in another order after restart.
+ */
+class HACCheckpoint {
+
+    private static final int MAGIC = 0x48414343;
+    private static final int VERSION = 2;
+    private static final int LOG_MAGIC = 0x48414d4c;
+    private static final int LOG_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int MERGE_RECORD_SIZE = 2 * Integer.BYTES + Double.BYTES;
+
+    final String fingerprint;
+    final long token;
+    final double distanceLimit;
+    final int minClustersCount;
+    final int[] keys;
+    final int idGenerator;
+    final int[] communityIds;
+    final int[][] members;
+    final int[] pairFirst;
+    final int[] pairSecond;
+    final double[] pairDistances;
+
+    HACCheckpoint(String fingerprint, long token, double distanceLimit, int minClustersCount, int[] keys,
+                  int idGenerator, int[] communityIds, int[][] members,
+                  int[] pairFirst, int[] pairSecond, double[] pairDistances) {
+        this.fingerprint = fingerprint;
+        this.token = token;
+        this.distanceLimit = distanceLimit;
+        this.minClustersCount = minClustersCount;
+        this.keys = keys;
+        this.idGenerator = idGenerator;
+        this.communityIds = communityIds;
+        this.members = members;
+        this.pairFirst = pairFirst;
+        this.pairSecond = pairSecond;
+        this.pairDistances = pairDistances;
+    }
+
+    void store(Path path) throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final Path temporary = path.resolveSibling(path.getFileName() + ".partial");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(fingerprint);
+            output.writeLong(token);
+            output.writeDouble(distanceLimit);
+            output.writeInt(minClustersCount);
+            writeInts(output, keys);
+            output.writeInt(idGenerator);
+            writeInts(output, communityIds);
+            for (int[] community : members) {
+                writeInts(output, community);
+            }
+            writeInts(output, pairFirst);
+            writeInts(output, pairSecond);
+            writeDoubles(output, pairDistances);
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static HACCheckpoint load(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+                1 << 16))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Unexpected checkpoint format: " + path);
+            }
+            final String fingerprint = input.readUTF();
+            final long token = input.readLong();
+            final double distanceLimit = input.readDouble();
+            final int minClustersCount = input.readInt();
+            final int[] keys = readInts(input);
+            final int idGenerator = input.readInt();
+            final int[] communityIds = readInts(input);
+            final int[][] members = new int[communityIds.length][];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = readInts(input);
+            }
+            return new HACCheckpoint(fingerprint, token, distanceLimit, minClustersCount, keys, idGenerator,
+                    communityIds, members, readInts(input), readInts(input), readDoubles(input));
+        }
+    }
+
+    /**
+     * Writes merges to the log of checkpoint with {@code token}. Everything after {@code validSize} bytes
+     * (a partially written batch) is overwritten, log is started anew if {@code validSize} is zero.
+     *
+     * @return size of the log with the new merges
+     */
+    static long appendMerges(Path log, long token, long validSize,
+                             int[] first, int[] second, double[] distances) throws IOException {
+        final int headerSize = validSize == 0 ? LOG_HEADER_SIZE : 0;
+        final ByteBuffer buffer = ByteBuffer.allocate(headerSize + first.length * MERGE_RECORD_SIZE);
+        if (headerSize != 0) {
+            buffer.putInt(LOG_MAGIC).putLong(token);
+        }
+        for (int i = 0; i < first.length; i++) {
+            buffer.putInt(first[i]).putInt(second[i]).putDouble(distances[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(validSize);
+            long position = validSize;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+            return position;
+        }
+    }
+
+    /**
+     * Reads complete merge records from the log of checkpoint with {@code token},
+     * log of another checkpoint is treated as empty.
+     */
+    static MergeLog readMerges(Path log, long token) throws IOException {
+        if (!Files.exists(log)) {
+            return new MergeLog(new int[0], new int[0], new double[0]);
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(log),
+                1 << 16))) {
+            final long size = Files.size(log);
+            if (size < LOG_HEADER_SIZE || input.readInt() != LOG_MAGIC || input.readLong() != token) {
+                return new MergeLog(new int[0], new int[0], new double[0]);
+            }
+            final int count = (int) Math.min(Integer.MAX_VALUE, (size - LOG_HEADER_SIZE) / MERGE_RECORD_SIZE);
+            final int[] first = new int[count];
+            final int[] second = new int[count];
+            final double[] distances = new double[count];
+            for (int i = 0; i < count; i++) {
+                first[i] = input.readInt();
+                second[i] = input.readInt();
+                distances[i] = input.readDouble();
+            }
+            return new MergeLog(first, second, distances);
+        }
+    }
+
+    static long mergeLogSize(int mergesCount) {
+        return LOG_HEADER_SIZE + (long) mergesCount * MERGE_RECORD_SIZE;
+    }
+
+    static class MergeLog {
+        final int[] first;
+        final int[] second;
+        final double[] distances;
+
+        private MergeLog(int[] first, int[] second, double[] distances) {
+            this.first = first;
+            this.second = second;
+            this.distances = distances;
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream output, double[] values) throws IOException {
+        output.writeInt(values.length);
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted checkpoint: negative array length");
+        }
+        final int[] values = new int[length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted checkpoint: negative array length");
+        }
+        final double[] values = new double[length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readDouble();
+        }
+        return values;
+    }
+}
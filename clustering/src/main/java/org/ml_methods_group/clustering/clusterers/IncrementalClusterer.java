@@ -0,0 +1,296 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.FeaturesExtractor;
+import org.ml_methods_group.common.MarkedClusters;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Extends existing clusters with new values without clustering everything again. Every cluster
+ * is summarized by its medoid, radius (max distance from the medoid) and, if features can be
+ * represented as bags of words, by a centroid. New value is compared with medoids only: it joins
+ * the closest cluster if the distance to the medoid plus the radius is within the threshold, so that
+ * members stay within the threshold from each other, otherwise it opens a new cluster. Medoids drift
+ * as clusters grow, {@link #rebalance()} recomputes summaries of changed clusters.
+ */
+public class IncrementalClusterer<V, F, M> implements AutoCloseable {
+
+    private static final int MEDOID_SAMPLE_SIZE = 32;
+
+    private final FeaturesExtractor<V, F> extractor;
+    private final DistanceFunction<F> metric;
+    private final double threshold;
+    private final Function<F, SparseBOWVector> bagOfWords;
+    private final List<Summary> summaries = new ArrayList<>();
+    private final Random random = new Random(239);
+    private ScheduledExecutorService service;
+    private ScheduledFuture<?> rebalancing;
+
+    /**
+     * @param bagOfWords view of features as bags of words, medoid of a cluster is then the member
+     *                   closest to the centroid instead of a sampled medoid
+     */
+    public IncrementalClusterer(FeaturesExtractor<V, F> extractor, DistanceFunction<F> metric, double threshold,
+                                Function<F, SparseBOWVector> bagOfWords) {
+        this.extractor = extractor;
+        this.metric = metric;
+        this.threshold = threshold;
+        this.bagOfWords = bagOfWords;
+    }
+
+    public IncrementalClusterer(FeaturesExtractor<V, F> extractor, DistanceFunction<F> metric, double threshold) {
+        this(extractor, metric, threshold, null);
+    }
+
+    public synchronized void addClusters(Clusters<V> clusters) {
+        clusters.getClusters().forEach(cluster -> addCluster(cluster, null));
+    }
+
+    public synchronized void addMarkedClusters(MarkedClusters<V, M> clusters) {
+        clusters.getMarks().forEach(this::addCluster);
+    }
+
+    private void addCluster(Cluster<V> cluster, M mark) {
+        if (cluster.size() == 0) {
+            return;
+        }
+        final Summary summary = new Summary(mark);
+        for (V value : cluster) {
+            summary.add(value, extractor.process(value));
+        }
+        final int medoid = medoid(summary.features, summary.centroid);
+        summary.setMedoid(medoid, summary.features.size(), radius(summary.features, medoid));
+        summaries.add(summary);
+    }
+
+    /**
+     * Returns index of the cluster, which the value was added to.
+     */
+    public synchronized int add(V value) {
+        final F features = extractor.process(value);
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < summaries.size(); i++) {
+            final Summary summary = summaries.get(i);
+            final double limit = threshold - summary.radius;
+            if (limit < 0) {
+                continue;
+            }
+            final double distance = metric.distance(features, summary.medoid,
+                    Math.nextUp(Math.min(limit, bestDistance)));
+            if (distance <= limit && distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        if (best == -1) {
+            final Summary summary = new Summary(null);
+            summary.add(value, features);
+            summary.setMedoid(0, 1, 0);
+            summaries.add(summary);
+            return summaries.size() - 1;
+        }
+        final Summary summary = summaries.get(best);
+        summary.add(value, features);
+        summary.radius = Math.max(summary.radius, bestDistance);
+        return best;
+    }
+
+    public void addAll(List<V> values) {
+        values.forEach(this::add);
+    }
+
+    /**
+     * Summaries are computed from snapshots of changed clusters, so values can be added meanwhile.
+     */
+    public void rebalance() {
+        final List<Summary> changed = new ArrayList<>();
+        final List<List<F>> snapshots = new ArrayList<>();
+        final List<Map<Integer, Double>> centroids = new ArrayList<>();
+        synchronized (this) {
+            for (Summary summary : summaries) {
+                if (summary.features.size() != summary.medoidBase) {
+                    changed.add(summary);
+                    snapshots.add(new ArrayList<>(summary.features));
+                    centroids.add(new HashMap<>(summary.centroid));
+                }
+            }
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            final List<F> snapshot = snapshots.get(i);
+            final int medoid = medoid(snapshot, centroids.get(i));
+            final double radius = radius(snapshot, medoid);
+            synchronized (this) {
+                changed.get(i).setMedoid(medoid, snapshot.size(), radius);
+            }
+        }
+    }
+
+    public synchronized void startRebalancing(long period, TimeUnit unit) {
+        if (service == null) {
+            service = Executors.newSingleThreadScheduledExecutor(task -> {
+                final Thread thread = new Thread(task, "incremental-clusterer-rebalance");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (rebalancing != null) {
+            rebalancing.cancel(false);
+        }
+        rebalancing = service.scheduleWithFixedDelay(this::rebalance, period, period, unit);
+    }
+
+    public synchronized int getClustersCount() {
+        return summaries.size();
+    }
+
+    public synchronized V getMedoid(int cluster) {
+        return summaries.get(cluster).values.get(summaries.get(cluster).medoidIndex);
+    }
+
+    public synchronized double getRadius(int cluster) {
+        return summaries.get(cluster).radius;
+    }
+
+    public synchronized Clusters<V> getClusters() {
+        return new Clusters<>(summaries.stream()
+                .map(summary -> new Cluster<>(summary.values))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns clusters with marks, clusters opened by new values have no mark and are skipped.
+     */
+    public synchronized MarkedClusters<V, M> getMarkedClusters() {
+        final Map<Cluster<V>, M> marks = new HashMap<>();
+        for (Summary summary : summaries) {
+            if (summary.mark != null) {
+                marks.put(new Cluster<>(summary.values), summary.mark);
+            }
+        }
+        return new MarkedClusters<>(marks);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (service != null) {
+            service.shutdownNow();
+            service = null;
+            rebalancing = null;
+        }
+    }
+
+    private int medoid(List<F> features, Map<Integer, Double> centroid) {
+        return bagOfWords == null ? sampledMedoid(features) : closestToCentroid(features, centroid);
+    }
+
+    private double radius(List<F> features, int medoid) {
+        double radius = 0;
+        for (F member : features) {
+            radius = Math.max(radius, metric.distance(features.get(medoid), member));
+        }
+        return radius;
+    }
+
+    private int closestToCentroid(List<F> features, Map<Integer, Double> centroid) {
+        int best = 0;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < features.size(); i++) {
+            final SparseBOWVector vector = bagOfWords.apply(features.get(i));
+            double product = 0;
+            for (int j = 0; j < vector.getIndices().size(); j++) {
+                product += vector.getCounters().get(j) * centroid.getOrDefault(vector.getIndices().get(j), 0.0);
+            }
+            final double similarity = vector.getNorm() == 0 ? 0 : product / vector.getNorm();
+            if (similarity > bestSimilarity) {
+                best = i;
+                bestSimilarity = similarity;
+            }
+        }
+        return best;
+    }
+
+    private int sampledMedoid(List<F> features) {
+        final int size = features.size();
+        if (size <= 2) {
+            return 0;
+        }
+        final List<F> sample = new ArrayList<>();
+        for (int i = 0; i < Math.min(size, MEDOID_SAMPLE_SIZE); i++) {
+            sample.add(features.get(size <= MEDOID_SAMPLE_SIZE ? i : random.nextInt(size)));
+        }
+        int best = 0;
+        double bestSum = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double sum = 0;
+            for (F another : sample) {
+                sum += metric.distance(features.get(i), another, bestSum - sum);
+                if (sum >= bestSum) {
+                    break;
+                }
+            }
+            if (sum < bestSum) {
+                best = i;
+                bestSum = sum;
+            }
+        }
+        return best;
+    }
+
+    private class Summary {
+        private final M mark;
+        private final List<V> values = new ArrayList<>();
+        private final List<F> features = new ArrayList<>();
+        private final Map<Integer, Double> centroid = new HashMap<>();
+        private F medoid;
+        private int medoidIndex;
+        private int medoidBase;
+        private double radius;
+
+        private Summary(M mark) {
+            this.mark = mark;
+        }
+
+        private void add(V value, F valueFeatures) {
+            values.add(value);
+            features.add(valueFeatures);
+            if (bagOfWords != null) {
+                final SparseBOWVector vector = bagOfWords.apply(valueFeatures);
+                for (int i = 0; i < vector.getIndices().size(); i++) {
+                    if (vector.getNorm() != 0) {
+                        centroid.merge(vector.getIndices().get(i), vector.getCounters().get(i) / vector.getNorm(),
+                                Double::sum);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param base   number of first members, which the medoid was chosen from
+         * @param radius max distance from the medoid to the first {@code base} members
+         */
+        private void setMedoid(int index, int base, double radius) {
+            // values are only appended, so a medoid of a bigger snapshot is never replaced by an older one
+            if (base < medoidBase) {
+                return;
+            }
+            medoidIndex = index;
+            medoid = features.get(index);
+            medoidBase = base;
+            for (int i = base; i < features.size(); i++) {
+                radius = Math.max(radius, metric.distance(medoid, features.get(i)));
+            }
+            this.radius = radius;
+        }
+    }
+}
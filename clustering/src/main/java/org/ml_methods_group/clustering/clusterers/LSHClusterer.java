@@ -0,0 +1,43 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.clustering.pruning.MinHashIndex;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.PruningStatistics;
+import org.ml_methods_group.common.Clusterer;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.Dendrogram;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Approximate complete linkage clustering for big sets of values. Only pairs with a common
+ * MinHash band of their tokens are compared by the exact metric, so distance matrix is sparse
+ * and clustering runs in time close to linear. Close pairs missed by the index are treated as
+ * distant ones, use {@link org.ml_methods_group.clustering.ClusteringUtils#pairsRecall} to compare
+ * with exhaustive {@link NNChainHAC}.
+ */
+public class LSHClusterer<T> implements Clusterer<T> {
+
+    private final NNChainHAC<T> clusterer;
+
+    public LSHClusterer(double distanceLimit, int minClustersCount, DistanceFunction<T> metric,
+                        Function<T, int[]> tokens, int bands, int rows) {
+        this.clusterer = new NNChainHAC<>(distanceLimit, minClustersCount, metric,
+                new PairsPruner<>(new MinHashIndex(bands, rows).extend(tokens)));
+    }
+
+    @Override
+    public Clusters<T> buildClusters(List<T> values) {
+        return clusterer.buildClusters(values);
+    }
+
+    public Dendrogram<T> buildDendrogram(List<T> values) {
+        return clusterer.buildDendrogram(values);
+    }
+
+    public PruningStatistics getPruningStatistics() {
+        return clusterer.getPruningStatistics();
+    }
+}
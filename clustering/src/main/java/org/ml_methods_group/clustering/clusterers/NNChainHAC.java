@@ -0,0 +1,283 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.clustering.pruning.CandidatePairs;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.PruningStatistics;
+import org.ml_methods_group.common.Clusterer;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.Dendrogram;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.parallel.ParallelContext;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class NNChainHAC<T> implements Clusterer<T> {
+
+    private static final int INITIAL_ROW_CAPACITY = 16;
+
+    private final double distanceLimit;
+    private final int minClustersCount;
+    private final DistanceFunction<T> metric;
+    private final PairsPruner<T> pruner;
+
+    private int[][] neighbors;
+    private float[][] distances;
+    private int[] rowSizes;
+    private int[] sizes;
+    private boolean[] active;
+    private boolean[] finished;
+
+    private int[] mergeFirst;
+    private int[] mergeSecond;
+    private float[] mergeHeights;
+    private int mergesCount;
+    private float nearestDistance;
+
+    public NNChainHAC(double distanceLimit, int minClustersCount, DistanceFunction<T> metric) {
+        this(distanceLimit, minClustersCount, metric, PairsPruner.exhaustive());
+    }
+
+    public NNChainHAC(double distanceLimit, int minClustersCount, DistanceFunction<T> metric,
+                      PairsPruner<T> pruner) {
+        this.distanceLimit = distanceLimit;
+        this.minClustersCount = minClustersCount;
+        this.metric = metric;
+        this.pruner = pruner;
+    }
+
+    @Override
+    public Clusters<T> buildClusters(List<T> values) {
+        return buildDendrogram(values).cut(distanceLimit, minClustersCount);
+    }
+
+    /**
+     * Records all merges below the distance limit, so clusters for any lower limit
+     * can be cut from the result without running clustering again.
+     */
+    public Dendrogram<T> buildDendrogram(List<T> values) {
+        init(values);
+        runChain();
+        final Dendrogram<T> dendrogram = new Dendrogram<>(values,
+                Arrays.copyOf(mergeFirst, mergesCount),
+                Arrays.copyOf(mergeSecond, mergesCount),
+                Arrays.copyOf(mergeHeights, mergesCount),
+                distanceLimit);
+        release();
+        return dendrogram;
+    }
+
+    public PruningStatistics getPruningStatistics() {
+        return pruner.getStatistics();
+    }
+
+    protected boolean canMerge(int firstSize, int secondSize) {
+        return true;
+    }
+
+    private void init(List<T> values) {
+        final int n = values.size();
+        neighbors = new int[n][];
+        distances = new float[n][];
+        rowSizes = new int[n];
+        sizes = new int[n];
+        active = new boolean[n];
+        finished = new boolean[n];
+        mergeFirst = new int[Math.max(n - 1, 0)];
+        mergeSecond = new int[Math.max(n - 1, 0)];
+        mergeHeights = new float[Math.max(n - 1, 0)];
+        mergesCount = 0;
+        Arrays.fill(sizes, 1);
+        Arrays.fill(active, true);
+        final List<Integer> indexes = IntStream.range(0, n)
+                .boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.shuffle(indexes);
+        final CandidatePairs pairs = pruner.prepare(values, distanceLimit);
+        try (ParallelContext context = new ParallelContext()) {
+            context.runParallel(indexes,
+                    () -> 0L,
+                    (index, accumulator) -> accumulator + findNeighbors(values, pairs, index),
+                    Long::sum);
+        }
+        symmetrizeRows();
+    }
+
+    private int findNeighbors(List<T> values, CandidatePairs pairs, int index) {
+        final T value = values.get(index);
+        final Row row = new Row();
+        pairs.forEachCandidate(index, (candidate, known) -> {
+            final double distance = Double.isNaN(known)
+                    ? metric.distance(value, values.get(candidate), distanceLimit)
+                    : known;
+            if (distance >= distanceLimit) {
+                return false;
+            }
+            row.add(candidate, (float) distance);
+            return true;
+        });
+        neighbors[index] = Arrays.copyOf(row.neighbors, row.size);
+        distances[index] = Arrays.copyOf(row.distances, row.size);
+        return row.size;
+    }
+
+    private static class Row {
+        private int[] neighbors = new int[INITIAL_ROW_CAPACITY];
+        private float[] distances = new float[INITIAL_ROW_CAPACITY];
+        private int size = 0;
+
+        void add(int neighbor, float distance) {
+            if (size == neighbors.length) {
+                neighbors = Arrays.copyOf(neighbors, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            neighbors[size] = neighbor;
+            distances[size] = distance;
+            size++;
+        }
+    }
+
+    private void symmetrizeRows() {
+        final int n = neighbors.length;
+        final int[] lowerSizes = new int[n];
+        final int[] degrees = new int[n];
+        for (int i = 0; i < n; i++) {
+            lowerSizes[i] = neighbors[i].length;
+            degrees[i] += lowerSizes[i];
+            for (int neighbor : neighbors[i]) {
+                degrees[neighbor]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            neighbors[i] = Arrays.copyOf(neighbors[i], degrees[i]);
+            distances[i] = Arrays.copyOf(distances[i], degrees[i]);
+            rowSizes[i] = lowerSizes[i];
+        }
+        // rows stay sorted: lower neighbors come first, upper ones are appended in increasing order
+        for (int i = 0; i < n; i++) {
+            for (int p = 0; p < lowerSizes[i]; p++) {
+                final int neighbor = neighbors[i][p];
+                neighbors[neighbor][rowSizes[neighbor]] = i;
+                distances[neighbor][rowSizes[neighbor]] = distances[i][p];
+                rowSizes[neighbor]++;
+            }
+        }
+    }
+
+    private void runChain() {
+        final int n = neighbors.length;
+        final int[] chain = new int[n];
+        int chainSize = 0;
+        int start = 0;
+        while (start < n || chainSize > 0) {
+            if (chainSize == 0) {
+                if (!active[start] || finished[start]) {
+                    start++;
+                    continue;
+                }
+                chain[chainSize++] = start;
+            }
+            final int current = chain[chainSize - 1];
+            final int previous = chainSize > 1 ? chain[chainSize - 2] : -1;
+            final int nearest = findNearest(current, previous);
+            if (nearest == -1) {
+                // complete linkage never makes an infinite distance finite again
+                finished[current] = true;
+                chainSize--;
+            } else if (nearest == previous) {
+                chainSize -= 2;
+                merge(previous, current, nearestDistance);
+            } else {
+                chain[chainSize++] = nearest;
+            }
+        }
+    }
+
+    private int findNearest(int current, int previous) {
+        final int[] row = neighbors[current];
+        final float[] rowDistances = distances[current];
+        int size = 0;
+        int nearest = -1;
+        nearestDistance = Float.POSITIVE_INFINITY;
+        for (int p = 0; p < rowSizes[current]; p++) {
+            final int neighbor = row[p];
+            final float distance = rowDistances[p];
+            if (!active[neighbor] || finished[neighbor] || distance == Float.POSITIVE_INFINITY
+                    || !canMerge(sizes[current], sizes[neighbor])) {
+                continue;
+            }
+            row[size] = neighbor;
+            rowDistances[size] = distance;
+            size++;
+            if (distance < nearestDistance || distance == nearestDistance && neighbor == previous) {
+                nearest = neighbor;
+                nearestDistance = distance;
+            }
+        }
+        rowSizes[current] = size;
+        return nearest;
+    }
+
+    private void merge(int first, int second, float height) {
+        if (rowSizes[first] > rowSizes[second]) {
+            merge(second, first, height);
+            return;
+        }
+        mergeFirst[mergesCount] = first;
+        mergeSecond[mergesCount] = second;
+        mergeHeights[mergesCount] = height;
+        mergesCount++;
+        active[second] = false;
+        sizes[first] += sizes[second];
+
+        final int[] firstRow = neighbors[first];
+        final float[] firstDistances = distances[first];
+        final int[] secondRow = neighbors[second];
+        final float[] secondDistances = distances[second];
+        final int secondSize = rowSizes[second];
+        int size = 0;
+        for (int p = 0, q = 0; p < rowSizes[first]; p++) {
+            final int neighbor = firstRow[p];
+            if (!active[neighbor] || firstDistances[p] == Float.POSITIVE_INFINITY) {
+                continue;
+            }
+            while (q < secondSize && secondRow[q] < neighbor) {
+                q++;
+            }
+            final int position = indexOf(neighbor, first);
+            if (q < secondSize && secondRow[q] == neighbor && secondDistances[q] != Float.POSITIVE_INFINITY) {
+                final float distance = Math.max(firstDistances[p], secondDistances[q]);
+                firstRow[size] = neighbor;
+                firstDistances[size] = distance;
+                size++;
+                if (position != -1) {
+                    distances[neighbor][position] = distance;
+                }
+            } else if (position != -1) {
+                distances[neighbor][position] = Float.POSITIVE_INFINITY;
+            }
+        }
+        rowSizes[first] = size;
+        rowSizes[second] = 0;
+        neighbors[second] = null;
+        distances[second] = null;
+    }
+
+    private int indexOf(int row, int neighbor) {
+        final int position = Arrays.binarySearch(neighbors[row], 0, rowSizes[row], neighbor);
+        return position < 0 ? -1 : position;
+    }
+
+    private void release() {
+        neighbors = null;
+        distances = null;
+        rowSizes = null;
+        sizes = null;
+        active = null;
+        finished = null;
+        mergeFirst = null;
+        mergeSecond = null;
+        mergeHeights = null;
+    }
+}
@@ -0,0 +1,74 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input of {@link ShardWorker}: features of one shard and the way to compare them.
+ * Metric and features are transferred by java serialization.
+ */
+class ShardTask<F> implements Serializable {
+    final double distanceLimit;
+    final DistanceFunction<F> metric;
+    final ArrayList<F> features;
+
+    ShardTask(double distanceLimit, DistanceFunction<F> metric, List<F> features) {
+        this.distanceLimit = distanceLimit;
+        this.metric = metric;
+        this.features = new ArrayList<>(features);
+    }
+
+    void store(Path path) throws IOException {
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path)))) {
+            output.writeObject(this);
+        }
+    }
+
+    static ShardTask<?> load(Path path) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return (ShardTask<?>) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to read shard task: " + path, e);
+        }
+    }
+
+    /**
+     * Clusters are stored as indexes of shard values, medoid of every cluster goes first.
+     */
+    static void storeResult(List<int[]> clusters, Path path) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".partial");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary)))) {
+            output.writeInt(clusters.size());
+            for (int[] cluster : clusters) {
+                output.writeInt(cluster.length);
+                for (int index : cluster) {
+                    output.writeInt(index);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static List<int[]> loadResult(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            final int count = input.readInt();
+            final List<int[]> clusters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int[] cluster = new int[input.readInt()];
+                for (int j = 0; j < cluster.length; j++) {
+                    cluster[j] = input.readInt();
+                }
+                clusters.add(cluster);
+            }
+            return clusters;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.CommonUtils;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Entry point of worker processes launched by {@link ShardedClusterer}.
+ * Usage: {@code ShardWorker <task file> <result file>}
+ */
+public class ShardWorker {
+
+    private static final int MEDOID_SAMPLE_SIZE = 32;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: ShardWorker <task file> <result file>");
+            System.exit(2);
+        }
+        final Path taskPath = Paths.get(args[0]);
+        final Path resultPath = Paths.get(args[1]);
+        ShardTask.storeResult(run(ShardTask.load(taskPath)), resultPath);
+    }
+
+    private static <F> List<int[]> run(ShardTask<F> task) {
+        final DistanceFunction<Integer> metric = CommonUtils.metricFor(task.metric, task.features::get);
+        final List<Integer> indexes = IntStream.range(0, task.features.size())
+                .boxed()
+                .collect(Collectors.toList());
+        final Clusters<Integer> clusters = new NNChainHAC<>(task.distanceLimit, 1, metric)
+                .buildClusters(indexes);
+        final List<int[]> result = new ArrayList<>();
+        for (Cluster<Integer> cluster : clusters.getClusters()) {
+            final int[] members = cluster.stream().mapToInt(Integer::intValue).toArray();
+            final int medoid = medoid(members, metric);
+            members[medoid] = members[0];
+            members[0] = cluster.getElements().get(medoid);
+            result.add(members);
+        }
+        return result;
+    }
+
+    static int medoid(int[] members, DistanceFunction<Integer> metric) {
+        if (members.length <= 2) {
+            return 0;
+        }
+        final Random random = new Random(members.length);
+        final int[] sample = members.length <= MEDOID_SAMPLE_SIZE ? members
+                : random.ints(MEDOID_SAMPLE_SIZE, 0, members.length).map(i -> members[i]).toArray();
+        int best = 0;
+        double bestSum = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < members.length; i++) {
+            double sum = 0;
+            for (int j = 0; j < sample.length && sum < bestSum; j++) {
+                sum += metric.distance(members[i], sample[j], bestSum - sum);
+            }
+            if (sum < bestSum) {
+                best = i;
+                bestSum = sum;
+            }
+        }
+        return best;
+    }
+}
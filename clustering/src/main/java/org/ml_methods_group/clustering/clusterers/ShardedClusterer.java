@@ -0,0 +1,192 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.ml_methods_group.common.*;
+import org.ml_methods_group.common.parallel.ParallelContext;
+import org.ml_methods_group.common.parallel.ParallelUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Splits values into shards, clusters every shard in a separate JVM ({@link ShardWorker}) and merges
+ * shard clusters, whose medoids are closer than the distance limit. Coordination goes through files
+ * in the work directory, so features and metric have to be serializable. Clusters split between
+ * shards can be joined only by medoids, so partitioning should keep similar values together.
+ */
+public class ShardedClusterer<V, F> implements Clusterer<V> {
+
+    private final FeaturesExtractor<V, F> extractor;
+    private final DistanceFunction<F> metric;
+    private final double distanceLimit;
+    private final Partitioner<V, F> partitioner;
+    private final int workers;
+    private final Path workDirectory;
+    private final List<String> jvmOptions;
+
+    public ShardedClusterer(FeaturesExtractor<V, F> extractor, DistanceFunction<F> metric, double distanceLimit,
+                            Partitioner<V, F> partitioner, int workers, Path workDirectory,
+                            List<String> jvmOptions) {
+        this.extractor = extractor;
+        this.metric = metric;
+        this.distanceLimit = distanceLimit;
+        this.partitioner = partitioner;
+        this.workers = workers;
+        this.workDirectory = workDirectory;
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+    }
+
+    public ShardedClusterer(FeaturesExtractor<V, F> extractor, DistanceFunction<F> metric, double distanceLimit,
+                            Partitioner<V, F> partitioner, int workers, Path workDirectory) {
+        this(extractor, metric, distanceLimit, partitioner, workers, workDirectory, Collections.emptyList());
+    }
+
+    @Override
+    public Clusters<V> buildClusters(List<V> values) {
+        final List<Wrapper<F, V>> wrappers = extractFeatures(values);
+        final Map<Integer, List<Wrapper<F, V>>> shards = wrappers.stream()
+                .collect(Collectors.groupingBy(wrapper -> partitioner.shardOf(wrapper.getMeta(),
+                        wrapper.getFeatures()), TreeMap::new, Collectors.toList()));
+        final List<List<Wrapper<F, V>>> shardClusters;
+        try {
+            Files.createDirectories(workDirectory);
+            shardClusters = clusterShards(new ArrayList<>(shards.entrySet()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return mergeByMedoids(shardClusters);
+    }
+
+    private List<Wrapper<F, V>> extractFeatures(List<V> values) {
+        final Function<V, Wrapper<F, V>> processor = Wrapper.wrap(extractor::process);
+        try (ParallelContext context = new ParallelContext()) {
+            return context.runParallelWithConsumer(
+                    values,
+                    ParallelUtils::defaultListImplementation,
+                    (x, accumulator) -> accumulator.add(processor.apply(x)),
+                    ParallelUtils::combineLists);
+        }
+    }
+
+    /**
+     * Returns clusters of all shards, the first element of every cluster is its medoid.
+     */
+    private List<List<Wrapper<F, V>>> clusterShards(List<Map.Entry<Integer, List<Wrapper<F, V>>>> shards)
+            throws IOException {
+        final ExecutorService service = Executors.newFixedThreadPool(Math.max(1, workers), task -> {
+            final Thread thread = new Thread(task, "shard-worker-launcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<List<int[]>>> futures = new ArrayList<>();
+            for (Map.Entry<Integer, List<Wrapper<F, V>>> shard : shards) {
+                final List<F> features = shard.getValue().stream()
+                        .map(Wrapper::getFeatures)
+                        .collect(Collectors.toList());
+                final Path task = workDirectory.resolve("shard_" + shard.getKey() + ".task");
+                new ShardTask<>(distanceLimit, metric, features).store(task);
+                futures.add(service.submit(() -> runWorker(shard.getKey(), task)));
+            }
+            final List<List<Wrapper<F, V>>> clusters = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                final List<Wrapper<F, V>> values = shards.get(i).getValue();
+                for (int[] cluster : futures.get(i).get()) {
+                    clusters.add(Arrays.stream(cluster)
+                            .mapToObj(values::get)
+                            .collect(Collectors.toList()));
+                }
+            }
+            return clusters;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shard workers", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Shard worker failed", e.getCause());
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    private List<int[]> runWorker(int shard, Path task) throws IOException, InterruptedException {
+        final Path result = workDirectory.resolve("shard_" + shard + ".result");
+        final Path log = workDirectory.resolve("shard_" + shard + ".log");
+        Files.deleteIfExists(result);
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(task.toString());
+        command.add(result.toString());
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            final int code = process.waitFor();
+            if (code != 0 || !Files.exists(result)) {
+                throw new IOException("Worker for shard " + shard + " exited with code " + code + ", see " + log);
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+        final List<int[]> clusters = ShardTask.loadResult(result);
+        Files.deleteIfExists(task);
+        Files.deleteIfExists(result);
+        return clusters;
+    }
+
+    private Clusters<V> mergeByMedoids(List<List<Wrapper<F, V>>> shardClusters) {
+        final List<Wrapper<F, Integer>> medoids = new ArrayList<>(shardClusters.size());
+        for (int i = 0; i < shardClusters.size(); i++) {
+            medoids.add(new Wrapper<>(shardClusters.get(i).get(0).getFeatures(), i));
+        }
+        final Clusters<Wrapper<F, Integer>> groups = new NNChainHAC<>(distanceLimit, 1,
+                CommonUtils.metricFor(metric, Wrapper<F, Integer>::getFeatures))
+                .buildClusters(medoids);
+        final List<Cluster<V>> clusters = new ArrayList<>();
+        for (Cluster<Wrapper<F, Integer>> group : groups.getClusters()) {
+            final List<V> elements = new ArrayList<>();
+            for (Wrapper<F, Integer> medoid : group) {
+                shardClusters.get(medoid.getMeta()).forEach(wrapper -> elements.add(wrapper.getMeta()));
+            }
+            clusters.add(new Cluster<>(elements));
+        }
+        return new Clusters<>(clusters);
+    }
+
+    @FunctionalInterface
+    public interface Partitioner<V, F> {
+        int shardOf(V value, F features);
+
+        static <V, F> Partitioner<V, F> byKey(ToIntFunction<V> key) {
+            return (value, features) -> key.applyAsInt(value);
+        }
+
+        /**
+         * Coarse locality sensitive partitioning: values are split by the minimal hash of their tokens,
+         * so values with a big share of common tokens are likely to be in the same shard.
+         */
+        static <V, F> Partitioner<V, F> byMinHash(Function<F, int[]> tokens, int shards) {
+            return (value, features) -> {
+                int min = Integer.MAX_VALUE;
+                for (int token : tokens.apply(features)) {
+                    min = Math.min(min, token * 0x9E3779B9);
+                }
+                return Math.floorMod(min, shards);
+            };
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.ml_methods_group.clustering.pruning;
+
+@FunctionalInterface
+public interface CandidatePairs {
+    /**
+     * Passes every not pruned index less than {@code index} to the consumer in increasing order.
+     */
+    void forEachCandidate(int index, CandidateConsumer consumer);
+
+    @FunctionalInterface
+    interface CandidateConsumer {
+        /**
+         * Computes exact distance, unless the candidates index has already done it, and returns {@code true}
+         * if the pair is closer than the limit.
+         *
+         * @param distance exact distance found by the candidates index or {@link Double#NaN} if it's unknown
+         */
+        boolean accept(int candidate, double distance);
+    }
+}
@@ -0,0 +1,72 @@
+package org.ml_methods_group.clustering.pruning;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public interface CandidatesIndex<T> {
+
+    String getName();
+
+    /**
+     * Returns {@code null} if the index can't exclude any pair for this distance limit.
+     */
+    Candidates prepare(List<T> values, double distanceLimit);
+
+    default <V> CandidatesIndex<V> extend(Function<V, T> mapper) {
+        final CandidatesIndex<T> index = this;
+        return new CandidatesIndex<>() {
+            @Override
+            public String getName() {
+                return index.getName();
+            }
+
+            @Override
+            public Candidates prepare(List<V> values, double distanceLimit) {
+                return index.prepare(values.stream().map(mapper).collect(Collectors.toList()), distanceLimit);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Candidates {
+        /**
+         * Returns sorted indexes less than {@code index}. Exact indexes guarantee that every value closer
+         * than the distance limit to the value with given index is among them, approximate ones don't.
+         */
+        int[] lowerCandidates(int index);
+    }
+
+    /**
+     * Candidates of an index, which computes exact distances of the clustering metric on the way.
+     */
+    interface MeasuredCandidates extends Candidates {
+        /**
+         * Returns the same candidates as {@link #lowerCandidates(int)} with distances to them.
+         */
+        Neighbors lowerNeighbors(int index);
+
+        @Override
+        default int[] lowerCandidates(int index) {
+            return lowerNeighbors(index).getIndexes();
+        }
+    }
+
+    class Neighbors {
+        private final int[] indexes;
+        private final double[] distances;
+
+        public Neighbors(int[] indexes, double[] distances) {
+            this.indexes = indexes;
+            this.distances = distances;
+        }
+
+        public int[] getIndexes() {
+            return indexes;
+        }
+
+        public double[] getDistances() {
+            return distances;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.ml_methods_group.clustering.pruning;
+
+import org.ml_methods_group.common.extractors.HashExtractor;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Approximate candidates index for distances, which are close to Jaccard distance of token sets.
+ * Every value gets MinHash signature of {@code bands * rows} hashes, values with an equal band
+ * are candidates. Pair with Jaccard similarity {@code s} is found with probability
+ * {@code 1 - (1 - s^rows)^bands}, so unlike other indexes it may lose close pairs: recall has to be
+ * checked against the exhaustive clustering.
+ */
+public class MinHashIndex implements CandidatesIndex<int[]> {
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    public MinHashIndex(int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Bands and rows count have to be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        final Random random = new Random(seed);
+        this.seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong() | 1;
+        }
+    }
+
+    public MinHashIndex(int bands, int rows) {
+        this(bands, rows, 239);
+    }
+
+    /**
+     * Tokens of a list are hashes of its elements by every hasher, as used by bag of words extractors.
+     */
+    public static <T> Function<List<T>, int[]> tokens(List<HashExtractor<T>> hashers) {
+        return values -> values.stream()
+                .flatMap(value -> hashers.stream().map(hasher -> hasher.process(value)))
+                .mapToInt(String::hashCode)
+                .distinct()
+                .toArray();
+    }
+
+    @Override
+    public String getName() {
+        return "minhash";
+    }
+
+    /**
+     * Values with equal signatures (identical submissions, in particular) are joined into one group before
+     * bucketing, so a bucket holds every signature once and is scanned once per value instead of once per band.
+     * MinHash of an empty set is undefined, so empty sets form a group of their own and are in no bucket.
+     */
+    @Override
+    public Candidates prepare(List<int[]> values, double distanceLimit) {
+        final int n = values.size();
+        final Map<Signature, Integer> groupBySignature = new HashMap<>();
+        final List<long[]> groupKeys = new ArrayList<>();
+        // first element of array is size of the group
+        final List<int[]> groupMembers = new ArrayList<>();
+        final int[] groupOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            final int[] tokens = values.get(i);
+            final long[] keys = tokens.length == 0 ? null : bandKeys(tokens);
+            final int group = groupBySignature.computeIfAbsent(new Signature(keys), signature -> {
+                groupKeys.add(keys);
+                groupMembers.add(new int[4]);
+                return groupMembers.size() - 1;
+            });
+            groupMembers.set(group, append(groupMembers.get(group), i));
+            groupOf[i] = group;
+        }
+        final List<Map<Long, int[]>> buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            final Map<Long, int[]> bucketsOfBand = new HashMap<>();
+            for (int group = 0; group < groupKeys.size(); group++) {
+                final long[] keys = groupKeys.get(group);
+                if (keys != null) {
+                    final int[] bucket = bucketsOfBand.getOrDefault(keys[band], new int[4]);
+                    bucketsOfBand.put(keys[band], append(bucket, group));
+                }
+            }
+            buckets.add(bucketsOfBand);
+        }
+        final int groupsCount = groupKeys.size();
+        // last element is number of the current call, groups visited during it are marked with the number
+        final ThreadLocal<int[]> marks = ThreadLocal.withInitial(() -> new int[groupsCount + 1]);
+        return index -> {
+            final int[] marked = marks.get();
+            final int call = ++marked[groupsCount];
+            final int own = groupOf[index];
+            marked[own] = call;
+            int[] result = lowerMembers(groupMembers.get(own), index, new int[17]);
+            final long[] keys = groupKeys.get(own);
+            for (int band = 0; keys != null && band < bands; band++) {
+                final int[] bucket = buckets.get(band).get(keys[band]);
+                for (int p = 1; p <= bucket[0]; p++) {
+                    final int group = bucket[p];
+                    if (marked[group] != call) {
+                        marked[group] = call;
+                        result = lowerMembers(groupMembers.get(group), index, result);
+                    }
+                }
+            }
+            result = Arrays.copyOfRange(result, 1, result[0] + 1);
+            Arrays.sort(result);
+            return result;
+        };
+    }
+
+    /**
+     * Appends members less than {@code index} to {@code result}, members were added in increasing order,
+     * so lower ones form a prefix.
+     */
+    private static int[] lowerMembers(int[] members, int index, int[] result) {
+        for (int p = 1; p <= members[0] && members[p] < index; p++) {
+            result = append(result, members[p]);
+        }
+        return result;
+    }
+
+    // first element of array is count of values in it
+    private static int[] append(int[] array, int value) {
+        if (array[0] + 1 == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[++array[0]] = value;
+        return array;
+    }
+
+    private long[] bandKeys(int[] tokens) {
+        final long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rows; row++) {
+                final long seed = seeds[band * rows + row];
+                long min = Long.MAX_VALUE;
+                for (int token : tokens) {
+                    min = Math.min(min, mix(token * seed));
+                }
+                key = key * 0x9E3779B97F4A7C15L + min;
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static class Signature {
+        private final long[] keys;
+        private final int hash;
+
+        private Signature(long[] keys) {
+            this.keys = keys;
+            this.hash = Arrays.hashCode(keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Signature && Arrays.equals(keys, ((Signature) obj).keys);
+        }
+    }
+}
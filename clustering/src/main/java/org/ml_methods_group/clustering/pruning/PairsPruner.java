@@ -0,0 +1,115 @@
+package org.ml_methods_group.clustering.pruning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Generates pairs for the initialization of hierarchical clustering: pairs are taken from candidates
+ * index (if any) and then filtered by cheap lower bounds in order, only the remaining ones reach
+ * the exact metric.
+ */
+public class PairsPruner<T> {
+
+    private final CandidatesIndex<T> index;
+    private final List<PruningStage<T>> stages;
+    private final LongAdder pairs = new LongAdder();
+    private final LongAdder indexPruned = new LongAdder();
+    private final LongAdder[] stagePruned;
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+
+    public PairsPruner(CandidatesIndex<T> index, List<PruningStage<T>> stages) {
+        this.index = index;
+        this.stages = new ArrayList<>(stages);
+        this.stagePruned = new LongAdder[stages.size()];
+        for (int i = 0; i < stagePruned.length; i++) {
+            stagePruned[i] = new LongAdder();
+        }
+    }
+
+    public PairsPruner(List<PruningStage<T>> stages) {
+        this(null, stages);
+    }
+
+    public PairsPruner(CandidatesIndex<T> index) {
+        this(index, Collections.emptyList());
+    }
+
+    public static <T> PairsPruner<T> exhaustive() {
+        return new PairsPruner<>(null, Collections.emptyList());
+    }
+
+    public CandidatePairs prepare(List<T> values, double distanceLimit) {
+        final CandidatesIndex.Candidates candidates = index == null ? null : index.prepare(values, distanceLimit);
+        final PruningStage.PairFilter[] filters = stages.stream()
+                .map(stage -> stage.prepare(values, distanceLimit))
+                .toArray(PruningStage.PairFilter[]::new);
+        return (row, consumer) -> forEachCandidate(row, consumer, candidates, filters);
+    }
+
+    private void forEachCandidate(int row, CandidatePairs.CandidateConsumer consumer,
+                                  CandidatesIndex.Candidates candidates, PruningStage.PairFilter[] filters) {
+        final int[] lower;
+        final double[] distances;
+        if (candidates instanceof CandidatesIndex.MeasuredCandidates) {
+            final CandidatesIndex.Neighbors neighbors = ((CandidatesIndex.MeasuredCandidates) candidates)
+                    .lowerNeighbors(row);
+            lower = neighbors.getIndexes();
+            distances = neighbors.getDistances();
+        } else {
+            lower = candidates == null ? null : candidates.lowerCandidates(row);
+            distances = null;
+        }
+        final int count = lower == null ? row : lower.length;
+        final long[] pruned = new long[filters.length];
+        long rowComputed = 0;
+        long rowAccepted = 0;
+        for (int p = 0; p < count; p++) {
+            final int candidate = lower == null ? p : lower[p];
+            int stage = 0;
+            // lower bounds are useless, if the exact distance is known already
+            while (distances == null && stage < filters.length && !filters[stage].prunes(row, candidate)) {
+                stage++;
+            }
+            if (distances == null && stage < filters.length) {
+                pruned[stage]++;
+                continue;
+            }
+            rowComputed++;
+            if (consumer.accept(candidate, distances == null ? Double.NaN : distances[p])) {
+                rowAccepted++;
+            }
+        }
+        pairs.add(row);
+        indexPruned.add(row - count);
+        for (int i = 0; i < pruned.length; i++) {
+            stagePruned[i].add(pruned[i]);
+        }
+        computed.add(rowComputed);
+        accepted.add(rowAccepted);
+    }
+
+    public <V> PairsPruner<V> extend(Function<V, T> mapper) {
+        return new PairsPruner<>(index == null ? null : index.extend(mapper),
+                stages.stream()
+                        .map(stage -> stage.extend(mapper))
+                        .collect(Collectors.toList()));
+    }
+
+    public PruningStatistics getStatistics() {
+        final Map<String, Long> pruned = new LinkedHashMap<>();
+        if (index != null) {
+            pruned.put(index.getName(), indexPruned.sum());
+        }
+        for (int i = 0; i < stagePruned.length; i++) {
+            pruned.merge(stages.get(i).getName(), stagePruned[i].sum(), Long::sum);
+        }
+        return new PruningStatistics(pairs.sum(), pruned, computed.sum(), accepted.sum());
+    }
+}
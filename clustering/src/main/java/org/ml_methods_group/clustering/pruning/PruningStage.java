@@ -0,0 +1,36 @@
+package org.ml_methods_group.clustering.pruning;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public interface PruningStage<T> {
+
+    String getName();
+
+    PairFilter prepare(List<T> values, double distanceLimit);
+
+    default <V> PruningStage<V> extend(Function<V, T> mapper) {
+        final PruningStage<T> stage = this;
+        return new PruningStage<>() {
+            @Override
+            public String getName() {
+                return stage.getName();
+            }
+
+            @Override
+            public PairFilter prepare(List<V> values, double distanceLimit) {
+                return stage.prepare(values.stream().map(mapper).collect(Collectors.toList()), distanceLimit);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface PairFilter {
+        /**
+         * Returns {@code true} only if distance between values with given indexes
+         * is guaranteed to be not less than the distance limit.
+         */
+        boolean prunes(int first, int second);
+    }
+}
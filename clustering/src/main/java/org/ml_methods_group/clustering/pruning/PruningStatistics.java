@@ -0,0 +1,48 @@
+package org.ml_methods_group.clustering.pruning;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class PruningStatistics {
+    private final long pairs;
+    private final Map<String, Long> pruned;
+    private final long computed;
+    private final long accepted;
+
+    public PruningStatistics(long pairs, Map<String, Long> pruned, long computed, long accepted) {
+        this.pairs = pairs;
+        this.pruned = Collections.unmodifiableMap(pruned);
+        this.computed = computed;
+        this.accepted = accepted;
+    }
+
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Pairs excluded by every stage in order of application, each pair is counted by the first stage only.
+     */
+    public Map<String, Long> getPruned() {
+        return pruned;
+    }
+
+    public long getComputed() {
+        return computed;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    @Override
+    public String toString() {
+        return "pairs=" + pairs + ", "
+                + pruned.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(", "))
+                + (pruned.isEmpty() ? "" : ", ")
+                + "computed=" + computed + ", accepted=" + accepted;
+    }
+}
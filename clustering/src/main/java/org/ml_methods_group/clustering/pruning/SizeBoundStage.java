@@ -0,0 +1,52 @@
+package org.ml_methods_group.clustering.pruning;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public class SizeBoundStage<T> implements PruningStage<T> {
+
+    private final String name;
+    private final ToIntFunction<T> size;
+    private final SizeBound bound;
+
+    public SizeBoundStage(String name, ToIntFunction<T> size, SizeBound bound) {
+        this.name = name;
+        this.size = size;
+        this.bound = bound;
+    }
+
+    /**
+     * Jaccard distance of multisets: intersection can't be greater than the smaller one.
+     * Also holds for fuzzy Jaccard if similarity of elements doesn't exceed one.
+     */
+    public static <T> SizeBoundStage<T> jaccard(ToIntFunction<T> size) {
+        return new SizeBoundStage<>("size", size,
+                (first, second) -> first == second ? 0 : 1 - (double) Math.min(first, second)
+                        / Math.max(first, second));
+    }
+
+    /**
+     * Edit based distances: every node of the bigger tree without a pair has to be inserted or deleted.
+     */
+    public static <T> SizeBoundStage<T> difference(ToIntFunction<T> size) {
+        return new SizeBoundStage<>("size", size, (first, second) -> Math.abs(first - second));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public PairFilter prepare(List<T> values, double distanceLimit) {
+        final int[] sizes = values.stream()
+                .mapToInt(size)
+                .toArray();
+        return (first, second) -> bound.lowerBound(sizes[first], sizes[second]) >= distanceLimit;
+    }
+
+    @FunctionalInterface
+    public interface SizeBound {
+        double lowerBound(int firstSize, int secondSize);
+    }
+}
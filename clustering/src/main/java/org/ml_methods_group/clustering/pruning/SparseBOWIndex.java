@@ -0,0 +1,93 @@
+package org.ml_methods_group.clustering.pruning;
+
+import org.ml_methods_group.common.extractors.SparseBOWExtractor;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index for {@link SparseBOWExtractor#cosineDistance(SparseBOWVector, SparseBOWVector)}:
+ * vectors without common words are at distance one, so only pairs found in the same posting list
+ * are candidates. Scalar products are accumulated from the posting lists, which gives exact
+ * distances without merging of the vectors, they are passed to the clustering instead of the metric calls.
+ */
+public class SparseBOWIndex implements CandidatesIndex<SparseBOWVector> {
+
+    @Override
+    public String getName() {
+        return "index";
+    }
+
+    @Override
+    public MeasuredCandidates prepare(List<SparseBOWVector> values, double distanceLimit) {
+        if (distanceLimit > 1) {
+            return null;
+        }
+        int words = 0;
+        for (SparseBOWVector vector : values) {
+            for (int word : vector.getIndices()) {
+                words = Math.max(words, word + 1);
+            }
+        }
+        final int[] starts = new int[words + 1];
+        for (SparseBOWVector vector : values) {
+            for (int word : vector.getIndices()) {
+                starts[word + 1]++;
+            }
+        }
+        for (int i = 0; i < words; i++) {
+            starts[i + 1] += starts[i];
+        }
+        final int[] positions = Arrays.copyOf(starts, words);
+        final int[] owners = new int[starts[words]];
+        final int[] counters = new int[starts[words]];
+        final double[] norms = new double[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            final SparseBOWVector vector = values.get(i);
+            norms[i] = vector.getNorm();
+            for (int p = 0; p < vector.getIndices().size(); p++) {
+                final int position = positions[vector.getIndices().get(p)]++;
+                owners[position] = i;
+                counters[position] = vector.getCounters().get(p);
+            }
+        }
+        final ThreadLocal<int[]> products = ThreadLocal.withInitial(() -> new int[values.size()]);
+        return index -> {
+            final SparseBOWVector vector = values.get(index);
+            final int[] accumulator = products.get();
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (int p = 0; p < vector.getIndices().size(); p++) {
+                final int word = vector.getIndices().get(p);
+                final int counter = vector.getCounters().get(p);
+                // posting lists are sorted by owner, so lower vectors form a prefix
+                for (int position = starts[word]; position < starts[word + 1] && owners[position] < index;
+                     position++) {
+                    final int owner = owners[position];
+                    if (accumulator[owner] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = owner;
+                    }
+                    accumulator[owner] += counter * counters[position];
+                }
+            }
+            Arrays.sort(touched, 0, touchedCount);
+            final double[] distances = new double[touchedCount];
+            int size = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                final int owner = touched[i];
+                final double distance = SparseBOWExtractor.cosineDistance(accumulator[owner],
+                        norms[index], norms[owner]);
+                accumulator[owner] = 0;
+                if (distance < distanceLimit) {
+                    touched[size] = owner;
+                    distances[size++] = distance;
+                }
+            }
+            return new Neighbors(Arrays.copyOf(touched, size), Arrays.copyOf(distances, size));
+        };
+    }
+}
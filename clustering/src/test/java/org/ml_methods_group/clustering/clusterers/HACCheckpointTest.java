@@ -0,0 +1,185 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HACCheckpointTest {
+
+    private static final DistanceFunction<double[]> EUCLIDEAN = (first, second) ->
+            Math.hypot(first[0] - second[0], first[1] - second[1]);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<double[]> randomPoints(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new double[]{random.nextDouble() * 10, random.nextDouble() * 10, i});
+        }
+        return points;
+    }
+
+    private static int key(double[] point) {
+        return (int) point[2];
+    }
+
+    private static Set<Set<Integer>> asPartition(Clusters<double[]> clusters) {
+        final Set<Set<Integer>> partition = new HashSet<>();
+        for (Cluster<double[]> cluster : clusters.getClusters()) {
+            final Set<Integer> elements = new HashSet<>();
+            cluster.forEach(point -> elements.add(key(point)));
+            partition.add(elements);
+        }
+        return partition;
+    }
+
+    @Test
+    public void testCheckpointsDontChangeResult() {
+        final List<double[]> points = randomPoints(200, 239);
+        final Path path = folder.getRoot().toPath().resolve("hac.checkpoint");
+        final HAC<double[]> clusterer = new HAC<>(1.5, 1, EUCLIDEAN);
+        clusterer.enableCheckpoints(path, 0, HACCheckpointTest::key, "euclidean");
+        assertEquals(asPartition(new HAC<>(1.5, 1, EUCLIDEAN).buildClusters(points)),
+                asPartition(clusterer.buildClusters(points)));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws Exception {
+        final List<double[]> points = randomPoints(200, 566);
+        final Path path = folder.getRoot().toPath().resolve("hac.checkpoint");
+        interruptedClustering(points, path, "euclidean");
+        assertTrue(Files.exists(path));
+        assertTrue(Files.size(mergeLog(path)) > 0);
+
+        final List<double[]> shuffled = new ArrayList<>(points);
+        Collections.shuffle(shuffled, new Random(42));
+        final HAC<double[]> resumed = new ClusterSizeLimitedHAC<>(1.5, Integer.MAX_VALUE, EUCLIDEAN);
+        resumed.enableCheckpoints(path, 0, HACCheckpointTest::key, "euclidean");
+        assertEquals(asPartition(new HAC<>(1.5, 0, EUCLIDEAN).buildClusters(points)),
+                asPartition(resumed.resumeClusters(shuffled)));
+        assertFalse(Files.exists(path));
+    }
+
+    private static Path mergeLog(Path path) {
+        return path.resolveSibling(path.getFileName() + ".merges");
+    }
+
+    private static long mergeLogSize(Path path) {
+        try {
+            return Files.size(mergeLog(path));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void interruptedClustering(List<double[]> points, Path path, String fingerprint) {
+        final HAC<double[]> failing = new ClusterSizeLimitedHAC<>(1.5, Integer.MAX_VALUE, EUCLIDEAN) {
+            private int inserts = 0;
+
+            @Override
+            protected void insertTripleIfNecessary(double distance, Community first, Community second) {
+                // fail only after some merges were appended to the log, give background writes time till then
+                if (++inserts >= 5000 && inserts % 100 == 0) {
+                    if (mergeLogSize(path) > 2000) {
+                        throw new IllegalStateException("Out of memory");
+                    }
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                super.insertTripleIfNecessary(distance, first, second);
+            }
+        };
+        failing.enableCheckpoints(path, 0, HACCheckpointTest::key, fingerprint);
+        try {
+            failing.buildClusters(points);
+            fail();
+        } catch (IllegalStateException expected) {
+            // clustering was interrupted
+        }
+    }
+
+    private Clusters<double[]> resume(List<double[]> points, Path path, String fingerprint) {
+        final HAC<double[]> resumed = new ClusterSizeLimitedHAC<>(1.5, Integer.MAX_VALUE, EUCLIDEAN);
+        resumed.enableCheckpoints(path, 0, HACCheckpointTest::key, fingerprint);
+        return resumed.resumeClusters(points);
+    }
+
+    @Test
+    public void testResumeAfterDamagedMergeLog() throws Exception {
+        final List<double[]> points = randomPoints(200, 17);
+        final Path path = folder.getRoot().toPath().resolve("hac.checkpoint");
+        interruptedClustering(points, path, "euclidean");
+        final Path log = mergeLog(path);
+        final long size = Files.size(log);
+        assertTrue(size > 1000);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            // cut the last record in the middle, as a crash during append would
+            channel.truncate(size - 5);
+            // and damage one merge in the middle
+            channel.write(ByteBuffer.allocate(4).putInt(0, -7), size / 2);
+        }
+        assertEquals(asPartition(new HAC<>(1.5, 0, EUCLIDEAN).buildClusters(points)),
+                asPartition(resume(points, path, "euclidean")));
+        assertFalse(Files.exists(path));
+        assertFalse(Files.exists(log));
+    }
+
+    @Test
+    public void testCheckpointOfOtherMetricIsIgnored() {
+        final List<double[]> points = randomPoints(200, 29);
+        final Path path = folder.getRoot().toPath().resolve("hac.checkpoint");
+        interruptedClustering(points, path, "manhattan");
+        assertTrue(Files.exists(path));
+        assertEquals(asPartition(new HAC<>(1.5, 0, EUCLIDEAN).buildClusters(points)),
+                asPartition(resume(points, path, "euclidean")));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testCorruptedCheckpointIsIgnored() throws Exception {
+        final List<double[]> points = randomPoints(50, 31);
+        final Path path = folder.getRoot().toPath().resolve("hac.checkpoint");
+        final int[] keys = new int[points.size()];
+        final int[] ids = new int[points.size()];
+        final int[][] members = new int[points.size()][];
+        for (int i = 0; i < points.size(); i++) {
+            keys[i] = i;
+            ids[i] = i;
+            members[i] = new int[]{i};
+        }
+        final String fingerprint = "HAC+maxClusterSize=" + Integer.MAX_VALUE + "+euclidean";
+        // pair refers to a community, which doesn't exist
+        new HACCheckpoint(fingerprint, 1, 1.5, 0, keys, points.size(), ids, members,
+                new int[]{0}, new int[]{points.size() + 10}, new double[]{0.5}).store(path);
+        final HAC<double[]> resumed = new ClusterSizeLimitedHAC<>(1.5, Integer.MAX_VALUE, EUCLIDEAN);
+        resumed.enableCheckpoints(path, 0, HACCheckpointTest::key, "euclidean");
+        assertEquals(asPartition(new HAC<>(1.5, 0, EUCLIDEAN).buildClusters(points)),
+                asPartition(resumed.resumeClusters(points)));
+
+        // garbage instead of a checkpoint
+        Files.write(path, new byte[]{1, 2, 3});
+        final HAC<double[]> restarted = new HAC<>(1.5, 1, EUCLIDEAN);
+        restarted.enableCheckpoints(path, 0, HACCheckpointTest::key, "euclidean");
+        assertEquals(asPartition(new HAC<>(1.5, 1, EUCLIDEAN).buildClusters(points)),
+                asPartition(restarted.resumeClusters(points)));
+    }
+}
@@ -0,0 +1,126 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.junit.Test;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.MarkedClusters;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class IncrementalClustererTest {
+
+    private static final DistanceFunction<double[]> EUCLIDEAN = (first, second) ->
+            Math.hypot(first[0] - second[0], first[1] - second[1]);
+
+    private static IncrementalClusterer<double[], double[], String> clusterer() {
+        final Map<Cluster<double[]>, String> marks = new HashMap<>();
+        marks.put(new Cluster<>(Arrays.asList(new double[]{0, 0}, new double[]{0, 1}, new double[]{1, 0})), "left");
+        marks.put(new Cluster<>(Arrays.asList(new double[]{10, 10}, new double[]{10, 11})), "right");
+        final IncrementalClusterer<double[], double[], String> clusterer =
+                new IncrementalClusterer<>(x -> x, EUCLIDEAN, 2);
+        clusterer.addMarkedClusters(new MarkedClusters<>(marks));
+        return clusterer;
+    }
+
+    @Test
+    public void testAttachToClosestCluster() {
+        final IncrementalClusterer<double[], double[], String> clusterer = clusterer();
+        final int left = clusterer.add(new double[]{0.5, 0.5});
+        final int right = clusterer.add(new double[]{11, 10});
+        assertNotEquals(left, right);
+        assertEquals(2, clusterer.getClustersCount());
+        assertEquals(0, clusterer.getMedoid(left)[0], 1e-9);
+        assertEquals(10, clusterer.getMedoid(right)[0], 1e-9);
+        final Map<double[], String> flatMarks = clusterer.getMarkedClusters().getFlatMarks();
+        assertEquals(7, flatMarks.size());
+    }
+
+    @Test
+    public void testOpenNewCluster() {
+        final IncrementalClusterer<double[], double[], String> clusterer = clusterer();
+        final int opened = clusterer.add(new double[]{5, 5});
+        assertEquals(2, opened);
+        assertEquals(opened, clusterer.add(new double[]{5, 6}));
+        assertEquals(3, clusterer.getClusters().getClusters().size());
+        assertEquals(2, clusterer.getMarkedClusters().getMarks().size());
+        clusterer.rebalance();
+        assertEquals(5, clusterer.getMedoid(opened)[1], 1e-9);
+    }
+
+    @Test
+    public void testAddDuringRebalance() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread[] rebalancing = new Thread[1];
+        final DistanceFunction<double[]> metric = (first, second) -> {
+            if (Thread.currentThread() == rebalancing[0]) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return EUCLIDEAN.distance(first, second);
+        };
+        final IncrementalClusterer<double[], double[], String> clusterer =
+                new IncrementalClusterer<>(x -> x, metric, 2);
+        clusterer.addClusters(new Clusters<>(Collections.singletonList(
+                new Cluster<>(Arrays.asList(new double[]{0, 0}, new double[]{0, 1}, new double[]{1, 0})))));
+        clusterer.add(new double[]{0, -0.5});
+        rebalancing[0] = new Thread(clusterer::rebalance);
+        rebalancing[0].start();
+        started.await();
+        assertEquals(0, clusterer.add(new double[]{0.5, 0.5}));
+        assertEquals(5, clusterer.getClusters().getClusters().get(0).size());
+        release.countDown();
+        rebalancing[0].join();
+        assertArrayEquals(new double[]{0, 0}, clusterer.getMedoid(0), 1e-9);
+        assertEquals(0, clusterer.add(new double[]{0.5, 0.5}));
+        assertEquals(0, clusterer.add(new double[]{0.5, 0.5}));
+        clusterer.rebalance();
+        assertArrayEquals(new double[]{0.5, 0.5}, clusterer.getMedoid(0), 1e-9);
+        assertEquals(Math.hypot(0.5, 1), clusterer.getRadius(0), 1e-9);
+    }
+
+    @Test
+    public void testRadiusLimitsAdmission() {
+        final IncrementalClusterer<double[], double[], String> clusterer = clusterer();
+        assertEquals(1, clusterer.getRadius(0), 1e-9);
+        // closer than the threshold to the medoid, but farther than the threshold from (0, 1)
+        final int opened = clusterer.add(new double[]{1.5, -0.5});
+        assertEquals(2, opened);
+        assertEquals(0, clusterer.getRadius(opened), 1e-9);
+        assertEquals(opened, clusterer.add(new double[]{1.5, 0.5}));
+        assertEquals(1, clusterer.getRadius(opened), 1e-9);
+    }
+
+    @Test
+    public void testMedoidClosestToCentroid() {
+        final IncrementalClusterer<int[], int[], String> clusterer = new IncrementalClusterer<>(x -> x,
+                (first, second) -> 0, 1, IncrementalClustererTest::toBagOfWords);
+        clusterer.addClusters(new Clusters<>(Collections.singletonList(new Cluster<>(Arrays.asList(
+                new int[]{1, 0, 0}, new int[]{1, 1, 0}, new int[]{0, 1, 0}, new int[]{0, 0, 1})))));
+        assertArrayEquals(new int[]{1, 1, 0}, clusterer.getMedoid(0));
+    }
+
+    private static SparseBOWVector toBagOfWords(int[] counters) {
+        final SortedMap<Integer, Integer> counterByIndex = new TreeMap<>();
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] != 0) {
+                counterByIndex.put(i, counters[i]);
+            }
+        }
+        return new SparseBOWVector(counterByIndex);
+    }
+}
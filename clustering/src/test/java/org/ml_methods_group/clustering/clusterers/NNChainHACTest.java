@@ -0,0 +1,66 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.junit.Test;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusterer;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class NNChainHACTest {
+
+    private static final DistanceFunction<double[]> EUCLIDEAN = (first, second) ->
+            Math.hypot(first[0] - second[0], first[1] - second[1]);
+
+    private static List<double[]> randomPoints(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new double[]{random.nextDouble() * 10, random.nextDouble() * 10});
+        }
+        return points;
+    }
+
+    private static Set<Set<double[]>> asPartition(Clusters<double[]> clusters) {
+        final Set<Set<double[]>> partition = new HashSet<>();
+        for (Cluster<double[]> cluster : clusters.getClusters()) {
+            final Set<double[]> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+            elements.addAll(cluster.getElements());
+            partition.add(elements);
+        }
+        return partition;
+    }
+
+    private static void assertSamePartition(Clusterer<double[]> expected, Clusterer<double[]> actual,
+                                            List<double[]> points) {
+        final Clusters<double[]> expectedClusters = expected.buildClusters(new ArrayList<>(points));
+        final Clusters<double[]> actualClusters = actual.buildClusters(new ArrayList<>(points));
+        assertEquals(expectedClusters.getClusters().size(), actualClusters.getClusters().size());
+        assertEquals(asPartition(expectedClusters), asPartition(actualClusters));
+    }
+
+    @Test
+    public void testSameClustersAsHAC() {
+        final List<double[]> points = randomPoints(300, 239);
+        assertSamePartition(new HAC<>(1.5, 1, EUCLIDEAN), new NNChainHAC<>(1.5, 1, EUCLIDEAN), points);
+    }
+
+    @Test
+    public void testMinClustersCount() {
+        final List<double[]> points = randomPoints(200, 566);
+        assertSamePartition(new HAC<>(100, 7, EUCLIDEAN), new NNChainHAC<>(100, 7, EUCLIDEAN), points);
+    }
+
+    @Test
+    public void testClusterSizeLimit() {
+        final List<double[]> points = randomPoints(200, 42);
+        assertSamePartition(new ClusterSizeLimitedHAC<>(3, 10, EUCLIDEAN),
+                new ClusterSizeLimitedNNChainHAC<>(3, 10, EUCLIDEAN), points);
+        final Clusters<double[]> clusters = new ClusterSizeLimitedNNChainHAC<>(3, 10, EUCLIDEAN)
+                .buildClusters(points);
+        assertTrue(clusters.getClusters().stream().allMatch(cluster -> cluster.size() <= 10));
+    }
+}
@@ -0,0 +1,41 @@
+package org.ml_methods_group.clustering.clusterers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShardedClustererTest {
+
+    private static final DistanceFunction<double[]> EUCLIDEAN = (first, second) ->
+            Math.hypot(first[0] - second[0], first[1] - second[1]);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testShardClustersAreMergedByMedoids() {
+        final Random random = new Random(239);
+        final double[][] centers = {{0, 0}, {100, 0}, {0, 100}};
+        final List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 90; i++) {
+            final double[] center = centers[i % centers.length];
+            points.add(new double[]{center[0] + random.nextDouble(), center[1] + random.nextDouble(), i});
+        }
+        final ShardedClusterer<double[], double[]> clusterer = new ShardedClusterer<>(x -> x, EUCLIDEAN, 5,
+                ShardedClusterer.Partitioner.byKey(point -> (int) point[2] % 4), 2, folder.getRoot().toPath());
+        final Clusters<double[]> clusters = clusterer.buildClusters(points);
+        assertEquals(3, clusters.getClusters().size());
+        for (Cluster<double[]> cluster : clusters.getClusters()) {
+            assertEquals(30, cluster.size());
+            final double[] first = cluster.getElements().get(0);
+            assertTrue(cluster.stream().allMatch(point -> (int) point[2] % 3 == (int) first[2] % 3));
+        }
+    }
+}
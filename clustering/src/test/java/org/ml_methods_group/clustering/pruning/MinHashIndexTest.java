@@ -0,0 +1,133 @@
+package org.ml_methods_group.clustering.pruning;
+
+import org.junit.Test;
+import org.ml_methods_group.clustering.ClusteringUtils;
+import org.ml_methods_group.clustering.clusterers.LSHClusterer;
+import org.ml_methods_group.clustering.clusterers.NNChainHAC;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.metrics.functions.JaccardDistanceFunction;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class MinHashIndexTest {
+
+    private static List<List<Integer>> randomSets(int groups, int groupSize, long seed) {
+        final Random random = new Random(seed);
+        final List<List<Integer>> sets = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            final List<Integer> base = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                base.add(random.nextInt(100_000));
+            }
+            for (int i = 0; i < groupSize; i++) {
+                final List<Integer> set = new ArrayList<>(base);
+                set.set(random.nextInt(set.size()), random.nextInt(100_000));
+                sets.add(set);
+            }
+        }
+        Collections.shuffle(sets, random);
+        return sets;
+    }
+
+    private static int[] tokens(List<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testCandidatesAreLowerAndSorted() {
+        final List<int[]> values = randomSets(30, 10, 239).stream()
+                .map(MinHashIndexTest::tokens)
+                .collect(Collectors.toList());
+        final CandidatesIndex.Candidates candidates = new MinHashIndex(16, 2).prepare(values, 0.5);
+        for (int i = 0; i < values.size(); i++) {
+            final int[] lower = candidates.lowerCandidates(i);
+            for (int p = 0; p < lower.length; p++) {
+                assertTrue(lower[p] < i);
+                assertTrue(p == 0 || lower[p - 1] < lower[p]);
+            }
+        }
+    }
+
+    @Test
+    public void testRecall() {
+        final List<List<Integer>> sets = randomSets(50, 20, 566);
+        final LSHClusterer<List<Integer>> approximate = new LSHClusterer<>(0.3, 1,
+                new JaccardDistanceFunction<>(), MinHashIndexTest::tokens, 16, 2);
+        final Clusters<List<Integer>> expected = new NNChainHAC<>(0.3, 1, new JaccardDistanceFunction<Integer>())
+                .buildClusters(sets);
+        final Clusters<List<Integer>> actual = approximate.buildClusters(sets);
+        assertTrue(ClusteringUtils.pairsRecall(expected, actual) > 0.99);
+        final PruningStatistics statistics = approximate.getPruningStatistics();
+        assertTrue(statistics.getComputed() * 10 < statistics.getPairs());
+    }
+
+    private static int[] lower(int index) {
+        return IntStream.range(0, index).toArray();
+    }
+
+    @Test
+    public void testIdenticalSetsAreCandidates() {
+        final List<int[]> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new int[]{1, 2, 3, 4, 5});
+        }
+        final CandidatesIndex.Candidates candidates = new MinHashIndex(16, 2).prepare(values, 0.5);
+        for (int i = 0; i < values.size(); i += 97) {
+            assertArrayEquals(lower(i), candidates.lowerCandidates(i));
+        }
+    }
+
+    @Test
+    public void testEmptySets() {
+        final List<int[]> values = Arrays.asList(
+                new int[]{1, 2, 3},
+                new int[0],
+                new int[]{1, 2, 3},
+                new int[0],
+                new int[]{4, 5},
+                new int[0]);
+        final CandidatesIndex.Candidates candidates = new MinHashIndex(16, 2).prepare(values, 0.5);
+        assertArrayEquals(new int[0], candidates.lowerCandidates(1));
+        assertArrayEquals(new int[]{0}, candidates.lowerCandidates(2));
+        assertArrayEquals(new int[]{1}, candidates.lowerCandidates(3));
+        assertArrayEquals(new int[]{1, 3}, candidates.lowerCandidates(5));
+        for (int candidate : candidates.lowerCandidates(4)) {
+            assertTrue(candidate != 1 && candidate != 3);
+        }
+    }
+
+    @Test
+    public void testDuplicatesDontChangeCandidates() {
+        final List<int[]> distinct = randomSets(30, 10, 17).stream()
+                .map(MinHashIndexTest::tokens)
+                .collect(Collectors.toList());
+        final List<int[]> values = new ArrayList<>(distinct);
+        values.addAll(distinct);
+        final MinHashIndex index = new MinHashIndex(16, 2);
+        final CandidatesIndex.Candidates expected = index.prepare(distinct, 0.5);
+        final CandidatesIndex.Candidates actual = index.prepare(values, 0.5);
+        final int n = distinct.size();
+        for (int i = 0; i < n; i++) {
+            assertArrayEquals(expected.lowerCandidates(i), actual.lowerCandidates(i));
+            // copy of a value is a candidate of it and of everything, that the value is a candidate of
+            final Set<Integer> copies = new TreeSet<>();
+            for (int candidate : expected.lowerCandidates(i)) {
+                copies.add(candidate);
+            }
+            for (int j = i; j < n; j++) {
+                if (Arrays.binarySearch(expected.lowerCandidates(j), i) >= 0 || j == i) {
+                    copies.add(j);
+                }
+            }
+            for (int candidate : expected.lowerCandidates(i)) {
+                copies.add(candidate + n);
+            }
+            assertArrayEquals(copies.stream().mapToInt(Integer::intValue).toArray(),
+                    actual.lowerCandidates(i + n));
+        }
+    }
+}
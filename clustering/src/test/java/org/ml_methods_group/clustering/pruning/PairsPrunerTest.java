@@ -0,0 +1,108 @@
+package org.ml_methods_group.clustering.pruning;
+
+import org.junit.Test;
+import org.ml_methods_group.clustering.clusterers.HAC;
+import org.ml_methods_group.clustering.clusterers.NNChainHAC;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.Clusters;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+import org.ml_methods_group.common.metrics.functions.JaccardDistanceFunction;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PairsPrunerTest {
+
+    private static List<SparseBOWVector> randomVectors(int count, int words, long seed) {
+        final Random random = new Random(seed);
+        final List<SparseBOWVector> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final TreeMap<Integer, Integer> counters = new TreeMap<>();
+            final int size = random.nextInt(4);
+            for (int j = 0; j < size; j++) {
+                counters.merge(random.nextInt(words), 1 + random.nextInt(3), Integer::sum);
+            }
+            vectors.add(new SparseBOWVector(counters));
+        }
+        return vectors;
+    }
+
+    private static List<List<String>> randomLists(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<List<String>> lists = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final List<String> list = new ArrayList<>();
+            final int size = random.nextInt(12);
+            for (int j = 0; j < size; j++) {
+                list.add("token" + random.nextInt(6));
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    private static <T> Set<Set<T>> asPartition(Clusters<T> clusters) {
+        final Set<Set<T>> partition = new HashSet<>();
+        for (Cluster<T> cluster : clusters.getClusters()) {
+            final Set<T> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+            elements.addAll(cluster.getElements());
+            partition.add(elements);
+        }
+        return partition;
+    }
+
+    private static void assertConsistent(PruningStatistics statistics, int count) {
+        final long pruned = statistics.getPruned().values().stream().mapToLong(Long::longValue).sum();
+        assertEquals((long) count * (count - 1) / 2, statistics.getPairs());
+        assertEquals(statistics.getPairs(), pruned + statistics.getComputed());
+        assertTrue(statistics.getAccepted() <= statistics.getComputed());
+    }
+
+    @Test
+    public void testSparseBOWIndex() {
+        final List<SparseBOWVector> vectors = randomVectors(400, 40, 239);
+        final PairsPruner<SparseBOWVector> pruner = new PairsPruner<>(new SparseBOWIndex());
+        final HAC<SparseBOWVector> pruned = new HAC<>(0.3, 1, SparseBOWExtractor::cosineDistance, pruner);
+        final HAC<SparseBOWVector> exhaustive = new HAC<>(0.3, 1, SparseBOWExtractor::cosineDistance);
+        assertEquals(asPartition(exhaustive.buildClusters(vectors)), asPartition(pruned.buildClusters(vectors)));
+        final PruningStatistics statistics = pruned.getPruningStatistics();
+        assertConsistent(statistics, vectors.size());
+        assertTrue(statistics.getPruned().get("index") > 0);
+        assertEquals(exhaustive.getPruningStatistics().getAccepted(), statistics.getAccepted());
+    }
+
+    @Test
+    public void testSparseBOWIndexDistances() {
+        final List<SparseBOWVector> vectors = randomVectors(200, 20, 566);
+        final PairsPruner<SparseBOWVector> pruner = new PairsPruner<>(new SparseBOWIndex());
+        final CandidatePairs pairs = pruner.prepare(vectors, 0.3);
+        for (int i = 0; i < vectors.size(); i++) {
+            final int row = i;
+            pairs.forEachCandidate(row, (candidate, distance) -> {
+                assertEquals(SparseBOWExtractor.cosineDistance(vectors.get(row), vectors.get(candidate)),
+                        distance, 0);
+                assertTrue(distance < 0.3);
+                return true;
+            });
+        }
+        final PruningStatistics statistics = pruner.getStatistics();
+        assertConsistent(statistics, vectors.size());
+        assertEquals(statistics.getComputed(), statistics.getAccepted());
+    }
+
+    @Test
+    public void testJaccardSizeBound() {
+        final List<List<String>> lists = randomLists(300, 566);
+        final PairsPruner<List<String>> pruner = new PairsPruner<>(
+                Collections.singletonList(SizeBoundStage.jaccard(List::size)));
+        final NNChainHAC<List<String>> pruned = new NNChainHAC<>(0.4, 1, new JaccardDistanceFunction<>(), pruner);
+        final NNChainHAC<List<String>> exhaustive = new NNChainHAC<>(0.4, 1, new JaccardDistanceFunction<>());
+        assertEquals(asPartition(exhaustive.buildClusters(lists)), asPartition(pruned.buildClusters(lists)));
+        final PruningStatistics statistics = pruned.getPruningStatistics();
+        assertConsistent(statistics, lists.size());
+        assertTrue(statistics.getPruned().get("size") > 0);
+        assertEquals(exhaustive.getPruningStatistics().getAccepted(), statistics.getAccepted());
+    }
+}
@@ -0,0 +1,147 @@
+package org.ml_methods_group.common;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Merge history of agglomerative clustering. Merge {@code i} joins the clusters containing
+ * values {@code first[i]} and {@code second[i]} at distance {@code heights[i]}, merges are ordered by height.
+ * Only merges lower than {@link #getDistanceLimit()} are recorded, so cuts at higher limits aren't complete.
+ */
+public class Dendrogram<V> implements Serializable {
+    private final List<V> values;
+    private final int[] first;
+    private final int[] second;
+    private final float[] heights;
+    private final double distanceLimit;
+
+    public Dendrogram(List<V> values, int[] first, int[] second, float[] heights) {
+        this(values, first, second, heights, Double.POSITIVE_INFINITY);
+    }
+
+    public Dendrogram(List<V> values, int[] first, int[] second, float[] heights, double distanceLimit) {
+        if (first.length != second.length || first.length != heights.length) {
+            throw new IllegalArgumentException("Merge arrays have different lengths");
+        }
+        // merges are sorted by height, then by index, as longs: bits of a float are made
+        // comparable as an int by flipping all bits but the sign of negative values
+        final long[] order = new long[heights.length];
+        for (int i = 0; i < order.length; i++) {
+            final int bits = Float.floatToIntBits(heights[i]);
+            order[i] = ((long) (bits ^ ((bits >> 31) & Integer.MAX_VALUE)) << 32) | i;
+        }
+        Arrays.sort(order);
+        this.values = new ArrayList<>(values);
+        this.first = new int[order.length];
+        this.second = new int[order.length];
+        this.heights = new float[order.length];
+        this.distanceLimit = distanceLimit;
+        for (int i = 0; i < order.length; i++) {
+            final int index = (int) order[i];
+            this.first[i] = first[index];
+            this.second[i] = second[index];
+            this.heights[i] = heights[index];
+        }
+    }
+
+    private Dendrogram(List<V> values, Dendrogram<?> other) {
+        this.values = values;
+        this.first = other.first;
+        this.second = other.second;
+        this.heights = other.heights;
+        this.distanceLimit = other.distanceLimit;
+    }
+
+    public List<V> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    public int getMergesCount() {
+        return heights.length;
+    }
+
+    public int getFirst(int merge) {
+        return first[merge];
+    }
+
+    public int getSecond(int merge) {
+        return second[merge];
+    }
+
+    public float getHeight(int merge) {
+        return heights[merge];
+    }
+
+    /**
+     * Distance limit of the clustering, which recorded this history.
+     */
+    public double getDistanceLimit() {
+        return distanceLimit;
+    }
+
+    public Clusters<V> cut(double distanceLimit) {
+        return cut(distanceLimit, 1);
+    }
+
+    public Clusters<V> cut(int minClustersCount) {
+        return cut(Double.POSITIVE_INFINITY, minClustersCount);
+    }
+
+    /**
+     * Applies merges lower than {@code distanceLimit} while there are more than {@code minClustersCount} clusters.
+     */
+    public Clusters<V> cut(double distanceLimit, int minClustersCount) {
+        final int n = values.size();
+        final int[] parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            parents[i] = i;
+        }
+        int clustersCount = n;
+        for (int i = 0; i < heights.length && heights[i] < distanceLimit && clustersCount > minClustersCount; i++) {
+            final int firstRoot = findRoot(parents, first[i]);
+            final int secondRoot = findRoot(parents, second[i]);
+            if (firstRoot != secondRoot) {
+                parents[secondRoot] = firstRoot;
+                clustersCount--;
+            }
+        }
+        final int[] clusterIndexes = new int[n];
+        Arrays.fill(clusterIndexes, -1);
+        final List<List<V>> groups = new ArrayList<>(clustersCount);
+        for (int i = 0; i < n; i++) {
+            final int root = findRoot(parents, i);
+            if (clusterIndexes[root] == -1) {
+                clusterIndexes[root] = groups.size();
+                groups.add(new ArrayList<>());
+            }
+            groups.get(clusterIndexes[root]).add(values.get(i));
+        }
+        final List<Cluster<V>> clusters = new ArrayList<>(groups.size());
+        for (List<V> group : groups) {
+            clusters.add(new Cluster<>(group));
+        }
+        return new Clusters<>(clusters);
+    }
+
+    public <T> Dendrogram<T> map(Function<? super V, T> mapping) {
+        final List<T> buffer = new ArrayList<>(values.size());
+        for (V value : values) {
+            buffer.add(mapping.apply(value));
+        }
+        return new Dendrogram<>(buffer, this);
+    }
+
+    private static int findRoot(int[] parents, int element) {
+        int root = element;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[element] != root) {
+            final int next = parents[element];
+            parents[element] = root;
+            element = next;
+        }
+        return root;
+    }
+}
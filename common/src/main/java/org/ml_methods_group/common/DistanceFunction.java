@@ -1,5 +1,8 @@
 package org.ml_methods_group.common;
 
+import org.ml_methods_group.common.instrumentation.Metrics;
+import org.ml_methods_group.common.instrumentation.StageMetrics;
+
 import java.io.Serializable;
 
 @FunctionalInterface
@@ -9,4 +12,30 @@ public interface DistanceFunction<V> extends Serializable {
     default double distance(V first, V second, double upperBound) {
         return Math.min(distance(first, second), upperBound);
     }
+
+    /**
+     * Records latency of every computed distance to the stage {@code name} of {@link Metrics}.
+     */
+    default DistanceFunction<V> instrumented(String name) {
+        final DistanceFunction<V> metric = this;
+        return new DistanceFunction<V>() {
+            @Override
+            public double distance(V first, V second) {
+                final StageMetrics stage = Metrics.stage(name);
+                final long start = System.nanoTime();
+                final double result = metric.distance(first, second);
+                stage.record(start);
+                return result;
+            }
+
+            @Override
+            public double distance(V first, V second, double upperBound) {
+                final StageMetrics stage = Metrics.stage(name);
+                final long start = System.nanoTime();
+                final double result = metric.distance(first, second, upperBound);
+                stage.record(start);
+                return result;
+            }
+        };
+    }
 }
@@ -1,5 +1,8 @@
 package org.ml_methods_group.common;
 
+import org.ml_methods_group.common.instrumentation.Metrics;
+import org.ml_methods_group.common.instrumentation.StageMetrics;
+
 import java.io.Serializable;
 
 @FunctionalInterface
@@ -13,4 +16,22 @@ public interface FeaturesExtractor<V, F> extends Serializable {
     default <R> FeaturesExtractor<R, F> extend(FeaturesExtractor<R, V> mapper) {
         return x -> process(mapper.process(x));
     }
+
+    /**
+     * Records latency of every call to the stage {@code name} of {@link Metrics}.
+     */
+    default FeaturesExtractor<V, F> instrumented(String name) {
+        return x -> {
+            final StageMetrics stage = Metrics.stage(name);
+            final long start = System.nanoTime();
+            try {
+                final F result = process(x);
+                stage.record(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                stage.recordFailure(start);
+                throw e;
+            }
+        };
+    }
 }
@@ -1,8 +1,21 @@
 package org.ml_methods_group.common;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface Repository<K, V> extends AutoCloseable {
     Optional<V> loadValue(K key);
     void storeValue(K key, V value);
+
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        final Optional<V> cached = loadValue(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        final V value = loader.apply(key);
+        if (value != null) {
+            storeValue(key, value);
+        }
+        return value;
+    }
 }
@@ -2,23 +2,31 @@ package org.ml_methods_group.common.ast.changes;
 
 import com.github.gumtreediff.actions.ActionGenerator;
 import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.CompositeMatcher;
 import com.github.gumtreediff.matchers.CompositeMatchers.ClassicGumtree;
 import com.github.gumtreediff.matchers.CompositeMatchers.CompleteGumtreeMatcher;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.ast.generation.ASTGenerator;
+import org.ml_methods_group.common.parallel.ParallelContext;
 
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CancellationException;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 public class BasicChangeGenerator implements ChangeGenerator {
+    private static final String[] MATCHER_PROPERTIES = {"gt.bum.smt", "gt.bum.szt", "gt.stm.mh", "gt.cd.ssim",
+            "gt.cd.ml"};
+
     private final ASTGenerator generator;
     private final List<BiFunction<ITree, ITree, Matcher>> factories;
 
@@ -38,8 +46,8 @@ public class BasicChangeGenerator implements ChangeGenerator {
 
     @Override
     public Changes getChanges(Solution before, Solution after) {
-        final ITree beforeTree = generator.buildTree(before);
-        final ITree afterTree = generator.buildTree(after);
+        final ITree beforeTree = generator.buildSharedTree(before);
+        final ITree afterTree = generator.buildSharedTree(after);
         final ChangesGenerationResult result = factories.stream()
                 .map(factory -> generate(beforeTree.deepCopy(), afterTree.deepCopy(), factory))
                 .filter(Optional::isPresent)
@@ -63,13 +71,109 @@ public class BasicChangeGenerator implements ChangeGenerator {
                 .orElseThrow(RuntimeException::new);
     }
 
+    /**
+     * Matchers are run one by one and every next matcher is bounded by the best script found so far.
+     * Script generation is skipped when the lower bound computed from mappings already reaches the bound.
+     * Remaining matchers are skipped when the best script is as short as the difference of tree sizes,
+     * but at least one matcher has to succeed as in {@link #diffSize(ITree, ITree)}.
+     */
+    @Override
+    public int diffSize(ITree origin, ITree target, int upperBound) {
+        final int lowerBound = Math.abs(origin.getSize() - target.getSize());
+        int best = upperBound;
+        boolean succeeded = false;
+        for (BiFunction<ITree, ITree, Matcher> factory : factories) {
+            final OptionalInt size = diffSize(origin.deepCopy(), target.deepCopy(), factory, best);
+            if (size.isPresent()) {
+                succeeded = true;
+                best = Math.min(best, size.getAsInt());
+                if (best <= lowerBound) {
+                    break;
+                }
+            }
+        }
+        if (!succeeded) {
+            throw new RuntimeException();
+        }
+        return best;
+    }
+
+    private OptionalInt diffSize(ITree beforeTree, ITree afterTree, BiFunction<ITree, ITree, Matcher> factory,
+                                 int upperBound) {
+        ParallelContext.checkInterrupted();
+        try {
+            final Matcher matcher = factory.apply(beforeTree, afterTree);
+            match(matcher);
+            final MappingStore mappings = matcher.getMappings();
+            if (minScriptSize(beforeTree, afterTree, mappings) >= upperBound) {
+                return OptionalInt.of(upperBound);
+            }
+            ParallelContext.checkInterrupted();
+            final ActionGenerator generator = new ActionGenerator(beforeTree, afterTree, mappings);
+            return OptionalInt.of(generator.generate().size());
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Runs phases of composite matchers one by one, so that interrupted items stop between them.
+     */
+    private static void match(Matcher matcher) {
+        if (matcher instanceof CompositeMatcher) {
+            for (Matcher phase : ((CompositeMatcher) matcher).matchers()) {
+                ParallelContext.checkInterrupted();
+                phase.match();
+            }
+        } else {
+            matcher.match();
+        }
+        ParallelContext.checkInterrupted();
+    }
+
+    /**
+     * Counts actions which {@link ActionGenerator} can't avoid for given mappings: inserts of unmapped
+     * destination nodes, deletes of unmapped source nodes, updates of labels and moves to another parent.
+     * Only moves inside of the same parent are not counted.
+     */
+    private static int minScriptSize(ITree beforeTree, ITree afterTree, MappingStore mappings) {
+        int size = 0;
+        for (ITree node : beforeTree.getTrees()) {
+            if (!mappings.hasSrc(node)) {
+                size++;
+            }
+        }
+        ParallelContext.checkInterrupted();
+        for (ITree node : afterTree.getTrees()) {
+            final ITree source = mappings.getSrc(node);
+            if (source == null) {
+                size++;
+            } else if (node != afterTree) {
+                if (!source.getLabel().equals(node.getLabel())) {
+                    size++;
+                }
+                final ITree sourceParent = source.getParent();
+                if (sourceParent == null || mappings.getDst(sourceParent) != node.getParent()) {
+                    size++;
+                }
+            }
+        }
+        return size;
+    }
+
     private Optional<ChangesGenerationResult> generate(ITree beforeTree, ITree afterTree,
                                                        BiFunction<ITree, ITree, Matcher> factory) {
+        ParallelContext.checkInterrupted();
         try {
             final Matcher matcher = factory.apply(beforeTree, afterTree);
-            matcher.match();
+            match(matcher);
+            ParallelContext.checkInterrupted();
             final ActionGenerator generator = new ActionGenerator(beforeTree, afterTree, matcher.getMappings());
             return Optional.of(new ChangesGenerationResult(generator.generate(), matcher.getMappings()));
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             return Optional.empty();
         }
@@ -80,6 +184,20 @@ public class BasicChangeGenerator implements ChangeGenerator {
         return generator;
     }
 
+    @Override
+    public String getFingerprint() {
+        final TreeContext context = new TreeContext();
+        final StringBuilder builder = new StringBuilder(ChangeGenerator.super.getFingerprint());
+        for (BiFunction<ITree, ITree, Matcher> factory : factories) {
+            final Matcher matcher = factory.apply(context.createTree(0, "", ""), context.createTree(0, "", ""));
+            builder.append('+').append(matcher.getClass().getName());
+        }
+        for (String property : MATCHER_PROPERTIES) {
+            builder.append('+').append(property).append('=').append(System.getProperty(property, "default"));
+        }
+        return builder.toString();
+    }
+
     private class ChangesGenerationResult {
         private final List<Action> actions;
         private final MappingStore mappings;
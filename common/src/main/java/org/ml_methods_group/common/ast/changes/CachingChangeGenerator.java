@@ -0,0 +1,242 @@
+package org.ml_methods_group.common.ast.changes;
+
+import com.github.gumtreediff.tree.ITree;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.ml_methods_group.common.Repository;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.generation.ASTGenerator;
+import org.ml_methods_group.common.proto.ProtoAtomicChange;
+import org.ml_methods_group.common.proto.ProtoChanges;
+import org.ml_methods_group.common.serialization.EntityToProtoUtils;
+import org.ml_methods_group.common.serialization.ProtoToEntityUtils;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches changes by pair of solution ids. Memory is bounded by the total number of cached code changes,
+ * least recently used entries are evicted first and optionally spilled to a repository.
+ * Spilled entries are keyed by {@link ChangeGenerator#getFingerprint()} of the wrapped generator too,
+ * so a repository can be shared between runs with different configurations.
+ * Solutions without id (-1) are never cached. The spill repository isn't serialized, a deserialized
+ * generator doesn't spill.
+ */
+public class CachingChangeGenerator implements ChangeGenerator {
+    private final ChangeGenerator generator;
+    private final long maxWeight;
+    private final String keyPrefix;
+    private final transient Repository<String, byte[]> spill;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingChangeGenerator(ChangeGenerator generator, long maxWeight) {
+        this(generator, maxWeight, null);
+    }
+
+    public CachingChangeGenerator(ChangeGenerator generator, long maxWeight, Repository<String, byte[]> spill) {
+        this.generator = generator;
+        this.maxWeight = maxWeight;
+        this.keyPrefix = UUID.nameUUIDFromBytes(generator.getFingerprint().getBytes(StandardCharsets.UTF_8)) + ":";
+        this.spill = spill;
+    }
+
+    @Override
+    public Changes getChanges(Solution origin, Solution target) {
+        if (!isCacheable(origin, target)) {
+            return generator.getChanges(origin, target);
+        }
+        final long key = keyOf(origin, target);
+        final Entry cached = lookup(key);
+        if (cached != null && cached.changes != null) {
+            hits.increment();
+            return new Changes(origin, target, cached.changes);
+        }
+        final Optional<List<CodeChange>> spilled = loadSpilled(key);
+        if (spilled.isPresent()) {
+            hits.increment();
+            put(key, new Entry(spilled.get(), spilled.get().size(), true));
+            return new Changes(origin, target, spilled.get());
+        }
+        misses.increment();
+        final Changes changes = generator.getChanges(origin, target);
+        final List<CodeChange> list = Collections.unmodifiableList(new ArrayList<>(changes.getChanges()));
+        put(key, new Entry(list, list.size(), false));
+        return changes;
+    }
+
+    @Override
+    public int diffSize(Solution origin, Solution target) {
+        if (!isCacheable(origin, target)) {
+            return generator.diffSize(origin, target);
+        }
+        final long key = keyOf(origin, target);
+        final Entry cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.size;
+        }
+        final Optional<List<CodeChange>> spilled = loadSpilled(key);
+        if (spilled.isPresent()) {
+            hits.increment();
+            put(key, new Entry(spilled.get(), spilled.get().size(), true));
+            return spilled.get().size();
+        }
+        misses.increment();
+        final int size = generator.diffSize(origin, target);
+        put(key, new Entry(null, size, false));
+        return size;
+    }
+
+    /**
+     * Sizes below {@code upperBound} are exact, so only they are cached.
+     */
+    @Override
+    public int diffSize(Solution origin, Solution target, int upperBound) {
+        if (!isCacheable(origin, target)) {
+            return generator.diffSize(origin, target, upperBound);
+        }
+        final long key = keyOf(origin, target);
+        final Entry cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return Math.min(cached.size, upperBound);
+        }
+        final Optional<List<CodeChange>> spilled = loadSpilled(key);
+        if (spilled.isPresent()) {
+            hits.increment();
+            put(key, new Entry(spilled.get(), spilled.get().size(), true));
+            return Math.min(spilled.get().size(), upperBound);
+        }
+        misses.increment();
+        final int size = generator.diffSize(origin, target, upperBound);
+        if (size < upperBound) {
+            put(key, new Entry(null, size, false));
+        }
+        return size;
+    }
+
+    @Override
+    public int diffSize(ITree origin, ITree target) {
+        return generator.diffSize(origin, target);
+    }
+
+    @Override
+    public int diffSize(ITree origin, ITree target, int upperBound) {
+        return generator.diffSize(origin, target, upperBound);
+    }
+
+    @Override
+    public ASTGenerator getGenerator() {
+        return generator.getGenerator();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry lookup(long key) {
+        return entries.get(key);
+    }
+
+    private void put(long key, Entry entry) {
+        final List<Map.Entry<Long, Entry>> evicted = new ArrayList<>();
+        synchronized (this) {
+            final Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += entry.weight();
+            final Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                final Map.Entry<Long, Entry> eldest = iterator.next();
+                if (eldest.getKey() == key) {
+                    continue;
+                }
+                iterator.remove();
+                weight -= eldest.getValue().weight();
+                evictions.increment();
+                evicted.add(eldest);
+            }
+        }
+        if (spill != null) {
+            for (Map.Entry<Long, Entry> eldest : evicted) {
+                if (eldest.getValue().changes != null && !eldest.getValue().spilled) {
+                    spill.storeValue(spillKeyOf(eldest.getKey()), encode(eldest.getValue().changes));
+                }
+            }
+        }
+    }
+
+    private Optional<List<CodeChange>> loadSpilled(long key) {
+        if (spill == null) {
+            return Optional.empty();
+        }
+        return spill.loadValue(spillKeyOf(key)).map(CachingChangeGenerator::decode);
+    }
+
+    private String spillKeyOf(long key) {
+        return keyPrefix + (key >>> 32) + ":" + (key & 0xFFFFFFFFL);
+    }
+
+    private static boolean isCacheable(Solution origin, Solution target) {
+        return origin.getSolutionId() != -1 && target.getSolutionId() != -1;
+    }
+
+    private static long keyOf(Solution origin, Solution target) {
+        return ((long) origin.getSolutionId() << 32) | (target.getSolutionId() & 0xFFFFFFFFL);
+    }
+
+    private static byte[] encode(List<CodeChange> changes) {
+        final ProtoChanges.Builder builder = ProtoChanges.newBuilder();
+        for (CodeChange change : changes) {
+            builder.addChanges(EntityToProtoUtils.transform(change));
+        }
+        return builder.build().toByteArray();
+    }
+
+    private static List<CodeChange> decode(byte[] bytes) {
+        try {
+            final ProtoChanges proto = ProtoChanges.parseFrom(bytes);
+            final List<CodeChange> changes = new ArrayList<>(proto.getChangesCount());
+            for (ProtoAtomicChange change : proto.getChangesList()) {
+                changes.add(ProtoToEntityUtils.transform(change));
+            }
+            return Collections.unmodifiableList(changes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Failed to decode spilled changes", e);
+        }
+    }
+
+    private static class Entry implements Serializable {
+        private final List<CodeChange> changes;
+        private final int size;
+        private final boolean spilled;
+
+        private Entry(List<CodeChange> changes, int size, boolean spilled) {
+            this.changes = changes;
+            this.size = size;
+            this.spilled = spilled;
+        }
+
+        private long weight() {
+            return changes == null ? 1 : 1 + changes.size();
+        }
+    }
+}
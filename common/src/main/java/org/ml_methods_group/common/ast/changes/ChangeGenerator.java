@@ -10,4 +10,28 @@ public interface ChangeGenerator extends Serializable {
     Changes getChanges(Solution origin, Solution target);
     int diffSize(ITree origin, ITree target);
     ASTGenerator getGenerator();
+
+    /**
+     * Identifies trees generation and matching configuration: changes generated
+     * with equal fingerprints are equal.
+     */
+    default String getFingerprint() {
+        return getClass().getName() + "+" + getGenerator().getFingerprint();
+    }
+
+    default int diffSize(Solution origin, Solution target) {
+        return diffSize(getGenerator().buildSharedTree(origin), getGenerator().buildSharedTree(target));
+    }
+
+    /**
+     * Bounded version of {@link #diffSize(ITree, ITree)}: returns {@code min(diffSize, upperBound)},
+     * but may stop computations as soon as it's known that the size isn't less than {@code upperBound}.
+     */
+    default int diffSize(ITree origin, ITree target, int upperBound) {
+        return Math.min(diffSize(origin, target), upperBound);
+    }
+
+    default int diffSize(Solution origin, Solution target, int upperBound) {
+        return diffSize(getGenerator().buildSharedTree(origin), getGenerator().buildSharedTree(target), upperBound);
+    }
 }
@@ -0,0 +1,235 @@
+package org.ml_methods_group.common.ast.changes;
+
+import org.ml_methods_group.common.ast.NodeType;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeContext;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeState;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static org.ml_methods_group.common.ast.changes.CodeChange.NO_LABEL;
+
+/**
+ * Dictionary-encoded form of {@link CodeChange}: all node states are packed into one {@code int[]},
+ * labels and java types are replaced by ids from a shared {@link SymbolTable}.
+ * Ids are comparable only between changes encoded with the same table.
+ * <p>
+ * Layout: change type, six fixed states (see {@link #ORIGINAL_NODE} and others),
+ * sizes of uncles, brothers and children of both contexts, then these lists themselves.
+ * Every state takes {@link #STATE_SIZE} ints: node type, java type, label, original label, position in parent.
+ */
+public class CompactCodeChange implements Serializable {
+
+    public static final int ORIGINAL_NODE = 0;
+    public static final int ORIGINAL_PARENT = 1;
+    public static final int ORIGINAL_PARENT_OF_PARENT = 2;
+    public static final int DESTINATION_NODE = 3;
+    public static final int DESTINATION_PARENT = 4;
+    public static final int DESTINATION_PARENT_OF_PARENT = 5;
+
+    private static final int STATE_SIZE = 5;
+    private static final int TYPE = 0;
+    private static final int JAVA_TYPE = 1;
+    private static final int LABEL = 2;
+    private static final int ORIGINAL_LABEL = 3;
+    private static final int POSITION = 4;
+
+    private static final int FIXED_STATES = 6;
+    private static final int STATES_OFFSET = 1;
+    private static final int SIZES_OFFSET = STATES_OFFSET + FIXED_STATES * STATE_SIZE;
+    private static final int LISTS_OFFSET = SIZES_OFFSET + 6;
+
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+    private final int[] data;
+    private final transient SymbolTable table;
+
+    private CompactCodeChange(int[] data, SymbolTable table) {
+        this.data = data;
+        this.table = table;
+    }
+
+    public static CompactCodeChange of(CodeChange change, SymbolTable table) {
+        final NodeContext original = change.getOriginalContext();
+        final NodeContext destination = change.getDestinationContext();
+        final Builder builder = new Builder(change.getChangeType().ordinal(), table,
+                original.getUncles().length, original.getBrothers().length, original.getChildren().length,
+                destination.getUncles().length, destination.getBrothers().length, destination.getChildren().length);
+        for (NodeContext context : new NodeContext[]{original, destination}) {
+            add(builder, context.getNode());
+            add(builder, context.getParent());
+            add(builder, context.getParentOfParent());
+        }
+        for (NodeContext context : new NodeContext[]{original, destination}) {
+            for (NodeState[] states : new NodeState[][]{context.getUncles(), context.getBrothers(),
+                    context.getChildren()}) {
+                for (NodeState state : states) {
+                    add(builder, state);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public CodeChange toCodeChange() {
+        final NodeState[] states = new NodeState[FIXED_STATES];
+        for (int i = 0; i < FIXED_STATES; i++) {
+            states[i] = read(STATES_OFFSET + i * STATE_SIZE);
+        }
+        final NodeState[][] lists = new NodeState[6][];
+        int offset = LISTS_OFFSET;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new NodeState[data[SIZES_OFFSET + i]];
+            for (int j = 0; j < lists[i].length; j++, offset += STATE_SIZE) {
+                lists[i][j] = read(offset);
+            }
+        }
+        return new CodeChange(
+                new NodeContext(states[ORIGINAL_NODE], states[ORIGINAL_PARENT], states[ORIGINAL_PARENT_OF_PARENT],
+                        lists[0], lists[1], lists[2]),
+                new NodeContext(states[DESTINATION_NODE], states[DESTINATION_PARENT],
+                        states[DESTINATION_PARENT_OF_PARENT], lists[3], lists[4], lists[5]),
+                getChangeType());
+    }
+
+    public ChangeType getChangeType() {
+        return CHANGE_TYPES[data[0]];
+    }
+
+    public SymbolTable getSymbolTable() {
+        return table;
+    }
+
+    /**
+     * @param state one of {@link #ORIGINAL_NODE}, {@link #ORIGINAL_PARENT}, {@link #ORIGINAL_PARENT_OF_PARENT},
+     *              {@link #DESTINATION_NODE}, {@link #DESTINATION_PARENT}, {@link #DESTINATION_PARENT_OF_PARENT}
+     * @return ordinal of {@link NodeType} of the state
+     */
+    public int getType(int state) {
+        return data[STATES_OFFSET + state * STATE_SIZE + TYPE];
+    }
+
+    public int getJavaType(int state) {
+        return data[STATES_OFFSET + state * STATE_SIZE + JAVA_TYPE];
+    }
+
+    public int getLabel(int state) {
+        return data[STATES_OFFSET + state * STATE_SIZE + LABEL];
+    }
+
+    public int getOriginalLabel(int state) {
+        return data[STATES_OFFSET + state * STATE_SIZE + ORIGINAL_LABEL];
+    }
+
+    public int getPositionInParent(int state) {
+        return data[STATES_OFFSET + state * STATE_SIZE + POSITION];
+    }
+
+    private static void add(Builder builder, NodeState state) {
+        builder.addState(state.getType().ordinal(), state.getJavaType(), state.getLabel(),
+                state.getOriginalLabel(), state.getPositionInParent());
+    }
+
+    private NodeState read(int offset) {
+        return new NodeState(NodeType.valueOf(data[offset + TYPE]),
+                table.symbol(data[offset + JAVA_TYPE]),
+                table.symbol(data[offset + LABEL]),
+                table.symbol(data[offset + ORIGINAL_LABEL]),
+                data[offset + POSITION]);
+    }
+
+    /**
+     * Ids are meaningless outside of the table, so the change is serialized in the original form
+     * and is encoded with {@link SymbolTable#getDefault()} on deserialization.
+     */
+    private Object writeReplace() {
+        return new SerializedForm(toCodeChange());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompactCodeChange that = (CompactCodeChange) o;
+
+        return table == that.table && Arrays.equals(data, that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return toCodeChange().toString();
+    }
+
+    /**
+     * Encodes a change from raw fields, so that serialized changes can be encoded without
+     * building {@link CodeChange} first. Fields are normalized the same way as in {@link NodeState}.
+     * States are added in the layout order: node, parent and parent of parent of the original context,
+     * the same of the destination context, then uncles, brothers and children of both contexts.
+     */
+    public static class Builder {
+        private final int[] data;
+        private final SymbolTable table;
+        private final int statesCount;
+        private int added = 0;
+
+        /**
+         * @param listSizes sizes of uncles, brothers and children of the original context,
+         *                  then of the destination context
+         */
+        public Builder(int changeType, SymbolTable table, int... listSizes) {
+            if (listSizes.length != 6) {
+                throw new IllegalArgumentException("Expected sizes of 6 lists, but got " + listSizes.length);
+            }
+            int listsSize = 0;
+            for (int size : listSizes) {
+                listsSize += size;
+            }
+            this.data = new int[LISTS_OFFSET + STATE_SIZE * listsSize];
+            this.table = table;
+            this.statesCount = FIXED_STATES + listsSize;
+            data[0] = CHANGE_TYPES[changeType].ordinal();
+            System.arraycopy(listSizes, 0, data, SIZES_OFFSET, listSizes.length);
+        }
+
+        public Builder addState(int type, String javaType, String label, String originalLabel, int position) {
+            if (added == statesCount) {
+                throw new IllegalStateException("All " + statesCount + " states are already added");
+            }
+            final int offset = added < FIXED_STATES
+                    ? STATES_OFFSET + added * STATE_SIZE
+                    : LISTS_OFFSET + (added - FIXED_STATES) * STATE_SIZE;
+            data[offset + TYPE] = type;
+            data[offset + JAVA_TYPE] = table.intern(javaType == null ? NO_LABEL : javaType);
+            data[offset + LABEL] = table.intern(label.isEmpty() ? NO_LABEL : label);
+            data[offset + ORIGINAL_LABEL] = table.intern(originalLabel == null ? label : originalLabel);
+            data[offset + POSITION] = position;
+            added++;
+            return this;
+        }
+
+        public CompactCodeChange build() {
+            if (added != statesCount) {
+                throw new IllegalStateException("Expected " + statesCount + " states, but got " + added);
+            }
+            return new CompactCodeChange(data, table);
+        }
+    }
+
+    private static class SerializedForm implements Serializable {
+        private final CodeChange change;
+
+        private SerializedForm(CodeChange change) {
+            this.change = change;
+        }
+
+        private Object readResolve() {
+            return of(change, SymbolTable.getDefault());
+        }
+    }
+}
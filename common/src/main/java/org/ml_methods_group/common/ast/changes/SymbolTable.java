@@ -0,0 +1,57 @@
+package org.ml_methods_group.common.ast.changes;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.ml_methods_group.common.ast.changes.CodeChange.NO_LABEL;
+
+/**
+ * Thread-safe dictionary of labels and java types used by {@link CompactCodeChange}.
+ * Every distinct string is stored once and gets a dense id, so that equal strings are compared as ints.
+ * {@link CodeChange#NO_LABEL} always has id {@link #NO_LABEL_ID}.
+ */
+public class SymbolTable {
+
+    public static final int NO_LABEL_ID = 0;
+
+    private static final SymbolTable DEFAULT = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[1024];
+    private int size = 0;
+
+    public SymbolTable() {
+        intern(NO_LABEL);
+    }
+
+    public static SymbolTable getDefault() {
+        return DEFAULT;
+    }
+
+    public int intern(String symbol) {
+        final Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            final Integer existing = ids.get(symbol);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+            }
+            symbols[size] = symbol;
+            ids.put(symbol, size);
+            return size++;
+        }
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -7,4 +7,19 @@ import java.io.Serializable;
 
 public interface ASTGenerator extends Serializable {
     ITree buildTree(Solution solution);
+
+    /**
+     * Builds tree which may be shared with other callers, so it must not be modified.
+     * Use {@link #buildTree(Solution)} to get a private copy.
+     */
+    default ITree buildSharedTree(Solution solution) {
+        return buildTree(solution);
+    }
+
+    /**
+     * Identifies parser and normalization: trees built with equal fingerprints are equal.
+     */
+    default String getFingerprint() {
+        return getClass().getName();
+    }
 }
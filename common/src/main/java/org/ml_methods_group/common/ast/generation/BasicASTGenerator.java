@@ -37,4 +37,9 @@ public class BasicASTGenerator implements ASTGenerator {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public String getFingerprint() {
+        return generator.getClass().getName() + "+" + (normalizer == null ? "none" : normalizer.getFingerprint());
+    }
 }
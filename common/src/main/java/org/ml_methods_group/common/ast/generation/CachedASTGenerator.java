@@ -4,19 +4,36 @@ import com.github.gumtreediff.tree.ITree;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.ast.normalization.ASTNormalizer;
 
-import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Keeps built trees in a LRU cache bounded by the total number of nodes.
+ * {@link #buildSharedTree(Solution)} returns cached trees without copying.
+ */
 public class CachedASTGenerator extends BasicASTGenerator {
+    public static final long DEFAULT_MAX_NODES = 1_000_000;
 
-    private final Map<Solution, SoftReference<ITree>> cache = new ConcurrentHashMap<>();
+    private final long maxNodes;
+    private final Map<Solution, ITree> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long nodes = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
-    public CachedASTGenerator(ASTNormalizer normalizer) {
+    public CachedASTGenerator(ASTNormalizer normalizer, long maxNodes) {
         super(normalizer);
+        this.maxNodes = maxNodes;
+    }
+
+    public CachedASTGenerator(ASTNormalizer normalizer) {
+        this(normalizer, DEFAULT_MAX_NODES);
     }
 
     public CachedASTGenerator() {
+        this(null);
     }
 
     @Override
@@ -24,13 +41,55 @@ public class CachedASTGenerator extends BasicASTGenerator {
         if (solution.getSolutionId() == -1) {
             return super.buildTree(solution);
         }
-        final SoftReference<ITree> reference = cache.get(solution);
-        final ITree cached = reference == null ? null : reference.get();
-        if (cached != null) {
-            return cached.deepCopy();
+        return buildSharedTree(solution).deepCopy();
+    }
+
+    @Override
+    public ITree buildSharedTree(Solution solution) {
+        if (solution.getSolutionId() == -1) {
+            return super.buildTree(solution);
+        }
+        synchronized (cache) {
+            final ITree cached = cache.get(solution);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
         }
+        misses.increment();
         final ITree tree = super.buildTree(solution);
-        cache.put(solution, new SoftReference<>(tree));
-        return tree.deepCopy();
+        synchronized (cache) {
+            final ITree previous = cache.putIfAbsent(solution, tree);
+            if (previous != null) {
+                return previous;
+            }
+            nodes += tree.getSize();
+            final Iterator<Map.Entry<Solution, ITree>> iterator = cache.entrySet().iterator();
+            while (nodes > maxNodes && cache.size() > 1 && iterator.hasNext()) {
+                final Map.Entry<Solution, ITree> eldest = iterator.next();
+                iterator.remove();
+                nodes -= eldest.getValue().getSize();
+                evictions.increment();
+            }
+        }
+        return tree;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
     }
 }
@@ -4,4 +4,11 @@ import com.github.gumtreediff.tree.TreeContext;
 
 public interface ASTNormalizer {
     void normalize(TreeContext context, String code);
+
+    /**
+     * Identifies normalization rules: trees built with equal fingerprints are equal.
+     */
+    default String getFingerprint() {
+        return getClass().getName();
+    }
 }
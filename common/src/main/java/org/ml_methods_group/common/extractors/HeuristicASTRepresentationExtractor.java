@@ -13,6 +13,15 @@ public class HeuristicASTRepresentationExtractor implements FeaturesExtractor<IT
 
     private final Map<Integer, Integer> indexes = new HashMap<>();
 
+    public HeuristicASTRepresentationExtractor() {
+    }
+
+    public HeuristicASTRepresentationExtractor(int[] nodeTypes) {
+        for (int nodeType : nodeTypes) {
+            indexes.put(nodeType, indexes.size());
+        }
+    }
+
     @Override
     public synchronized HeuristicASTRepresentation process(ITree value) {
         final int[] counters = new int[NodeType.values().length];
@@ -30,6 +39,19 @@ public class HeuristicASTRepresentationExtractor implements FeaturesExtractor<IT
         return new HeuristicASTRepresentation(counters, maxLimit, value.getSize());
     }
 
+    public synchronized int[] getNodeTypes() {
+        final int[] nodeTypes = new int[indexes.size()];
+        indexes.forEach((nodeType, index) -> nodeTypes[index] = nodeType);
+        return nodeTypes;
+    }
+
+    public HeuristicASTRepresentation restore(int[] counters, int limit, int sum) {
+        if (counters.length != NodeType.values().length) {
+            throw new IllegalArgumentException("Unexpected counters count: " + counters.length);
+        }
+        return new HeuristicASTRepresentation(counters.clone(), limit, sum);
+    }
+
     public DistanceFunction<HeuristicASTRepresentation> getDistanceFunction() {
         return new HeuristicDistance();
     }
@@ -74,6 +96,18 @@ public class HeuristicASTRepresentationExtractor implements FeaturesExtractor<IT
             this.sum = sum;
         }
 
+        public int[] getCounters() {
+            return counters.clone();
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getSum() {
+            return sum;
+        }
+
         private HeuristicASTRepresentationExtractor getSource() {
             return HeuristicASTRepresentationExtractor.this;
         }
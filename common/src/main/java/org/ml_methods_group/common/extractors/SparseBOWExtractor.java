@@ -3,6 +3,7 @@ package org.ml_methods_group.common.extractors;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.metrics.functions.FunctionsUtils;
 
+import java.io.Serializable;
 import java.util.*;
 
 public class SparseBOWExtractor<T> implements FeaturesExtractor<List<T>, SparseBOWExtractor.SparseBOWVector> {
@@ -45,7 +46,7 @@ public class SparseBOWExtractor<T> implements FeaturesExtractor<List<T>, SparseB
         return indexes;
     }
 
-    public static class SparseBOWVector {
+    public static class SparseBOWVector implements Serializable {
 
         private final List<Integer> indices = new ArrayList<>();
         private final List<Integer> counters = new ArrayList<>();
@@ -59,6 +60,10 @@ public class SparseBOWExtractor<T> implements FeaturesExtractor<List<T>, SparseB
             return counters;
         }
 
+        public double getNorm() {
+            return norm;
+        }
+
         public SparseBOWVector(SortedMap<Integer, Integer> counterByIndex) {
             final int squaredSum = counterByIndex.values().stream().mapToInt(x -> x * x).sum();
             this.norm = Math.sqrt(squaredSum);
@@ -71,7 +76,11 @@ public class SparseBOWExtractor<T> implements FeaturesExtractor<List<T>, SparseB
     }
 
     public static double cosineDistance(SparseBOWExtractor.SparseBOWVector a, SparseBOWExtractor.SparseBOWVector b) {
-        int p = FunctionsUtils.scalarProduct(a, b);
-        return p == 0 || a.norm == 0 || b.norm == 0 ? 1 : (1 - p / (a.norm * b.norm)) / 2;
+        return cosineDistance(FunctionsUtils.scalarProduct(a, b), a.norm, b.norm);
+    }
+
+    public static double cosineDistance(int scalarProduct, double firstNorm, double secondNorm) {
+        return scalarProduct == 0 || firstNorm == 0 || secondNorm == 0 ? 1
+                : (1 - scalarProduct / (firstNorm * secondNorm)) / 2;
     }
 }
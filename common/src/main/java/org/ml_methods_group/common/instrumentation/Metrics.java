@@ -0,0 +1,84 @@
+package org.ml_methods_group.common.instrumentation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global registry of named pipeline stages.
+ */
+public class Metrics {
+    private static final ConcurrentHashMap<String, StageMetrics> STAGES = new ConcurrentHashMap<>();
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public static StageMetrics stage(String name) {
+        final StageMetrics stage = STAGES.get(name);
+        return stage != null ? stage : STAGES.computeIfAbsent(name, StageMetrics::new);
+    }
+
+    public static List<StageMetrics> getStages() {
+        final List<StageMetrics> stages = new ArrayList<>(STAGES.values());
+        stages.sort(Comparator.comparing(StageMetrics::getName));
+        return stages;
+    }
+
+    public static void reset() {
+        STAGES.clear();
+    }
+
+    public static String toJson() {
+        final StringBuilder builder = new StringBuilder("{\"stages\":[");
+        final List<StageMetrics> stages = getStages();
+        for (int i = 0; i < stages.size(); i++) {
+            final StageMetrics stage = stages.get(i);
+            final LatencyHistogram latencies = stage.getLatencies();
+            builder.append(i == 0 ? "" : ",")
+                    .append("{\"name\":\"").append(escape(stage.getName()))
+                    .append("\",\"count\":").append(stage.getCount())
+                    .append(",\"failures\":").append(stage.getFailures())
+                    .append(",\"timeouts\":").append(stage.getTimeouts())
+                    .append(",\"expected\":").append(stage.getExpected())
+                    .append(",\"throughput\":").append(format(stage.getThroughput()))
+                    .append(",\"mean_nanos\":").append(format(latencies.getMean()))
+                    .append(",\"max_nanos\":").append(latencies.getMax())
+                    .append(",\"percentiles_nanos\":{");
+            for (int j = 0; j < PERCENTILES.length; j++) {
+                builder.append(j == 0 ? "" : ",")
+                        .append('"').append(PERCENTILES[j]).append("\":")
+                        .append(latencies.getPercentile(PERCENTILES[j]));
+            }
+            builder.append("}}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    public static void dump(Path path) {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".partial");
+        try {
+            final Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Files.write(temporary, toJson().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
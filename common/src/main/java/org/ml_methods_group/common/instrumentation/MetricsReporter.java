@@ -0,0 +1,51 @@
+package org.ml_methods_group.common.instrumentation;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prints state of all stages from {@link Metrics}. On close prints the final
+ * report and, if {@code dumpPath} is set, stores it in JSON.
+ */
+public class MetricsReporter implements AutoCloseable {
+    public static final String PERIOD_PROPERTY = "org.ml_methods_group.metrics.period";
+
+    private static final ScheduledExecutorService SERVICE = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "metrics-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PrintStream output;
+    private final Path dumpPath;
+    private final ScheduledFuture<?> reporting;
+
+    public MetricsReporter(PrintStream output, long period, TimeUnit unit, Path dumpPath) {
+        this.output = output;
+        this.dumpPath = dumpPath;
+        this.reporting = SERVICE.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    public MetricsReporter(Path dumpPath) {
+        this(System.out, Long.getLong(PERIOD_PROPERTY, 30), TimeUnit.SECONDS, dumpPath);
+    }
+
+    public void report() {
+        for (StageMetrics stage : Metrics.getStages()) {
+            output.println(stage);
+        }
+    }
+
+    @Override
+    public void close() {
+        reporting.cancel(false);
+        report();
+        if (dumpPath != null) {
+            Metrics.dump(dumpPath);
+        }
+    }
+}
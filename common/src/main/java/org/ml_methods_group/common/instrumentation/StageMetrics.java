@@ -0,0 +1,133 @@
+package org.ml_methods_group.common.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of a single pipeline stage.
+ * Throughput is measured from the first recorded item.
+ */
+public class StageMetrics {
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile long firstNanos = Long.MIN_VALUE;
+    private volatile long lastNanos;
+    private volatile long expected = -1;
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param startNanos value of {@link System#nanoTime()} taken before processing of the item
+     */
+    public void record(long startNanos) {
+        final long now = System.nanoTime();
+        if (firstNanos == Long.MIN_VALUE) {
+            synchronized (this) {
+                if (firstNanos == Long.MIN_VALUE) {
+                    firstNanos = startNanos;
+                }
+            }
+        }
+        lastNanos = now;
+        latencies.record(now - startNanos);
+    }
+
+    public void recordFailure(long startNanos) {
+        failures.increment();
+        record(startNanos);
+    }
+
+    /**
+     * Counts an item, which exceeded its time budget, the item itself is recorded separately.
+     */
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Sets expected number of items, which enables ETA estimation.
+     */
+    public void expect(long count) {
+        expected = count;
+    }
+
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getExpected() {
+        return expected;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public double getThroughput() {
+        final long first = firstNanos;
+        final long elapsed = (first == Long.MIN_VALUE ? 0 : lastNanos - first);
+        return elapsed <= 0 ? 0 : getCount() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return estimated seconds to process the rest of expected items or -1, if it's unknown
+     */
+    public double getEtaSeconds() {
+        final double throughput = getThroughput();
+        final long count = getCount();
+        if (expected < 0 || throughput == 0) {
+            return -1;
+        }
+        return Math.max(0, expected - count) / throughput;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(name).append(": ").append(getCount());
+        if (expected >= 0) {
+            builder.append('/').append(expected);
+        }
+        builder.append(" items, ").append(String.format("%.1f", getThroughput())).append(" items/s");
+        final double eta = getEtaSeconds();
+        if (eta >= 0) {
+            builder.append(", ETA ").append(formatSeconds(eta));
+        }
+        if (getFailures() != 0) {
+            builder.append(", failures: ").append(getFailures());
+        }
+        if (getTimeouts() != 0) {
+            builder.append(", timeouts: ").append(getTimeouts());
+        }
+        return builder.append(", latency ms p50/p90/p99/max: ")
+                .append(toMillis(latencies.getPercentile(50))).append('/')
+                .append(toMillis(latencies.getPercentile(90))).append('/')
+                .append(toMillis(latencies.getPercentile(99))).append('/')
+                .append(toMillis(latencies.getMax()))
+                .toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static String formatSeconds(double seconds) {
+        final long total = (long) Math.ceil(seconds);
+        return String.format("%d:%02d:%02d", TimeUnit.SECONDS.toHours(total), total / 60 % 60, total % 60);
+    }
+}
@@ -0,0 +1,127 @@
+package org.ml_methods_group.common.metrics.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Hungarian algorithm with shortest augmenting paths (Jonker-Volgenant style potentials):
+ * O(n^2 * m) for n x m matrix with n <= m, rectangular matrices are solved without padding.
+ * Buffers are reused between calls, so instances aren't thread safe,
+ * use {@link #getInstance()} to get one for the current thread.
+ */
+public class AssignmentSolver {
+    private static final ThreadLocal<AssignmentSolver> INSTANCES = ThreadLocal.withInitial(AssignmentSolver::new);
+
+    private int[] weights = new int[0];
+    private long[] rowPotentials = new long[0];
+    private long[] columnPotentials = new long[0];
+    private long[] minSlack = new long[0];
+    private int[] columnMatching = new int[0];
+    private int[] way = new int[0];
+    private boolean[] used = new boolean[0];
+
+    public static AssignmentSolver getInstance() {
+        return INSTANCES.get();
+    }
+
+    /**
+     * Returns buffer for {@code rows x columns} matrix in row-major order: weight of pair (i, j)
+     * is stored at {@code i * columns + j}. Buffer is valid until the next call on this solver.
+     */
+    public int[] weights(int rows, int columns) {
+        final int size = rows * columns;
+        if (weights.length < size) {
+            weights = new int[Math.max(size, weights.length * 2)];
+        }
+        return weights;
+    }
+
+    /**
+     * @return max total weight of matching, which covers the smaller side of matrix from {@link #weights}
+     */
+    public long maximize(int rows, int columns) {
+        return -solve(rows, columns, -1);
+    }
+
+    /**
+     * @return min total weight of matching, which covers the smaller side of matrix from {@link #weights}
+     */
+    public long minimize(int rows, int columns) {
+        return solve(rows, columns, 1);
+    }
+
+    private long solve(int rows, int columns, int sign) {
+        if (rows == 0 || columns == 0) {
+            return 0;
+        }
+        final boolean transposed = rows > columns;
+        final int n = transposed ? columns : rows;
+        final int m = transposed ? rows : columns;
+        ensureCapacity(n, m);
+        Arrays.fill(rowPotentials, 0, n + 1, 0);
+        Arrays.fill(columnPotentials, 0, m + 1, 0);
+        Arrays.fill(columnMatching, 0, m + 1, 0);
+        for (int i = 1; i <= n; i++) {
+            columnMatching[0] = i;
+            int currentColumn = 0;
+            Arrays.fill(minSlack, 0, m + 1, Long.MAX_VALUE);
+            Arrays.fill(used, 0, m + 1, false);
+            do {
+                used[currentColumn] = true;
+                final int row = columnMatching[currentColumn] - 1;
+                final long rowPotential = rowPotentials[row + 1];
+                long delta = Long.MAX_VALUE;
+                int nextColumn = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    final int weight = transposed ? weights[(j - 1) * columns + row] : weights[row * columns + j - 1];
+                    final long slack = sign * weight - rowPotential - columnPotentials[j];
+                    if (slack < minSlack[j]) {
+                        minSlack[j] = slack;
+                        way[j] = currentColumn;
+                    }
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        rowPotentials[columnMatching[j]] += delta;
+                        columnPotentials[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                currentColumn = nextColumn;
+            } while (columnMatching[currentColumn] != 0);
+            do {
+                final int previous = way[currentColumn];
+                columnMatching[currentColumn] = columnMatching[previous];
+                currentColumn = previous;
+            } while (currentColumn != 0);
+        }
+        long result = 0;
+        for (int j = 1; j <= m; j++) {
+            final int row = columnMatching[j] - 1;
+            if (row != -1) {
+                result += sign * (transposed ? weights[(j - 1) * columns + row] : weights[row * columns + j - 1]);
+            }
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int n, int m) {
+        if (rowPotentials.length <= n) {
+            rowPotentials = new long[n + 1];
+        }
+        if (columnPotentials.length <= m) {
+            columnPotentials = new long[m + 1];
+            minSlack = new long[m + 1];
+            columnMatching = new int[m + 1];
+            way = new int[m + 1];
+            used = new boolean[m + 1];
+        }
+    }
+}
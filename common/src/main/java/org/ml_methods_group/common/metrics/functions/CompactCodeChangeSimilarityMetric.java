@@ -0,0 +1,65 @@
+package org.ml_methods_group.common.metrics.functions;
+
+import org.ml_methods_group.common.SimilarityMetric;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+
+import static org.ml_methods_group.common.ast.changes.CompactCodeChange.*;
+import static org.ml_methods_group.common.ast.changes.SymbolTable.NO_LABEL_ID;
+
+/**
+ * Same measure as {@link CodeChangeSimilarityMetric}, but labels and java types are compared by ids.
+ * Both changes must be encoded with the same {@link org.ml_methods_group.common.ast.changes.SymbolTable}.
+ */
+public class CompactCodeChangeSimilarityMetric implements SimilarityMetric<CompactCodeChange> {
+    @Override
+    public double measure(CompactCodeChange first, CompactCodeChange second) {
+        if (first.getSymbolTable() != second.getSymbolTable()) {
+            throw new IllegalArgumentException("Changes are encoded with different symbol tables");
+        }
+        if (getElementType(first) != getElementType(second)) {
+            return 0;
+        }
+        switch (first.getChangeType()) {
+            case MOVE:
+            case UPDATE:
+                return mean(matchState(first, second, ORIGINAL_NODE),
+                        matchState(first, second, DESTINATION_NODE)) *
+                        mean(matchParents(first, second, DESTINATION_PARENT, DESTINATION_PARENT_OF_PARENT),
+                                matchParents(first, second, ORIGINAL_PARENT, ORIGINAL_PARENT_OF_PARENT));
+            case DELETE:
+                return matchState(first, second, ORIGINAL_NODE) *
+                        matchParents(first, second, ORIGINAL_PARENT, ORIGINAL_PARENT_OF_PARENT);
+            case INSERT:
+                return matchState(first, second, DESTINATION_NODE) *
+                        matchParents(first, second, DESTINATION_PARENT, DESTINATION_PARENT_OF_PARENT);
+            default:
+                throw new RuntimeException("Unexpected enum type: " + first.getChangeType());
+        }
+    }
+
+    private double matchState(CompactCodeChange a, CompactCodeChange b, int state) {
+        if (a.getType(state) != b.getType(state)) {
+            return 0;
+        }
+        final double labelModifier = a.getLabel(state) == b.getLabel(state) ? 1 : 0.5;
+        final int firstJavaType = a.getJavaType(state);
+        final int secondJavaType = b.getJavaType(state);
+        final double typeModifier = firstJavaType == secondJavaType ? 1 : 0.5;
+        return firstJavaType != NO_LABEL_ID || secondJavaType != NO_LABEL_ID ?
+                (labelModifier + typeModifier) / 2 : labelModifier;
+    }
+
+    private double matchParents(CompactCodeChange a, CompactCodeChange b, int parent, int parentOfParent) {
+        return matchState(a, b, parent) * matchState(a, b, parentOfParent);
+    }
+
+    private double mean(double a, double b) {
+        return (a + b) / 2;
+    }
+
+    @Override
+    public int getElementType(CompactCodeChange value) {
+        return value.getChangeType().ordinal() + 10 * value.getType(ORIGINAL_NODE) +
+                10000 * value.getType(DESTINATION_NODE);
+    }
+}
@@ -16,4 +16,13 @@ public class EditDistance implements DistanceFunction<ITree> {
     public double distance(ITree first, ITree second) {
         return generator.diffSize(first, second);
     }
+
+    @Override
+    public double distance(ITree first, ITree second, double upperBound) {
+        return Math.min(generator.diffSize(first, second, toIntBound(upperBound)), upperBound);
+    }
+
+    static int toIntBound(double upperBound) {
+        return upperBound >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.ceil(upperBound);
+    }
 }
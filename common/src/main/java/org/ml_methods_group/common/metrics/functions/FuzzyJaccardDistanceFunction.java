@@ -2,13 +2,11 @@ package org.ml_methods_group.common.metrics.functions;
 
 import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.SimilarityMetric;
-import org.ml_methods_group.common.metrics.algorithms.AssignmentProblem;
+import org.ml_methods_group.common.metrics.algorithms.AssignmentSolver;
 
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
-import static java.util.Collections.emptyList;
 
 public class FuzzyJaccardDistanceFunction<T> implements DistanceFunction<List<T>> {
 
@@ -20,46 +18,151 @@ public class FuzzyJaccardDistanceFunction<T> implements DistanceFunction<List<T>
 
     @Override
     public double distance(List<T> first, List<T> second) {
-        final Map<Integer, List<T>> firstGroups = first.stream()
-                .collect(Collectors.groupingBy(metric::getElementType, Collectors.toList()));
-        final Map<Integer, List<T>> secondGroups = second.stream()
-                .collect(Collectors.groupingBy(metric::getElementType, Collectors.toList()));
-        final double intersection = firstGroups.entrySet().stream()
-                .mapToDouble(entry -> match(entry.getValue(), secondGroups.getOrDefault(entry.getKey(), emptyList())))
-                .sum();
-        return 1 - intersection / (first.size() + second.size() - intersection);
+        return distance(prepare(first), prepare(second), Double.POSITIVE_INFINITY);
     }
 
-    private double match(List<T> first, List<T> second) {
-        if (first.size() > second.size()) {
-            return match(second, first);
+    @Override
+    public double distance(List<T> first, List<T> second, double upperBound) {
+        return distance(prepare(first), prepare(second), upperBound);
+    }
+
+    /**
+     * Groups elements by type once, so that distances between prepared lists
+     * (see {@link #getPreparedDistance()}) don't need to regroup them.
+     */
+    public Prepared<T> prepare(List<T> values) {
+        final long[] keys = new long[values.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) metric.getElementType(values.get(i)) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int groups = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || (int) (keys[i] >> 32) != (int) (keys[i - 1] >> 32)) {
+                groups++;
+            }
+        }
+        final int[] types = new int[groups];
+        final int[] offsets = new int[groups + 1];
+        final Object[] elements = new Object[keys.length];
+        int group = -1;
+        for (int i = 0; i < keys.length; i++) {
+            final int type = (int) (keys[i] >> 32);
+            if (group == -1 || types[group] != type) {
+                types[++group] = type;
+                offsets[group] = i;
+            }
+            elements[i] = values.get((int) keys[i]);
         }
-        if (first.isEmpty()) {
-            return 0;
+        offsets[groups] = keys.length;
+        return new Prepared<>(types, offsets, elements);
+    }
+
+    public DistanceFunction<Prepared<T>> getPreparedDistance() {
+        return new DistanceFunction<>() {
+            @Override
+            public double distance(Prepared<T> first, Prepared<T> second) {
+                return FuzzyJaccardDistanceFunction.this.distance(first, second, Double.POSITIVE_INFINITY);
+            }
+
+            @Override
+            public double distance(Prepared<T> first, Prepared<T> second, double upperBound) {
+                return FuzzyJaccardDistanceFunction.this.distance(first, second, upperBound);
+            }
+        };
+    }
+
+    /**
+     * Lower bound of {@link #getPreparedDistance()}, which only compares sizes of groups.
+     */
+    public DistanceFunction<Prepared<T>> getPreparedLowerBound() {
+        return (first, second) -> {
+            final int total = first.size() + second.size();
+            return total == 0 ? 0 : toDistance(optimisticIntersection(first, second), total);
+        };
+    }
+
+    /**
+     * Similarity of two elements is at most 1, so intersection of groups is bounded by the smaller group.
+     * At first the sum of these bounds is compared with {@code upperBound}, then groups are matched
+     * one by one while the rest of bounds still can make the distance less than {@code upperBound}.
+     */
+    private double distance(Prepared<T> first, Prepared<T> second, double upperBound) {
+        final int total = first.size() + second.size();
+        int optimistic = optimisticIntersection(first, second);
+        if (total != 0 && toDistance(optimistic, total) >= upperBound) {
+            return upperBound;
         }
-        if (first.size() == 1) {
-            return bestMatch(first.get(0), second);
+        double intersection = 0;
+        for (int i = 0, j = 0; i < first.types.length && j < second.types.length; ) {
+            if (first.types[i] < second.types[j]) {
+                i++;
+            } else if (first.types[i] > second.types[j]) {
+                j++;
+            } else {
+                optimistic -= Math.min(first.groupSize(i), second.groupSize(j));
+                intersection += match(first, i, second, j);
+                if (toDistance(intersection + optimistic, total) >= upperBound) {
+                    return upperBound;
+                }
+                i++;
+                j++;
+            }
         }
-        final int[][] weights = new int[first.size()][second.size()];
-        for (int i = 0; i < first.size(); i++) {
-            for (int j = 0; j < second.size(); j++) {
-                weights[i][j] = toDiscrete(metric.measure(first.get(i), second.get(j)));
+        return Math.min(toDistance(intersection, total), upperBound);
+    }
+
+    private static int optimisticIntersection(Prepared<?> first, Prepared<?> second) {
+        int optimistic = 0;
+        for (int i = 0, j = 0; i < first.types.length && j < second.types.length; ) {
+            if (first.types[i] < second.types[j]) {
+                i++;
+            } else if (first.types[i] > second.types[j]) {
+                j++;
+            } else {
+                optimistic += Math.min(first.groupSize(i++), second.groupSize(j++));
             }
         }
-        return toFloat(new AssignmentProblem(weights, false).solve());
+        return optimistic;
     }
 
-    private double bestMatch(T element, List<T> list) {
+    private static double toDistance(double intersection, int total) {
+        return 1 - intersection / (total - intersection);
+    }
+
+    private double match(Prepared<T> first, int firstGroup, Prepared<T> second, int secondGroup) {
+        final int firstSize = first.groupSize(firstGroup);
+        final int secondSize = second.groupSize(secondGroup);
+        if (firstSize > secondSize) {
+            return match(second, secondGroup, first, firstGroup);
+        }
+        final int firstOffset = first.offsets[firstGroup];
+        final int secondOffset = second.offsets[secondGroup];
+        if (firstSize == 1) {
+            return bestMatch(first.get(firstOffset), second, secondOffset, secondSize);
+        }
+        final AssignmentSolver solver = AssignmentSolver.getInstance();
+        final int[] weights = solver.weights(firstSize, secondSize);
+        for (int i = 0; i < firstSize; i++) {
+            for (int j = 0; j < secondSize; j++) {
+                weights[i * secondSize + j] = toDiscrete(metric.measure(first.get(firstOffset + i),
+                        second.get(secondOffset + j)));
+            }
+        }
+        return toFloat((int) solver.maximize(firstSize, secondSize));
+    }
+
+    private double bestMatch(T element, Prepared<T> list, int offset, int size) {
         double best = 0;
-        for (T another : list) {
-            final double current = metric.measure(element, another);
+        for (int i = offset; i < offset + size; i++) {
+            final double current = metric.measure(element, list.get(i));
             if (current > best) {
                 best = current;
             }
         }
         return toFloat(toDiscrete(best));
     }
-    
+
     private int toDiscrete(double value) {
         return (int) (value * 1000);
     }
@@ -67,4 +170,33 @@ public class FuzzyJaccardDistanceFunction<T> implements DistanceFunction<List<T>
     private double toFloat(int value) {
         return value / 1000.0;
     }
+
+    /**
+     * Elements sorted by type with group boundaries: elements of type {@code types[i]}
+     * are stored in range {@code [offsets[i], offsets[i + 1])}.
+     */
+    public static class Prepared<T> implements Serializable {
+        private final int[] types;
+        private final int[] offsets;
+        private final Object[] elements;
+
+        private Prepared(int[] types, int[] offsets, Object[] elements) {
+            this.types = types;
+            this.offsets = offsets;
+            this.elements = elements;
+        }
+
+        public int size() {
+            return elements.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T get(int index) {
+            return (T) elements[index];
+        }
+
+        private int groupSize(int group) {
+            return offsets[group + 1] - offsets[group];
+        }
+    }
 }
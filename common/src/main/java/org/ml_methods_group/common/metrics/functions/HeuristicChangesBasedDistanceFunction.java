@@ -22,12 +22,15 @@ public class HeuristicChangesBasedDistanceFunction implements DistanceFunction<S
 
     @Override
     public double distance(Solution first, Solution second) {
-        return generator.getChanges(first, second).getChanges().size();
+        return generator.diffSize(first, second);
     }
 
     @Override
     public double distance(Solution first, Solution second, double upperBound) {
-        return checkHeuristic(first, second, upperBound) ? upperBound : Math.min(upperBound, distance(first, second));
+        if (checkHeuristic(first, second, upperBound)) {
+            return upperBound;
+        }
+        return Math.min(generator.diffSize(first, second, EditDistance.toIntBound(upperBound)), upperBound);
     }
 
     private int[] getCountersFromCache(Solution solution) {
@@ -46,7 +49,7 @@ public class HeuristicChangesBasedDistanceFunction implements DistanceFunction<S
                 return cached;
             }
             final int[] result = new int[NodeType.values().length];
-            final ITree tree = generator.getGenerator().buildTree(solution);
+            final ITree tree = generator.getGenerator().buildSharedTree(solution);
             tree.getTrees()
                     .stream()
                     .mapToInt(ITree::getType)
@@ -11,17 +11,40 @@ public class JaccardDistanceFunction<T> implements DistanceFunction<List<T>> {
 
     @Override
     public double distance(List<T> first, List<T> second) {
+        return distance(first, second, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Intersection is bounded by the smaller list, so distance can't be less than {@code 1 - min / max}.
+     * Then counters are compared while the rest of the first list still can make the distance
+     * less than {@code upperBound}.
+     */
+    @Override
+    public double distance(List<T> first, List<T> second, double upperBound) {
         if (first.isEmpty() && second.isEmpty()) {
             return 0;
         }
+        final int total = first.size() + second.size();
+        if (toDistance(Math.min(first.size(), second.size()), total) >= upperBound) {
+            return upperBound;
+        }
         final Map<T, Long> firstCounters = first.stream()
                 .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         final Map<T, Long> secondCounters = second.stream()
                 .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         int intersection = 0;
+        int rest = first.size();
         for (Map.Entry<T, Long> entry : firstCounters.entrySet()) {
             intersection += Math.min(entry.getValue(), secondCounters.getOrDefault(entry.getKey(), 0L));
+            rest -= entry.getValue();
+            if (toDistance(Math.min(intersection + rest, second.size()), total) >= upperBound) {
+                return upperBound;
+            }
         }
-        return 1 - (double) intersection / (first.size() + second.size() - intersection);
+        return Math.min(toDistance(intersection, total), upperBound);
+    }
+
+    private static double toDistance(int intersection, int total) {
+        return 1 - (double) intersection / (total - intersection);
     }
 }
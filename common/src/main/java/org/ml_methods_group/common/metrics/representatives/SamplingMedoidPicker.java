@@ -0,0 +1,148 @@
+package org.ml_methods_group.common.metrics.representatives;
+
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.RepresentativesPicker;
+import org.ml_methods_group.common.parallel.ParallelContext;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds a medoid with far fewer distance computations than {@link CentroidPicker}, treating elements
+ * as arms of a multi-armed bandit as in Meddit. Pull of an arm is the distance from the element to
+ * the next element of a random permutation, which is shared by all arms, so the mean of pulls estimates
+ * the average distance to others. Every element gets {@code initialPulls} pulls, then the element with
+ * the lowest confidence bound gets twice as many pulls, until it is compared with all elements and its
+ * average distance is exact. Search stops when the element with the lowest bound is already exact.
+ * <p>
+ * Only the concentration of distances is assumed, neither symmetry nor the triangle inequality is needed,
+ * so edit based distances may be used. Bounds use standard deviation of pulls of the arm, so with
+ * probability about {@code 1 - errorProbability} the result is the medoid of {@link CentroidPicker}.
+ */
+public class SamplingMedoidPicker<V> implements RepresentativesPicker<V> {
+
+    public static final int DEFAULT_INITIAL_PULLS = 16;
+    public static final double DEFAULT_ERROR_PROBABILITY = 1e-3;
+
+    private final DistanceFunction<V> metric;
+    private final int initialPulls;
+    private final double errorProbability;
+    private final long seed;
+
+    public SamplingMedoidPicker(DistanceFunction<V> metric, int initialPulls, double errorProbability, long seed) {
+        if (initialPulls <= 1) {
+            throw new IllegalArgumentException("Initial pulls count has to be at least 2: " + initialPulls);
+        }
+        if (!(errorProbability > 0 && errorProbability < 1)) {
+            throw new IllegalArgumentException("Error probability has to be in (0, 1): " + errorProbability);
+        }
+        this.metric = metric;
+        this.initialPulls = initialPulls;
+        this.errorProbability = errorProbability;
+        this.seed = seed;
+    }
+
+    public SamplingMedoidPicker(DistanceFunction<V> metric, int initialPulls, double errorProbability) {
+        this(metric, initialPulls, errorProbability, 239);
+    }
+
+    public SamplingMedoidPicker(DistanceFunction<V> metric) {
+        this(metric, DEFAULT_INITIAL_PULLS, DEFAULT_ERROR_PROBABILITY);
+    }
+
+    @Override
+    public List<V> getRepresentatives(Cluster<V> values) {
+        final List<V> elements = values.getElements();
+        final int n = elements.size();
+        if (n == 0) {
+            return List.of();
+        }
+        final List<Integer> references = IntStream.range(0, n)
+                .boxed()
+                .collect(Collectors.toList());
+        Collections.shuffle(references, new Random(seed));
+        final Arms arms = new Arms(n, Math.log(n / errorProbability));
+        try (ParallelContext context = new ParallelContext()) {
+            final List<Integer> initial = references.subList(0, Math.min(initialPulls, n));
+            context.runParallelWithConsumer(references, () -> null,
+                    (arm, accumulator) -> arms.pull(arm, elements, initial),
+                    (first, second) -> null);
+            final PriorityQueue<Integer> queue = new PriorityQueue<>(n, arms::compare);
+            for (int i = 0; i < n; i++) {
+                arms.updateBound(i);
+                queue.add(i);
+            }
+            while (true) {
+                final int arm = queue.poll();
+                if (arms.pulls[arm] == n) {
+                    return Collections.singletonList(elements.get(arm));
+                }
+                final List<Integer> batch = references.subList(arms.pulls[arm], Math.min(n, 2 * arms.pulls[arm]));
+                final double[] row = new double[n];
+                final V element = elements.get(arm);
+                context.runParallelWithConsumer(batch, () -> null,
+                        (i, accumulator) -> row[i] = metric.distance(element, elements.get(i)),
+                        (first, second) -> null);
+                for (int i : batch) {
+                    arms.add(arm, row[i]);
+                }
+                arms.updateBound(arm);
+                queue.add(arm);
+            }
+        }
+    }
+
+    private class Arms {
+        private final int n;
+        private final double logarithm;
+        private final int[] pulls;
+        private final double[] sums;
+        private final double[] squares;
+        private final double[] bounds;
+
+        private Arms(int n, double logarithm) {
+            this.n = n;
+            this.logarithm = logarithm;
+            this.pulls = new int[n];
+            this.sums = new double[n];
+            this.squares = new double[n];
+            this.bounds = new double[n];
+        }
+
+        private void pull(int arm, List<V> elements, List<Integer> references) {
+            final V element = elements.get(arm);
+            for (int reference : references) {
+                add(arm, metric.distance(element, elements.get(reference)));
+            }
+        }
+
+        private void add(int arm, double distance) {
+            pulls[arm]++;
+            sums[arm] += distance;
+            squares[arm] += distance * distance;
+        }
+
+        /**
+         * Lower confidence bound of the average distance with the correction for sampling without replacement,
+         * which makes the bound exact after comparison with all elements.
+         */
+        private void updateBound(int arm) {
+            final double mean = sums[arm] / pulls[arm];
+            if (pulls[arm] == n) {
+                bounds[arm] = mean;
+                return;
+            }
+            final double variance = Math.max(0, squares[arm] / pulls[arm] - mean * mean)
+                    * pulls[arm] / (pulls[arm] - 1);
+            final double correction = (double) (n - pulls[arm]) / (n - 1);
+            bounds[arm] = mean - Math.sqrt(2 * logarithm * variance * correction / pulls[arm]);
+        }
+
+        private int compare(int first, int second) {
+            final int byBound = Double.compare(bounds[first], bounds[second]);
+            return byBound != 0 ? byBound : Integer.compare(first, second);
+        }
+    }
+}
@@ -5,7 +5,7 @@ import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.OptionSelector;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class HeuristicClosestPairSelector<V, F, H> implements OptionSelector<V, V> {
 
@@ -14,7 +14,7 @@ public class HeuristicClosestPairSelector<V, F, H> implements OptionSelector<V,
     private final DistanceFunction<F> metric;
     private final DistanceFunction<H> heuristicMetric;
     private final List<V> options;
-    private final List<F> features;
+    private final AtomicReferenceArray<F> features;
     private final List<H> heuristics;
 
     public HeuristicClosestPairSelector(FeaturesExtractor<V, F> featuresExtractor,
@@ -28,12 +28,37 @@ public class HeuristicClosestPairSelector<V, F, H> implements OptionSelector<V,
         this.heuristicMetric = heuristicMetric;
         this.options = new ArrayList<>(options);
         Collections.shuffle(this.options);
-        this.features = this.options.stream()
-                .map(featuresExtractor::process)
-                .collect(Collectors.toCollection(ArrayList::new));
-        this.heuristics = this.features.stream()
-                .map(heuristicExtractor::process)
-                .collect(Collectors.toCollection(ArrayList::new));
+        this.features = new AtomicReferenceArray<>(this.options.size());
+        for (int i = 0; i < this.options.size(); i++) {
+            features.set(i, featuresExtractor.process(this.options.get(i)));
+        }
+        this.heuristics = new ArrayList<>(this.options.size());
+        for (int i = 0; i < this.options.size(); i++) {
+            heuristics.add(heuristicExtractor.process(features.get(i)));
+        }
+    }
+
+    /**
+     * Restores selector from precomputed heuristics, features of options are built lazily
+     * when heuristic doesn't allow to skip them.
+     */
+    public HeuristicClosestPairSelector(FeaturesExtractor<V, F> featuresExtractor,
+                                        DistanceFunction<F> metric,
+                                        FeaturesExtractor<F, H> heuristicExtractor,
+                                        DistanceFunction<H> heuristicMetric,
+                                        List<V> options,
+                                        List<H> heuristics) {
+        if (options.size() != heuristics.size()) {
+            throw new IllegalArgumentException("Options and heuristics counts differ: "
+                    + options.size() + " != " + heuristics.size());
+        }
+        this.featuresExtractor = featuresExtractor;
+        this.heuristicExtractor = heuristicExtractor;
+        this.metric = metric;
+        this.heuristicMetric = heuristicMetric;
+        this.options = new ArrayList<>(options);
+        this.features = new AtomicReferenceArray<>(options.size());
+        this.heuristics = new ArrayList<>(heuristics);
     }
 
     @Override
@@ -46,7 +71,7 @@ public class HeuristicClosestPairSelector<V, F, H> implements OptionSelector<V,
             if (heuristicMetric.distance(heuristic, heuristics.get(i), bestDistance) >= bestDistance) {
                 continue;
             }
-            final double distance = metric.distance(feature, features.get(i), bestDistance);
+            final double distance = metric.distance(feature, featureOf(i), bestDistance);
             if (distance < bestDistance) {
                 bestDistance = distance;
                 best = i;
@@ -59,4 +84,17 @@ public class HeuristicClosestPairSelector<V, F, H> implements OptionSelector<V,
     public Collection<V> getOptions() {
         return Collections.unmodifiableList(options);
     }
+
+    public List<H> getHeuristics() {
+        return Collections.unmodifiableList(heuristics);
+    }
+
+    private F featureOf(int index) {
+        final F cached = features.get(index);
+        if (cached != null) {
+            return cached;
+        }
+        final F feature = featuresExtractor.process(options.get(index));
+        return features.compareAndSet(index, null, feature) ? feature : features.get(index);
+    }
 }
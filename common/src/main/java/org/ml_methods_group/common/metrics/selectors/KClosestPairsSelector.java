@@ -1,20 +1,49 @@
 package org.ml_methods_group.common.metrics.selectors;
 
 import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.ManyOptionsSelector;
+import org.ml_methods_group.common.parallel.ParallelContext;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToDoubleFunction;
 
 public class KClosestPairsSelector<V> implements ManyOptionsSelector<V, V> {
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int CHUNKS_PER_WORKER = 4;
 
     private final List<V> options;
     private final DistanceFunction<V> metric;
     private final int k;
+    private final LowerBound<V> lowerBound;
+    private final boolean parallel;
 
     public KClosestPairsSelector(List<V> options, DistanceFunction<V> metric, int kNearest) {
+        this(options, metric, kNearest, false);
+    }
+
+    public KClosestPairsSelector(List<V> options, DistanceFunction<V> metric, int kNearest, boolean parallel) {
         this.options = options;
         this.metric = metric;
         this.k = kNearest;
+        this.lowerBound = null;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param heuristicExtractor extractor of cheap features of options
+     * @param heuristicMetric    distance between cheap features, which never exceeds the distance between options
+     */
+    public <H> KClosestPairsSelector(List<V> options, DistanceFunction<V> metric, int kNearest,
+                                     FeaturesExtractor<V, H> heuristicExtractor,
+                                     DistanceFunction<H> heuristicMetric,
+                                     boolean parallel) {
+        this.options = options;
+        this.metric = metric;
+        this.k = kNearest;
+        this.lowerBound = lowerBoundFor(options, heuristicExtractor, heuristicMetric);
+        this.parallel = parallel;
     }
 
     @Override
@@ -22,19 +51,26 @@ public class KClosestPairsSelector<V> implements ManyOptionsSelector<V, V> {
         if (options.isEmpty()) {
             return Optional.empty();
         }
-        List<V> kClosest = new ArrayList<>(Collections.nCopies(k, options.get(0)));
-        List<Double> kClosestDistances = new ArrayList<>(Collections.nCopies(k, Double.MAX_VALUE));
-        for (V option : options) {
-            final double currentDistance = metric.distance(value, option, kClosestDistances.get(k - 1));
-            for (int i = 0; i < k; ++i) {
-                if (kClosestDistances.get(i) > currentDistance) {
-                    kClosest.add(i, option);
-                    kClosest.remove(k);
-                    kClosestDistances.add(i, currentDistance);
-                    kClosestDistances.remove(k);
-                    break;
-                }
-            }
+        final int[] order = new int[options.size()];
+        Arrays.setAll(order, i -> i);
+        final double[] bounds;
+        if (lowerBound != null) {
+            final IntToDoubleFunction bound = lowerBound.forValue(value);
+            bounds = new double[options.size()];
+            Arrays.setAll(bounds, bound::applyAsDouble);
+            sortByBounds(order, bounds);
+        } else {
+            bounds = null;
+        }
+        final BoundedMaxHeap heap = parallel && options.size() >= PARALLEL_THRESHOLD
+                ? scanParallel(value, order, bounds)
+                : scan(value, order, bounds, 0, order.length, new BoundedMaxHeap(k), null);
+        final List<V> kClosest = new ArrayList<>(k);
+        for (int index : heap.sortedIndexes()) {
+            kClosest.add(options.get(index));
+        }
+        while (kClosest.size() < k) {
+            kClosest.add(options.get(0));
         }
         return Optional.of(kClosest);
     }
@@ -46,4 +82,208 @@ public class KClosestPairsSelector<V> implements ManyOptionsSelector<V, V> {
 
     @Override
     public int getSelectionSize() { return k; }
+
+    /**
+     * Keeps the result of the list-based selection: options are ordered by distance and then by index,
+     * and options at distance {@link Double#MAX_VALUE} or more are never selected. Lower bounds equal
+     * to the k-th distance don't prune an option, because it may still win the tie by a smaller index.
+     */
+    private BoundedMaxHeap scan(V value, int[] order, double[] bounds, int from, int to,
+                                BoundedMaxHeap heap, AtomicLong sharedBound) {
+        for (int position = from; position < to; position++) {
+            final int index = order[position];
+            final double shared = sharedBound == null
+                    ? Double.MAX_VALUE
+                    : Double.longBitsToDouble(sharedBound.get());
+            if (bounds != null) {
+                if (bounds[position] > heap.bound() || bounds[position] > shared
+                        || bounds[position] >= Double.MAX_VALUE) {
+                    break;
+                }
+                if (!heap.canAccept(bounds[position], index)) {
+                    continue;
+                }
+            }
+            final double limit = Math.min(heap.limitFor(index), Math.nextUp(shared));
+            final double distance = metric.distance(value, options.get(index), limit);
+            if (distance < Double.MAX_VALUE && distance <= shared) {
+                heap.offer(index, distance);
+                if (sharedBound != null && heap.isFull()) {
+                    updateMin(sharedBound, heap.bound());
+                }
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * Workers scan chunks of the order and share the smallest k-th distance found so far.
+     * Options farther than it can't be selected, options at the same distance are kept
+     * and ordered when the heaps are merged.
+     */
+    private BoundedMaxHeap scanParallel(V value, int[] order, double[] bounds) {
+        final AtomicLong sharedBound = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+        try (ParallelContext context = new ParallelContext()) {
+            final int chunksCount = Math.min(order.length, context.getParallelism() * CHUNKS_PER_WORKER);
+            final List<int[]> chunks = new ArrayList<>(chunksCount);
+            for (int i = 0; i < chunksCount; i++) {
+                chunks.add(new int[]{(int) ((long) order.length * i / chunksCount),
+                        (int) ((long) order.length * (i + 1) / chunksCount)});
+            }
+            return context.runParallelWithConsumer(chunks,
+                    () -> new BoundedMaxHeap(k),
+                    (chunk, heap) -> scan(value, order, bounds, chunk[0], chunk[1], heap, sharedBound),
+                    BoundedMaxHeap::merge);
+        }
+    }
+
+    private static void updateMin(AtomicLong target, double value) {
+        long current = target.get();
+        while (value < Double.longBitsToDouble(current)
+                && !target.compareAndSet(current, Double.doubleToLongBits(value))) {
+            current = target.get();
+        }
+    }
+
+    /**
+     * Bounds are rounded down to floats, so that a bound and an index are sorted together as a long.
+     * Rounded bounds replace the exact ones and stay lower bounds.
+     */
+    private static void sortByBounds(int[] order, double[] bounds) {
+        final long[] keys = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            final double exact = Math.max(0, bounds[i]);
+            float bound = exact >= Double.MAX_VALUE ? Float.POSITIVE_INFINITY : (float) exact;
+            if (bound > exact) {
+                bound = Math.nextDown(bound);
+            }
+            keys[i] = ((long) Float.floatToIntBits(bound) << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (int) keys[i];
+            bounds[i] = Float.intBitsToFloat((int) (keys[i] >>> 32));
+        }
+    }
+
+    private static <V, H> LowerBound<V> lowerBoundFor(List<V> options, FeaturesExtractor<V, H> extractor,
+                                                      DistanceFunction<H> metric) {
+        final List<H> heuristics = new ArrayList<>(options.size());
+        for (V option : options) {
+            heuristics.add(extractor.process(option));
+        }
+        return value -> {
+            final H heuristic = extractor.process(value);
+            return index -> metric.distance(heuristic, heuristics.get(index));
+        };
+    }
+
+    @FunctionalInterface
+    private interface LowerBound<V> {
+        IntToDoubleFunction forValue(V value);
+    }
+
+    private static class BoundedMaxHeap {
+        private final int[] indexes;
+        private final double[] distances;
+        private int size;
+
+        private BoundedMaxHeap(int capacity) {
+            this.indexes = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        private boolean isFull() {
+            return size == indexes.length;
+        }
+
+        private double bound() {
+            return isFull() ? distances[0] : Double.MAX_VALUE;
+        }
+
+        private boolean canAccept(double distance, int index) {
+            return !isFull() || greater(distances[0], indexes[0], distance, index);
+        }
+
+        /**
+         * Upper bound for the distance computation of option {@code index}: an option with a smaller index
+         * than the current k-th one also needs the distance equal to the k-th distance to be exact.
+         */
+        private double limitFor(int index) {
+            if (!isFull()) {
+                return Double.MAX_VALUE;
+            }
+            return index < indexes[0] ? Math.nextUp(distances[0]) : distances[0];
+        }
+
+        private void offer(int index, double distance) {
+            if (!isFull()) {
+                int position = size++;
+                while (position > 0) {
+                    final int parent = (position - 1) / 2;
+                    if (!greater(distance, index, distances[parent], indexes[parent])) {
+                        break;
+                    }
+                    indexes[position] = indexes[parent];
+                    distances[position] = distances[parent];
+                    position = parent;
+                }
+                indexes[position] = index;
+                distances[position] = distance;
+            } else if (greater(distances[0], indexes[0], distance, index)) {
+                siftDown(indexes, distances, size, index, distance);
+            }
+        }
+
+        /**
+         * Heap sort of a copy: the greatest option is moved behind the heap, which shrinks by one.
+         */
+        private int[] sortedIndexes() {
+            final int[] sortedIndexes = Arrays.copyOf(indexes, size);
+            final double[] sortedDistances = Arrays.copyOf(distances, size);
+            for (int end = size - 1; end > 0; end--) {
+                final int index = sortedIndexes[end];
+                final double distance = sortedDistances[end];
+                sortedIndexes[end] = sortedIndexes[0];
+                sortedDistances[end] = sortedDistances[0];
+                siftDown(sortedIndexes, sortedDistances, end, index, distance);
+            }
+            return sortedIndexes;
+        }
+
+        /**
+         * Puts the option to the root of the heap of {@code size} first elements and moves it down.
+         */
+        private static void siftDown(int[] indexes, double[] distances, int size, int index, double distance) {
+            int position = 0;
+            while (true) {
+                final int left = 2 * position + 1;
+                if (left >= size) {
+                    break;
+                }
+                final int right = left + 1;
+                final int child = right < size && greater(distances[right], indexes[right],
+                        distances[left], indexes[left]) ? right : left;
+                if (!greater(distances[child], indexes[child], distance, index)) {
+                    break;
+                }
+                indexes[position] = indexes[child];
+                distances[position] = distances[child];
+                position = child;
+            }
+            indexes[position] = index;
+            distances[position] = distance;
+        }
+
+        private static BoundedMaxHeap merge(BoundedMaxHeap first, BoundedMaxHeap second) {
+            for (int i = 0; i < second.size; i++) {
+                first.offer(second.indexes[i], second.distances[i]);
+            }
+            return first;
+        }
+
+        private static boolean greater(double firstDistance, int firstIndex, double secondDistance, int secondIndex) {
+            return firstDistance > secondDistance || firstDistance == secondDistance && firstIndex > secondIndex;
+        }
+    }
 }
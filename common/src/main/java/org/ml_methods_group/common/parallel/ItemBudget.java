@@ -0,0 +1,66 @@
+package org.ml_methods_group.common.parallel;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Time limit for processing of a single item by {@link ParallelContext}.
+ * With {@link Policy#REPORT} slow items are only reported and counted. With {@link Policy#SKIP} and
+ * {@link Policy#FALLBACK} items are processed on a helper thread with a separate accumulator: when the limit
+ * is exceeded the helper is interrupted, its partial result is dropped and the item is either skipped or
+ * given to the fallback processor. Limit is counted from the start of the item on the helper, helpers come
+ * from a shared pool of {@link ParallelContext#ITEM_WORKERS_PROPERTY} threads.
+ */
+public class ItemBudget<V, C, A> {
+
+    public enum Policy {
+        REPORT, SKIP, FALLBACK
+    }
+
+    private final long timeoutNanos;
+    private final Policy policy;
+    private final ParallelProcessor<V, C, A> fallback;
+
+    private ItemBudget(long timeout, TimeUnit unit, Policy policy, ParallelProcessor<V, C, A> fallback) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout has to be positive: " + timeout);
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.policy = policy;
+        this.fallback = fallback;
+    }
+
+    public static <V, C, A> ItemBudget<V, C, A> report(long timeout, TimeUnit unit) {
+        return new ItemBudget<>(timeout, unit, Policy.REPORT, null);
+    }
+
+    public static <V, C, A> ItemBudget<V, C, A> skip(long timeout, TimeUnit unit) {
+        return new ItemBudget<>(timeout, unit, Policy.SKIP, null);
+    }
+
+    public static <V, C, A> ItemBudget<V, C, A> fallback(long timeout, TimeUnit unit,
+                                                         ParallelProcessor<V, C, A> fallback) {
+        return new ItemBudget<>(timeout, unit, Policy.FALLBACK, Objects.requireNonNull(fallback));
+    }
+
+    public static <V, A> ItemBudget<V, Object, A> fallback(long timeout, TimeUnit unit, BiConsumer<V, A> fallback) {
+        Objects.requireNonNull(fallback);
+        return new ItemBudget<>(timeout, unit, Policy.FALLBACK, (value, context, accumulator) -> {
+            fallback.accept(value, accumulator);
+            return accumulator;
+        });
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    ParallelProcessor<V, C, A> getFallback() {
+        return fallback;
+    }
+}
@@ -1,30 +1,135 @@
 package org.ml_methods_group.common.parallel;
 
+import org.ml_methods_group.common.instrumentation.Metrics;
+import org.ml_methods_group.common.instrumentation.StageMetrics;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class ParallelContext implements AutoCloseable {
-    private final ExecutorService service;
+    public static final String PARALLELISM_PROPERTY = "org.ml_methods_group.parallelism";
+    public static final String ITEM_WORKERS_PROPERTY = "org.ml_methods_group.parallelism.items";
+
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Object TIMED_OUT = new Object();
+    private static final Object NOT_STARTED = new Object();
+
+    static final int ITEM_WORKERS = Math.max(1, Integer.getInteger(ITEM_WORKERS_PROPERTY,
+            2 * Runtime.getRuntime().availableProcessors()));
+    private static final ThreadPoolExecutor ITEM_SERVICE = new ThreadPoolExecutor(ITEM_WORKERS, ITEM_WORKERS,
+            1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), task -> {
+        final Thread thread = new Thread(task, "parallel-item-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // items, which exceeded their budget, but still hold a worker because they ignore interruption
+    private static final AtomicInteger ABANDONED_ITEMS = new AtomicInteger();
+
+    static {
+        ITEM_SERVICE.allowCoreThreadTimeOut(true);
+    }
+
+    private static volatile ForkJoinPool sharedPool;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private volatile boolean cancelled = false;
+    private volatile StageMetrics stage;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder inlined = new LongAdder();
 
     public ParallelContext() {
-        this.service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this(getSharedPool(), false);
+    }
+
+    public ParallelContext(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    private ParallelContext(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    public static ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            synchronized (ParallelContext.class) {
+                if (sharedPool == null) {
+                    final int parallelism = Integer.getInteger(PARALLELISM_PROPERTY,
+                            Runtime.getRuntime().availableProcessors());
+                    sharedPool = new ForkJoinPool(Math.max(1, parallelism));
+                }
+            }
+        }
+        return sharedPool;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Records latency of every processed item to the stage {@code name} of {@link Metrics}.
+     */
+    public ParallelContext instrument(String name) {
+        stage = Metrics.stage(name);
+        return this;
+    }
+
+    public ParallelStatistics getStatistics() {
+        return new ParallelStatistics(processed.sum(), timedOut.sum(), skipped.sum(), fallbacks.sum(),
+                inlined.sum());
+    }
+
+    /**
+     * Long running processors should call it between expensive steps: items, which exceeded
+     * their {@link ItemBudget}, are stopped by interruption. Items ignoring it keep one of
+     * {@link #ITEM_WORKERS} shared workers busy until they finish, if all workers stay busy
+     * this way for a whole budget, new items are processed without the limit on the calling thread.
+     */
+    public static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Item processing was interrupted");
+        }
     }
 
     @Override
     public void close() {
-        service.shutdownNow();
+        if (ownsPool) {
+            pool.shutdownNow();
+        }
     }
 
     public <V, A> A runParallelWithConsumer(List<V> values,
                                 Supplier<? extends A> accumulatorFactory,
                                 BiConsumer<V, A> processor,
                                 BinaryOperator<A> combiner) {
+        return runParallelWithConsumer(values, accumulatorFactory, processor, combiner, null);
+    }
+
+    public <V, A> A runParallelWithConsumer(List<V> values,
+                                Supplier<? extends A> accumulatorFactory,
+                                BiConsumer<V, A> processor,
+                                BinaryOperator<A> combiner,
+                                ItemBudget<? super V, ? super Void, A> budget) {
         return this.<V, Void, A>runParallel(values,
                 accumulatorFactory,
                 () -> null,
@@ -32,7 +137,8 @@ public class ParallelContext implements AutoCloseable {
                     processor.accept(value, accumulator);
                     return accumulator;
                 },
-                combiner);
+                combiner,
+                budget);
     }
 
     public <V, A> A runParallel(List<V> values,
@@ -63,64 +169,257 @@ public class ParallelContext implements AutoCloseable {
                                    Supplier<? extends C> contextFactory,
                                    ParallelProcessor<V, C, A> processor,
                                    BinaryOperator<A> combiner) {
-        final List<Callable<A>> tasks = splitValues(values).stream()
-                .sequential()
-                .map(list -> new Task<>(list, accumulatorFactory, contextFactory, processor))
-                .collect(Collectors.toList());
-        final List<Future<A>> results = new ArrayList<>();
-        for (Callable<A> task : tasks) {
-            results.add(service.submit(task));
-        }
-        return results.stream()
-                .sequential()
-                .map(ParallelContext::getResult)
-                .reduce(combiner)
-                .orElseGet(accumulatorFactory);
-    }
-
-    private static <V> List<List<V>> splitValues(List<V> values) {
-        final List<List<V>> lists = new ArrayList<>();
-        final int valuesCount = values.size();
-        final int blocksCount = Math.min(4, values.size());
-        final int blockSize = (valuesCount - 1) / blocksCount + 1; // round up
-        for (int blockStart = 0; blockStart < valuesCount; blockStart += blockSize) {
-            lists.add(values.subList(blockStart, Math.min(blockStart + blockSize, valuesCount)));
-        }
-        return lists;
-    }
-
-    private static <V> V getResult(Future<V> future) {
-        while (true) {
-            try {
-                return future.get();
-            } catch (InterruptedException ignored) {
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
-            }
+        return runParallel(values, accumulatorFactory, contextFactory, processor, combiner, null);
+    }
+
+    /**
+     * With {@code budget} every item is limited in time, see {@link ItemBudget}.
+     * Skipping and fallback policies require {@code combiner} to merge a fresh accumulator
+     * with the result of a single item, as it is done for forked parts of the list.
+     */
+    public <V, C, A> A runParallel(List<V> values,
+                                   Supplier<? extends A> accumulatorFactory,
+                                   Supplier<? extends C> contextFactory,
+                                   ParallelProcessor<V, C, A> processor,
+                                   BinaryOperator<A> combiner,
+                                   ItemBudget<? super V, ? super C, A> budget) {
+        if (cancelled) {
+            throw new CancellationException("Parallel context was cancelled");
+        }
+        if (values.isEmpty()) {
+            return accumulatorFactory.get();
+        }
+        final StageMetrics stage = this.stage;
+        if (stage != null) {
+            stage.expect(Math.max(stage.getExpected(), stage.getCount()) + values.size());
         }
+        final Run<V, C, A> run = new Run<>(values, accumulatorFactory, contextFactory, processor, combiner,
+                budget, stage);
+        final A result = pool.invoke(new Task<>(run, 0, values.size()));
+        if (cancelled) {
+            throw new CancellationException("Parallel context was cancelled");
+        }
+        return result;
     }
 
-    private class Task<V, C, A> implements Callable<A> {
+    private class Run<V, C, A> {
         private final List<V> values;
         private final Supplier<? extends A> accumulatorFactory;
         private final Supplier<? extends C> contextFactory;
         private final ParallelProcessor<V, C, A> processor;
+        private final BinaryOperator<A> combiner;
+        private final ItemBudget<? super V, ? super C, A> budget;
+        private final StageMetrics stage;
+        private volatile boolean failed = false;
 
-        private Task(List<V> values, Supplier<? extends A> accumulatorFactory, Supplier<? extends C> contextFactory,
-                     ParallelProcessor<V, C, A> processor) {
+        private Run(List<V> values, Supplier<? extends A> accumulatorFactory, Supplier<? extends C> contextFactory,
+                    ParallelProcessor<V, C, A> processor, BinaryOperator<A> combiner,
+                    ItemBudget<? super V, ? super C, A> budget, StageMetrics stage) {
             this.values = values;
             this.accumulatorFactory = accumulatorFactory;
             this.contextFactory = contextFactory;
             this.processor = processor;
+            this.combiner = combiner;
+            this.budget = budget;
+            this.stage = stage;
+        }
+
+        private boolean isStopped() {
+            return failed || cancelled;
+        }
+    }
+
+    private class Task<V, C, A> extends RecursiveTask<A> {
+        private final Run<V, C, A> run;
+        private final int start;
+        private final int end;
+
+        private Task(Run<V, C, A> run, int start, int end) {
+            this.run = run;
+            this.start = start;
+            this.end = end;
         }
 
-        public A call() {
-            final C context = contextFactory.get();
-            A accumulator = accumulatorFactory.get();
-            for (V value : values) {
-                accumulator = processor.process(value, context, accumulator);
+        @Override
+        protected A compute() {
+            C context = run.contextFactory.get();
+            A accumulator = run.accumulatorFactory.get();
+            final List<Task<V, C, A>> forked = new ArrayList<>();
+            int limit = end;
+            int count = 0;
+            try {
+                for (int i = start; i < limit && !run.isStopped(); i++) {
+                    // lazy binary splitting: hand off half of the rest only when our previous part was stolen
+                    if (limit - i > 1 && getQueuedTaskCount() == 0) {
+                        final int middle = i + (limit - i + 1) / 2;
+                        final Task<V, C, A> task = new Task<>(run, middle, limit);
+                        task.fork();
+                        forked.add(task);
+                        limit = middle;
+                    }
+                    final V value = run.values.get(i);
+                    final long itemStart = run.stage == null ? 0 : System.nanoTime();
+                    if (run.budget == null) {
+                        accumulator = run.processor.process(value, context, accumulator);
+                    } else if (run.budget.getPolicy() == ItemBudget.Policy.REPORT) {
+                        final long startTime = System.nanoTime();
+                        accumulator = run.processor.process(value, context, accumulator);
+                        if (System.nanoTime() - startTime > run.budget.getTimeoutNanos()) {
+                            reportTimeout();
+                        }
+                    } else {
+                        final C itemContext = context;
+                        final ItemTask<A> item = new ItemTask<>(() ->
+                                run.processor.process(value, itemContext, run.accumulatorFactory.get()));
+                        ITEM_SERVICE.execute(item);
+                        final Object result = await(item);
+                        if (result == NOT_STARTED) {
+                            accumulator = run.processor.process(value, context, accumulator);
+                            inlined.increment();
+                        } else if (result != TIMED_OUT) {
+                            @SuppressWarnings("unchecked") final A itemResult = (A) result;
+                            accumulator = run.combiner.apply(accumulator, itemResult);
+                        } else if (!run.isStopped()) {
+                            reportTimeout();
+                            // interrupted item may still use the old context
+                            context = run.contextFactory.get();
+                            if (run.budget.getPolicy() == ItemBudget.Policy.SKIP) {
+                                skipped.increment();
+                            } else {
+                                accumulator = run.budget.getFallback().process(value, context, accumulator);
+                                fallbacks.increment();
+                            }
+                        }
+                    }
+                    if (run.stage != null) {
+                        run.stage.record(itemStart);
+                    }
+                    count++;
+                }
+            } catch (RuntimeException | Error e) {
+                run.failed = true;
+                throw e;
+            } finally {
+                processed.add(count);
+            }
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                accumulator = run.combiner.apply(accumulator, forked.get(i).join());
             }
             return accumulator;
         }
+
+        /**
+         * Waits for the item at most for its budget, counted from the moment a worker started it.
+         * Returns {@link #NOT_STARTED} without waiting, if no worker can take the item, because all of them
+         * are held by timed out items.
+         */
+        private Object await(ItemTask<A> item) {
+            long deadline = 0;
+            boolean started = false;
+            long exhaustedSince = -1;
+            try {
+                while (true) {
+                    if (run.isStopped()) {
+                        item.abandon();
+                        return TIMED_OUT;
+                    }
+                    if (!started) {
+                        started = item.isStarted();
+                        if (started) {
+                            deadline = item.startTime + run.budget.getTimeoutNanos();
+                        } else if (ABANDONED_ITEMS.get() < ITEM_WORKERS) {
+                            exhaustedSince = -1;
+                        } else if (exhaustedSince == -1) {
+                            exhaustedSince = System.nanoTime();
+                        } else if (System.nanoTime() - exhaustedSince >= run.budget.getTimeoutNanos()
+                                && item.abandon()) {
+                            // workers stayed held by abandoned items for a whole budget
+                            return NOT_STARTED;
+                        }
+                    }
+                    final long remaining = started ? deadline - System.nanoTime() : WAIT_SLICE_NANOS;
+                    if (remaining <= 0) {
+                        item.abandon();
+                        return TIMED_OUT;
+                    }
+                    try {
+                        return item.get(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException ignored) {
+                        // check deadline and cancellation again
+                    }
+                }
+            } catch (InterruptedException e) {
+                item.abandon();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for item");
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+
+        private void reportTimeout() {
+            timedOut.increment();
+            if (run.stage != null) {
+                run.stage.recordTimeout();
+            }
+        }
+    }
+
+    static int getAbandonedItems() {
+        return ABANDONED_ITEMS.get();
+    }
+
+    private static class ItemTask<A> extends FutureTask<A> {
+        private static final int WAITING = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+        private static final int ABANDONED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile long startTime;
+
+        private ItemTask(Callable<A> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            startTime = System.nanoTime();
+            if (!state.compareAndSet(WAITING, RUNNING)) {
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                if (!state.compareAndSet(RUNNING, FINISHED)) {
+                    ABANDONED_ITEMS.decrementAndGet();
+                }
+            }
+        }
+
+        private boolean isStarted() {
+            return state.get() != WAITING;
+        }
+
+        /**
+         * Returns {@code true} if the item was abandoned before a worker started it.
+         */
+        private boolean abandon() {
+            if (state.compareAndSet(WAITING, ABANDONED)) {
+                cancel(false);
+                return true;
+            }
+            cancel(true);
+            if (state.compareAndSet(RUNNING, ABANDONED)) {
+                ABANDONED_ITEMS.incrementAndGet();
+            }
+            return false;
+        }
     }
 }
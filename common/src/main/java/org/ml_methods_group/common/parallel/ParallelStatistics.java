@@ -0,0 +1,47 @@
+package org.ml_methods_group.common.parallel;
+
+public class ParallelStatistics {
+    private final long processed;
+    private final long timedOut;
+    private final long skipped;
+    private final long fallbacks;
+    private final long inlined;
+
+    ParallelStatistics(long processed, long timedOut, long skipped, long fallbacks, long inlined) {
+        this.processed = processed;
+        this.timedOut = timedOut;
+        this.skipped = skipped;
+        this.fallbacks = fallbacks;
+        this.inlined = inlined;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * Items with budget, which were processed without the limit, because all item workers were held
+     * by timed out items.
+     */
+    public long getInlined() {
+        return inlined;
+    }
+
+    @Override
+    public String toString() {
+        return "processed: " + processed + ", timed out: " + timedOut
+                + " (skipped: " + skipped + ", fallbacks: " + fallbacks + "), without limit: " + inlined;
+    }
+}
@@ -3,6 +3,7 @@ package org.ml_methods_group.common.serialization;
 import org.ml_methods_group.common.*;
 import org.ml_methods_group.common.ast.changes.Changes;
 import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
 import org.ml_methods_group.common.ast.changes.CodeChange.NodeState;
 import org.ml_methods_group.common.proto.*;
 
@@ -59,6 +60,10 @@ public class EntityToProtoUtils {
                 .build();
     }
 
+    public static ProtoAtomicChange transform(CompactCodeChange change) {
+        return transform(change.toCodeChange());
+    }
+
     public static ProtoChanges transform(Changes changes) {
         final List<ProtoAtomicChange> atomicChanges = changes.getChanges().stream()
                 .map(EntityToProtoUtils::transform)
@@ -200,4 +205,16 @@ public class EntityToProtoUtils {
         dataset.forEach(x -> builder.addSolutions(transform(x)));
         return builder.build();
     }
+
+    public static ProtoDendrogram transformDendrogram(Dendrogram<Solution> dendrogram) {
+        final var builder = ProtoDendrogram.newBuilder()
+                .setDistanceLimit(dendrogram.getDistanceLimit());
+        dendrogram.getValues().forEach(x -> builder.addValues(transform(x)));
+        for (int i = 0; i < dendrogram.getMergesCount(); i++) {
+            builder.addFirst(dendrogram.getFirst(i))
+                    .addSecond(dendrogram.getSecond(i))
+                    .addHeights(dendrogram.getHeight(i));
+        }
+        return builder.build();
+    }
 }
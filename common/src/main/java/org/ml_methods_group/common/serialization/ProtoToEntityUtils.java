@@ -5,6 +5,8 @@ import org.ml_methods_group.common.ast.NodeType;
 import org.ml_methods_group.common.ast.changes.ChangeType;
 import org.ml_methods_group.common.ast.changes.Changes;
 import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
 import org.ml_methods_group.common.proto.*;
 
 import java.util.ArrayList;
@@ -57,6 +59,36 @@ public class ProtoToEntityUtils {
         );
     }
 
+    public static CompactCodeChange transform(ProtoAtomicChange proto, SymbolTable table) {
+        final ProtoNodeContext original = proto.getOriginalContext();
+        final ProtoNodeContext destination = proto.getDestinationContext();
+        final CompactCodeChange.Builder builder = new CompactCodeChange.Builder(proto.getChangeType(), table,
+                original.getUnclesCount(), original.getBrothersCount(), original.getChildrenCount(),
+                destination.getUnclesCount(), destination.getBrothersCount(), destination.getChildrenCount());
+        for (ProtoNodeContext context : List.of(original, destination)) {
+            addState(builder, context.getNode());
+            addState(builder, context.getParent());
+            addState(builder, context.getParentOfParent());
+        }
+        for (ProtoNodeContext context : List.of(original, destination)) {
+            context.getUnclesList().forEach(state -> addState(builder, state));
+            context.getBrothersList().forEach(state -> addState(builder, state));
+            context.getChildrenList().forEach(state -> addState(builder, state));
+        }
+        return builder.build();
+    }
+
+    private static void addState(CompactCodeChange.Builder builder, ProtoNodeState proto) {
+        builder.addState(proto.getNodeType(), proto.getJavaType(), proto.getLabel(), proto.getOriginalLabel(),
+                proto.getPositionInParent());
+    }
+
+    public static List<CompactCodeChange> transform(ProtoChanges proto, SymbolTable table) {
+        return proto.getChangesList().stream()
+                .map(change -> transform(change, table))
+                .collect(Collectors.toList());
+    }
+
     public static Changes transform(ProtoChanges proto) {
         return new Changes(
                 transform(proto.getSrc()),
@@ -125,6 +157,18 @@ public class ProtoToEntityUtils {
         return new MarkedClusters<>(map);
     }
 
+    public static MarkedClusters<List<CompactCodeChange>, String> transform(ProtoMarkedChangesClusters proto,
+                                                                            SymbolTable table) {
+        final Map<Cluster<List<CompactCodeChange>>, String> map = new HashMap<>();
+        for (ProtoMarkedChangesCluster cluster : proto.getClustersList()) {
+            final List<List<CompactCodeChange>> solutions = cluster.getSolutionsList().stream()
+                    .map(changes -> transform(changes, table))
+                    .collect(Collectors.toList());
+            map.put(new Cluster<>(solutions), cluster.getMark());
+        }
+        return new MarkedClusters<>(map);
+    }
+
     public static SolutionMarksHolder transform(ProtoSolutionMarksHolder proto) {
         final HashMap<Solution, List<String>> buffer = new HashMap<>();
         for (var solutionMarks : proto.getMapList()) {
@@ -140,4 +184,17 @@ public class ProtoToEntityUtils {
                 .collect(Collectors.toList());
         return new Dataset(solutions);
     }
+
+    public static Dendrogram<Solution> transform(ProtoDendrogram proto) {
+        final List<Solution> values = proto.getValuesList().stream()
+                .map(ProtoToEntityUtils::transform)
+                .collect(Collectors.toList());
+        final int[] first = proto.getFirstList().stream().mapToInt(Integer::intValue).toArray();
+        final int[] second = proto.getSecondList().stream().mapToInt(Integer::intValue).toArray();
+        final float[] heights = new float[proto.getHeightsCount()];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = proto.getHeights(i);
+        }
+        return new Dendrogram<>(values, first, second, heights, proto.getDistanceLimit());
+    }
 }
@@ -2,6 +2,8 @@ package org.ml_methods_group.common.serialization;
 
 import org.ml_methods_group.common.*;
 import org.ml_methods_group.common.ast.changes.Changes;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
 import org.ml_methods_group.common.proto.*;
 
 import java.io.File;
@@ -10,6 +12,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 public class ProtobufSerializationUtils {
 
@@ -80,6 +84,16 @@ public class ProtobufSerializationUtils {
         }
     }
 
+    /**
+     * Loads marked changes encoded as {@link CompactCodeChange} without building {@link Changes} first.
+     */
+    public static MarkedClusters<List<CompactCodeChange>, String> loadCompactMarkedChangesClusters(
+            Path path, SymbolTable table) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(path.toFile())) {
+            return ProtoToEntityUtils.transform(ProtoMarkedChangesClusters.parseFrom(inputStream), table);
+        }
+    }
+
     public static void storeSolutionMarksHolder(SolutionMarksHolder holder, Path path) throws IOException {
         final File directory = path.getParent().toFile();
         if (!directory.exists() && !directory.mkdirs()) {
@@ -111,4 +125,35 @@ public class ProtobufSerializationUtils {
             return ProtoToEntityUtils.transform(ProtoDataset.parseFrom(inputStream));
         }
     }
+
+    /**
+     * @param fingerprint identifies the clustering configuration (approach, metric, changes generation),
+     *                    which the dendrogram was built with
+     */
+    public static void storeSolutionDendrogram(Dendrogram<Solution> dendrogram, String fingerprint,
+                                               Path path) throws IOException {
+        final File directory = path.getParent().toFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create parent directories: " + directory.toString());
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(path.toFile())) {
+            EntityToProtoUtils.transformDendrogram(dendrogram).toBuilder()
+                    .setFingerprint(fingerprint)
+                    .build()
+                    .writeTo(outputStream);
+        }
+    }
+
+    /**
+     * Returns empty result if the stored dendrogram was built with another fingerprint.
+     */
+    public static Optional<Dendrogram<Solution>> loadSolutionDendrogram(Path path,
+                                                                       String fingerprint) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(path.toFile())) {
+            final ProtoDendrogram proto = ProtoDendrogram.parseFrom(inputStream);
+            return proto.getFingerprint().equals(fingerprint)
+                    ? Optional.of(ProtoToEntityUtils.transform(proto))
+                    : Optional.empty();
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package org.ml_methods_group.common.ast.changes;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BasicChangeGeneratorTest {
+
+    private static final String[] LABELS = {"", "a", "b", "c"};
+
+    private static ITree randomTree(TreeContext context, Random random, int depth) {
+        final ITree tree = context.createTree(random.nextInt(4), LABELS[random.nextInt(LABELS.length)], "");
+        final int children = depth == 0 ? 0 : random.nextInt(4);
+        for (int i = 0; i < children; i++) {
+            tree.addChild(randomTree(context, random, depth - 1));
+        }
+        return tree;
+    }
+
+    private static ITree validated(ITree tree) {
+        final TreeContext context = new TreeContext();
+        context.setRoot(tree);
+        context.validate();
+        return tree;
+    }
+
+    private static ITree mutate(ITree tree, Random random) {
+        final ITree copy = tree.deepCopy();
+        for (ITree node : copy.getTrees()) {
+            if (random.nextInt(5) == 0) {
+                node.setLabel(LABELS[random.nextInt(LABELS.length)]);
+            }
+            if (random.nextInt(7) == 0 && !node.getChildren().isEmpty()) {
+                node.getChildren().remove(random.nextInt(node.getChildren().size()));
+            }
+        }
+        return copy;
+    }
+
+    @Test
+    public void testBoundedDiffSize() {
+        final Random random = new Random(239);
+        final BasicChangeGenerator generator = new BasicChangeGenerator(null);
+        for (int test = 0; test < 300; test++) {
+            final TreeContext context = new TreeContext();
+            final ITree origin = validated(randomTree(context, random, 4));
+            final ITree target = validated(random.nextBoolean() ? mutate(origin, random)
+                    : randomTree(context, random, 4));
+            final int expected = generator.diffSize(origin, target);
+            for (int bound = 0; bound <= expected + 2; bound++) {
+                assertEquals(Math.min(expected, bound), generator.diffSize(origin, target, bound));
+            }
+            assertEquals(expected, generator.diffSize(origin, target, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBoundedDiffSizeFailsWithMatchers() {
+        final BasicChangeGenerator generator = new BasicChangeGenerator(null, Collections.singletonList((x, y) -> {
+            throw new IllegalStateException();
+        }));
+        final TreeContext context = new TreeContext();
+        final ITree origin = validated(context.createTree(0, "", ""));
+        final ITree target = validated(randomTree(context, new Random(566), 4));
+        generator.diffSize(origin, target, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package org.ml_methods_group.common.ast.changes;
+
+import com.github.gumtreediff.tree.ITree;
+import org.junit.Test;
+import org.ml_methods_group.common.Repository;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.NodeType;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeContext;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeState;
+import org.ml_methods_group.common.ast.generation.ASTGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CachingChangeGeneratorTest {
+
+    private static Solution solution(int id) {
+        return new Solution("code" + id, 1, id, id, Solution.Verdict.FAIL);
+    }
+
+    private static CodeChange change(int index) {
+        final NodeState state = new NodeState(NodeType.SIMPLE_NAME, null, "name" + index, null, 0);
+        final NodeState[] empty = new NodeState[0];
+        final NodeContext context = new NodeContext(state, state, state, empty, empty, empty);
+        return new CodeChange(context, context, ChangeType.UPDATE);
+    }
+
+    private static class CountingGenerator implements ChangeGenerator {
+        private final String fingerprint;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingGenerator(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public Changes getChanges(Solution origin, Solution target) {
+            calls.incrementAndGet();
+            final List<CodeChange> changes = new ArrayList<>();
+            for (int i = 0; i < (origin.getSolutionId() + target.getSolutionId()) % 3 + 1; i++) {
+                changes.add(change(i));
+            }
+            return new Changes(origin, target, changes);
+        }
+
+        @Override
+        public int diffSize(ITree origin, ITree target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ASTGenerator getGenerator() {
+            return null;
+        }
+
+        @Override
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    private static class MemoryRepository implements Repository<String, byte[]> {
+        private final Map<String, byte[]> values = new HashMap<>();
+        private int stores = 0;
+
+        @Override
+        public synchronized Optional<byte[]> loadValue(String key) {
+            return Optional.ofNullable(values.get(key));
+        }
+
+        @Override
+        public synchronized void storeValue(String key, byte[] value) {
+            stores++;
+            values.put(key, value);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        final CountingGenerator oracle = new CountingGenerator("first");
+        final CachingChangeGenerator generator = new CachingChangeGenerator(oracle, 10);
+        for (int i = 0; i < 20; i++) {
+            generator.getChanges(solution(i), solution(100));
+        }
+        assertEquals(20, oracle.calls.get());
+        assertTrue(generator.size() < 20);
+        assertTrue(generator.getEvictions() > 0);
+        generator.getChanges(solution(19), solution(100));
+        assertEquals(20, oracle.calls.get());
+        assertEquals(1, generator.getHits());
+        generator.getChanges(solution(0), solution(100));
+        assertEquals(21, oracle.calls.get());
+    }
+
+    @Test
+    public void testSpillAndReload() {
+        final MemoryRepository spill = new MemoryRepository();
+        final CountingGenerator oracle = new CountingGenerator("first");
+        final CachingChangeGenerator generator = new CachingChangeGenerator(oracle, 10, spill);
+        for (int i = 0; i < 20; i++) {
+            generator.getChanges(solution(i), solution(100));
+        }
+        assertEquals(generator.getEvictions(), spill.stores);
+        final Changes reloaded = generator.getChanges(solution(0), solution(100));
+        assertEquals(20, oracle.calls.get());
+        assertEquals(oracle.getChanges(solution(0), solution(100)).getChanges(), reloaded.getChanges());
+        assertEquals(solution(0), reloaded.getOrigin());
+
+        final CachingChangeGenerator restarted = new CachingChangeGenerator(new CountingGenerator("first"), 10, spill);
+        assertEquals(reloaded.getChanges(), restarted.getChanges(solution(0), solution(100)).getChanges());
+        assertEquals(1, restarted.getHits());
+    }
+
+    @Test
+    public void testReloadedEntriesAreNotSpilledAgain() {
+        final MemoryRepository spill = new MemoryRepository();
+        final CountingGenerator oracle = new CountingGenerator("first");
+        final CachingChangeGenerator generator = new CachingChangeGenerator(oracle, 10, spill);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                generator.getChanges(solution(i), solution(100));
+            }
+        }
+        assertEquals(20, oracle.calls.get());
+        assertTrue(generator.getEvictions() > spill.stores);
+        assertEquals(spill.values.size(), spill.stores);
+    }
+
+    @Test
+    public void testSpillIsKeyedByFingerprint() {
+        final MemoryRepository spill = new MemoryRepository();
+        final CachingChangeGenerator first = new CachingChangeGenerator(new CountingGenerator("first"), 10, spill);
+        for (int i = 0; i < 20; i++) {
+            first.getChanges(solution(i), solution(100));
+        }
+        assertFalse(spill.values.isEmpty());
+        final CountingGenerator oracle = new CountingGenerator("second");
+        final CachingChangeGenerator second = new CachingChangeGenerator(oracle, 10, spill);
+        second.getChanges(solution(0), solution(100));
+        assertEquals(1, oracle.calls.get());
+        assertEquals(0, second.getHits());
+    }
+}
@@ -0,0 +1,50 @@
+package org.ml_methods_group.common.instrumentation;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverValues() {
+        final Random random = new Random(239);
+        for (int i = 0; i < 100_000; i++) {
+            final long value = random.nextLong() >>> (1 + random.nextInt(63));
+            final int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowestEquivalent(index) <= value);
+            assertTrue(LatencyHistogram.highestEquivalent(index) >= value);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalent(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 10_000).parallel().forEach(value -> histogram.record(value * 1000L));
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1e-6);
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            final double expected = percentile * 100_000;
+            assertEquals(expected, histogram.getPercentile(percentile), expected / 32);
+        }
+        assertEquals(histogram.getMax(), histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testStageMetrics() {
+        final StageMetrics stage = Metrics.stage("test.stage");
+        stage.expect(10);
+        for (int i = 0; i < 5; i++) {
+            stage.record(System.nanoTime() - 1_000_000);
+        }
+        assertSame(stage, Metrics.stage("test.stage"));
+        assertEquals(5, stage.getCount());
+        assertTrue(stage.getEtaSeconds() >= 0);
+        assertTrue(Metrics.toJson().contains("\"name\":\"test.stage\",\"count\":5"));
+    }
+}
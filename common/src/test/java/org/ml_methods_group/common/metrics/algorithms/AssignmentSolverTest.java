@@ -0,0 +1,39 @@
+package org.ml_methods_group.common.metrics.algorithms;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AssignmentSolverTest {
+
+    @Test
+    public void testMatchesAssignmentProblem() {
+        final Random random = new Random(239);
+        final AssignmentSolver solver = AssignmentSolver.getInstance();
+        for (int test = 0; test < 2000; test++) {
+            final int rows = 1 + random.nextInt(12);
+            final int columns = 1 + random.nextInt(12);
+            final int[][] matrix = new int[rows][columns];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    matrix[i][j] = random.nextInt(test % 2 == 0 ? 1001 : 5);
+                }
+            }
+            final boolean findMin = random.nextBoolean();
+            final int expected = new AssignmentProblem(matrix, findMin).solve();
+            final int[] weights = solver.weights(rows, columns);
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(matrix[i], 0, weights, i * columns, columns);
+            }
+            final long actual = findMin ? solver.minimize(rows, columns) : solver.maximize(rows, columns);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testEmptyMatrix() {
+        assertEquals(0, AssignmentSolver.getInstance().maximize(0, 5));
+    }
+}
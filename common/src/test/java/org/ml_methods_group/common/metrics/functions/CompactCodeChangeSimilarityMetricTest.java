@@ -0,0 +1,110 @@
+package org.ml_methods_group.common.metrics.functions;
+
+import org.junit.Test;
+import org.ml_methods_group.common.ast.NodeType;
+import org.ml_methods_group.common.ast.changes.ChangeType;
+import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeContext;
+import org.ml_methods_group.common.ast.changes.CodeChange.NodeState;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
+import org.ml_methods_group.common.serialization.EntityToProtoUtils;
+import org.ml_methods_group.common.serialization.ProtoToEntityUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompactCodeChangeSimilarityMetricTest {
+
+    private static final NodeType[] TYPES = {NodeType.SIMPLE_NAME, NodeType.METHOD_INVOCATION,
+            NodeType.MY_VARIABLE_NAME, NodeType.NUMBER_LITERAL};
+    private static final String[] LABELS = {"", "parse", "x", "10", "String@1"};
+    private static final String[] JAVA_TYPES = {null, "int", "String"};
+
+    private static NodeState randomState(Random random) {
+        return new NodeState(TYPES[random.nextInt(TYPES.length)],
+                JAVA_TYPES[random.nextInt(JAVA_TYPES.length)],
+                LABELS[random.nextInt(LABELS.length)],
+                random.nextBoolean() ? null : LABELS[random.nextInt(LABELS.length)],
+                random.nextInt(3));
+    }
+
+    private static NodeState[] randomStates(Random random) {
+        final NodeState[] states = new NodeState[random.nextInt(4)];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = randomState(random);
+        }
+        return states;
+    }
+
+    private static NodeContext randomContext(Random random) {
+        return new NodeContext(randomState(random), randomState(random), randomState(random),
+                randomStates(random), randomStates(random), randomStates(random));
+    }
+
+    private static CodeChange randomChange(Random random) {
+        final ChangeType[] types = ChangeType.values();
+        return new CodeChange(randomContext(random), randomContext(random), types[random.nextInt(types.length)]);
+    }
+
+    @Test
+    public void testMeasureMatchesCodeChangeMetric() {
+        final Random random = new Random(239);
+        final SymbolTable table = new SymbolTable();
+        final CodeChangeSimilarityMetric expected = new CodeChangeSimilarityMetric();
+        final CompactCodeChangeSimilarityMetric metric = new CompactCodeChangeSimilarityMetric();
+        final List<CodeChange> changes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            changes.add(randomChange(random));
+        }
+        for (int i = 1; i < changes.size(); i++) {
+            final CodeChange first = changes.get(i - 1);
+            final CodeChange second = changes.get(i);
+            final CompactCodeChange compactFirst = CompactCodeChange.of(first, table);
+            final CompactCodeChange compactSecond = CompactCodeChange.of(second, table);
+            assertEquals(expected.getElementType(first), metric.getElementType(compactFirst));
+            assertEquals(expected.measure(first, second), metric.measure(compactFirst, compactSecond), 0);
+            assertEquals(expected.measure(first, first), metric.measure(compactFirst, compactFirst), 0);
+        }
+    }
+
+    @Test
+    public void testConversions() throws Exception {
+        final Random random = new Random(239);
+        final SymbolTable table = new SymbolTable();
+        for (int i = 0; i < 100; i++) {
+            final CodeChange change = randomChange(random);
+            final CompactCodeChange compact = CompactCodeChange.of(change, table);
+            assertEquals(change, compact.toCodeChange());
+            assertEquals(compact, CompactCodeChange.of(change, table));
+            assertEquals(compact, ProtoToEntityUtils.transform(EntityToProtoUtils.transform(compact), table));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+                stream.writeObject(compact);
+            }
+            try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                final CompactCodeChange restored = (CompactCodeChange) stream.readObject();
+                assertSame(SymbolTable.getDefault(), restored.getSymbolTable());
+                assertEquals(change, restored.toCodeChange());
+            }
+        }
+    }
+
+    @Test
+    public void testSymbolTable() {
+        final SymbolTable table = new SymbolTable();
+        assertEquals(SymbolTable.NO_LABEL_ID, table.intern(CodeChange.NO_LABEL));
+        final int id = table.intern("parse");
+        assertEquals(id, table.intern(new String("parse")));
+        assertEquals("parse", table.symbol(id));
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("label" + i, table.symbol(table.intern("label" + i)));
+        }
+        assertEquals(5002, table.size());
+    }
+}
@@ -0,0 +1,104 @@
+package org.ml_methods_group.common.metrics.functions;
+
+import org.junit.Test;
+import org.ml_methods_group.common.DistanceFunction;
+import org.ml_methods_group.common.SimilarityMetric;
+import org.ml_methods_group.common.metrics.algorithms.AssignmentProblem;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyJaccardDistanceFunctionTest {
+
+    private static final SimilarityMetric<Integer> METRIC = new SimilarityMetric<>() {
+        @Override
+        public double measure(Integer first, Integer second) {
+            return getElementType(first) == getElementType(second) ? 1.0 / (1 + Math.abs(first - second)) : 0;
+        }
+
+        @Override
+        public int getElementType(Integer value) {
+            return value % 5;
+        }
+    };
+
+    private static double reference(List<Integer> first, List<Integer> second) {
+        final Map<Integer, List<Integer>> firstGroups = first.stream()
+                .collect(Collectors.groupingBy(METRIC::getElementType));
+        final Map<Integer, List<Integer>> secondGroups = second.stream()
+                .collect(Collectors.groupingBy(METRIC::getElementType));
+        double intersection = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : firstGroups.entrySet()) {
+            final List<Integer> a = entry.getValue();
+            final List<Integer> b = secondGroups.getOrDefault(entry.getKey(), Collections.emptyList());
+            if (b.isEmpty()) {
+                continue;
+            }
+            final int[][] weights = new int[a.size()][b.size()];
+            for (int i = 0; i < a.size(); i++) {
+                for (int j = 0; j < b.size(); j++) {
+                    weights[i][j] = (int) (METRIC.measure(a.get(i), b.get(j)) * 1000);
+                }
+            }
+            intersection += new AssignmentProblem(weights, false).solve() / 1000.0;
+        }
+        return 1 - intersection / (first.size() + second.size() - intersection);
+    }
+
+    private static List<Integer> randomList(Random random) {
+        final int size = 1 + random.nextInt(20);
+        final List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            result.add(random.nextInt(40));
+        }
+        return result;
+    }
+
+    @Test
+    public void testPreparedDistanceMatchesReference() {
+        final Random random = new Random(239);
+        final FuzzyJaccardDistanceFunction<Integer> function = new FuzzyJaccardDistanceFunction<>(METRIC);
+        final DistanceFunction<FuzzyJaccardDistanceFunction.Prepared<Integer>> prepared =
+                function.getPreparedDistance();
+        for (int test = 0; test < 1000; test++) {
+            final List<Integer> first = randomList(random);
+            final List<Integer> second = randomList(random);
+            final double expected = reference(first, second);
+            assertEquals(expected, function.distance(first, second), 1e-9);
+            assertEquals(expected, prepared.distance(function.prepare(first), function.prepare(second)), 1e-9);
+            assertEquals(0, function.distance(first, first), 1e-9);
+        }
+    }
+
+    @Test
+    public void testUpperBound() {
+        final Random random = new Random(239);
+        final FuzzyJaccardDistanceFunction<Integer> fuzzy = new FuzzyJaccardDistanceFunction<>(METRIC);
+        final JaccardDistanceFunction<Integer> jaccard = new JaccardDistanceFunction<>();
+        for (int test = 0; test < 1000; test++) {
+            final List<Integer> first = randomList(random);
+            final List<Integer> second = randomList(random);
+            final double bound = random.nextDouble();
+            assertEquals(Math.min(fuzzy.distance(first, second), bound), fuzzy.distance(first, second, bound), 1e-9);
+            assertEquals(Math.min(jaccard.distance(first, second), bound), jaccard.distance(first, second, bound),
+                    1e-9);
+        }
+    }
+
+    @Test
+    public void testPreparedLowerBound() {
+        final Random random = new Random(566);
+        final FuzzyJaccardDistanceFunction<Integer> function = new FuzzyJaccardDistanceFunction<>(METRIC);
+        final DistanceFunction<FuzzyJaccardDistanceFunction.Prepared<Integer>> lowerBound =
+                function.getPreparedLowerBound();
+        for (int test = 0; test < 1000; test++) {
+            final List<Integer> first = randomList(random);
+            final List<Integer> second = randomList(random);
+            final double bound = lowerBound.distance(function.prepare(first), function.prepare(second));
+            assertTrue(bound <= function.distance(first, second) + 1e-12);
+        }
+    }
+}
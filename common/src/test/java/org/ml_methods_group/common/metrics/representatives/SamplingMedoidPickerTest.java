@@ -0,0 +1,75 @@
+package org.ml_methods_group.common.metrics.representatives;
+
+import org.junit.Test;
+import org.ml_methods_group.common.Cluster;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SamplingMedoidPickerTest {
+
+    private static Cluster<double[]> points(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new double[]{random.nextGaussian(), random.nextGaussian() * 3, random.nextDouble()});
+        }
+        return new Cluster<>(points);
+    }
+
+    private static DistanceFunction<double[]> euclidean(LongAdder counter) {
+        return (first, second) -> {
+            counter.increment();
+            double sum = 0;
+            for (int i = 0; i < first.length; i++) {
+                sum += (first[i] - second[i]) * (first[i] - second[i]);
+            }
+            return Math.sqrt(sum);
+        };
+    }
+
+    @Test
+    public void testFindsExactMedoid() {
+        for (long seed = 0; seed < 5; seed++) {
+            final Cluster<double[]> cluster = points(500, seed);
+            final LongAdder exact = new LongAdder();
+            final LongAdder sampled = new LongAdder();
+            final double[] expected = new CentroidPicker<>(euclidean(exact)).getRepresentatives(cluster).get(0);
+            final double[] actual = new SamplingMedoidPicker<>(euclidean(sampled)).getRepresentatives(cluster).get(0);
+            assertEquals(expected, actual);
+            assertTrue(sampled.sum() < exact.sum() * 2 / 3);
+        }
+    }
+
+    @Test
+    public void testFindsMedoidOfNonMetricDistance() {
+        // asymmetric squared distance, which violates the triangle inequality
+        final DistanceFunction<double[]> distance = (first, second) -> {
+            double sum = first[0] > second[0] ? 1 : 0;
+            for (int i = 0; i < first.length; i++) {
+                sum += (first[i] - second[i]) * (first[i] - second[i]);
+            }
+            return sum;
+        };
+        for (long seed = 0; seed < 10; seed++) {
+            final Cluster<double[]> cluster = points(300, seed);
+            assertSame(new CentroidPicker<>(distance).getRepresentatives(cluster).get(0),
+                    new SamplingMedoidPicker<>(distance, 16, 1e-3, seed).getRepresentatives(cluster).get(0));
+        }
+    }
+
+    @Test
+    public void testSmallClusters() {
+        final SamplingMedoidPicker<double[]> picker = new SamplingMedoidPicker<>(euclidean(new LongAdder()));
+        assertTrue(picker.getRepresentatives(new Cluster<>(new ArrayList<>())).isEmpty());
+        final Cluster<double[]> single = points(1, 0);
+        assertEquals(single.getElements().get(0), picker.getRepresentatives(single).get(0));
+    }
+}
@@ -0,0 +1,99 @@
+package org.ml_methods_group.common.metrics.selectors;
+
+import org.junit.Test;
+import org.ml_methods_group.common.DistanceFunction;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class KClosestPairsSelectorTest {
+
+    private static final DistanceFunction<int[]> MANHATTAN = (first, second) ->
+            Math.abs(first[0] - second[0]) + Math.abs(first[1] - second[1]);
+
+    private static final DistanceFunction<Integer> ABSOLUTE = (first, second) -> Math.abs(first - second);
+
+    /**
+     * List-based selection, which was used before the heap-based one.
+     */
+    private static <V> List<V> reference(List<V> options, DistanceFunction<V> metric, int k, V value) {
+        final List<V> kClosest = new ArrayList<>(Collections.nCopies(k, options.get(0)));
+        final List<Double> kClosestDistances = new ArrayList<>(Collections.nCopies(k, Double.MAX_VALUE));
+        for (V option : options) {
+            final double currentDistance = metric.distance(value, option, kClosestDistances.get(k - 1));
+            for (int i = 0; i < k; ++i) {
+                if (kClosestDistances.get(i) > currentDistance) {
+                    kClosest.add(i, option);
+                    kClosest.remove(k);
+                    kClosestDistances.add(i, currentDistance);
+                    kClosestDistances.remove(k);
+                    break;
+                }
+            }
+        }
+        return kClosest;
+    }
+
+    private static List<int[]> randomPoints(int count, int range, Random random) {
+        final List<int[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new int[]{random.nextInt(range), random.nextInt(range)});
+        }
+        return points;
+    }
+
+    private static void assertSameSelections(List<int[]> options, int k, List<int[]> queries) {
+        final List<KClosestPairsSelector<int[]>> selectors = Arrays.asList(
+                new KClosestPairsSelector<>(options, MANHATTAN, k),
+                new KClosestPairsSelector<>(options, MANHATTAN, k, true),
+                new KClosestPairsSelector<>(options, MANHATTAN, k, point -> point[0], ABSOLUTE, false),
+                new KClosestPairsSelector<>(options, MANHATTAN, k, point -> point[0], ABSOLUTE, true));
+        for (int[] query : queries) {
+            final List<int[]> expected = reference(options, MANHATTAN, k, query);
+            for (KClosestPairsSelector<int[]> selector : selectors) {
+                final List<int[]> actual = selector.selectOptions(query).orElseThrow();
+                assertEquals(k, actual.size());
+                for (int i = 0; i < k; i++) {
+                    assertEquals(options.indexOf(expected.get(i)), options.indexOf(actual.get(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameSelectionsWithTies() {
+        final Random random = new Random(239);
+        assertSameSelections(randomPoints(1000, 20, random), 3, randomPoints(100, 20, random));
+    }
+
+    @Test
+    public void testSameSelectionsWithoutTies() {
+        final Random random = new Random(566);
+        assertSameSelections(randomPoints(1000, 100_000, random), 5, randomPoints(50, 100_000, random));
+    }
+
+    @Test
+    public void testSameSelectionsWithFractionalBounds() {
+        final Random random = new Random(17);
+        final DistanceFunction<Double> distance = (first, second) -> Math.abs(first - second);
+        final double[] values = random.doubles(30).map(value -> value / 3).toArray();
+        final List<Double> options = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            options.add(values[random.nextInt(values.length)]);
+        }
+        final KClosestPairsSelector<Double> selector =
+                new KClosestPairsSelector<>(options, distance, 4, value -> value, distance, false);
+        for (int i = 0; i < 100; i++) {
+            final double query = values[random.nextInt(values.length)];
+            assertEquals(reference(options, distance, 4, query), selector.selectOptions(query).orElseThrow());
+        }
+    }
+
+    @Test
+    public void testPaddingWithFirstOption() {
+        final Random random = new Random(42);
+        assertSameSelections(randomPoints(2, 10, random), 5, randomPoints(10, 10, random));
+        assertSameSelections(randomPoints(300, 3, random), 10, randomPoints(10, 3, random));
+    }
+}
@@ -0,0 +1,213 @@
+package org.ml_methods_group.common.parallel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelContextTest {
+
+    private static List<Integer> range(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testKeepsOrderAndProcessesEverything() {
+        final List<Integer> values = range(10_000);
+        try (ParallelContext context = new ParallelContext()) {
+            final List<Integer> result = context.runParallelWithConsumer(values,
+                    ArrayList::new,
+                    (value, accumulator) -> accumulator.add(value * 2),
+                    (first, second) -> {
+                        first.addAll(second);
+                        return first;
+                    });
+            assertEquals(values.stream().map(x -> x * 2).collect(Collectors.toList()), result);
+        }
+    }
+
+    @Test
+    public void testEmptyInput() {
+        try (ParallelContext context = new ParallelContext()) {
+            assertEquals(0L, (long) context.runParallel(new ArrayList<Integer>(),
+                    () -> 0L,
+                    (value, accumulator) -> accumulator + value,
+                    Long::sum));
+        }
+    }
+
+    @Test
+    public void testNestedRuns() {
+        try (ParallelContext outer = new ParallelContext(); ParallelContext inner = new ParallelContext()) {
+            final long total = outer.runParallel(range(100),
+                    () -> 0L,
+                    (value, accumulator) -> accumulator + inner.runParallel(range(value),
+                            () -> 0L,
+                            (x, sum) -> sum + x,
+                            Long::sum),
+                    Long::sum);
+            assertEquals(IntStream.range(0, 100).mapToLong(n -> (long) n * (n - 1) / 2).sum(), total);
+        }
+    }
+
+    @Test
+    public void testDedicatedPool() {
+        try (ParallelContext context = new ParallelContext(2)) {
+            assertEquals(2, context.getParallelism());
+            assertEquals(4950L, (long) context.runParallel(range(100),
+                    () -> 0L,
+                    (value, accumulator) -> accumulator + value,
+                    Long::sum));
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancellation() {
+        try (ParallelContext context = new ParallelContext()) {
+            context.runParallel(range(1000),
+                    () -> 0L,
+                    (value, accumulator) -> {
+                        if (value == 10) {
+                            context.cancel();
+                        }
+                        return accumulator + value;
+                    },
+                    Long::sum);
+        }
+    }
+
+    private static final long BUDGET_MILLIS = 500;
+
+    /**
+     * Never finishes by itself: item is blocked till the budget is exceeded and it's interrupted.
+     */
+    private static void blockUntilInterrupted() {
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ParallelContext.checkInterrupted();
+        }
+    }
+
+    @Test
+    public void testSkipsSlowItems() {
+        try (ParallelContext context = new ParallelContext()) {
+            final List<Integer> result = context.runParallelWithConsumer(range(100),
+                    ArrayList::new,
+                    (value, accumulator) -> {
+                        if (value % 25 == 7) {
+                            blockUntilInterrupted();
+                        }
+                        accumulator.add(value);
+                    },
+                    (first, second) -> {
+                        first.addAll(second);
+                        return first;
+                    },
+                    ItemBudget.skip(BUDGET_MILLIS, TimeUnit.MILLISECONDS));
+            final List<Integer> expected = range(100);
+            expected.removeIf(value -> value % 25 == 7);
+            assertEquals(expected, result);
+            assertEquals(100, context.getStatistics().getProcessed());
+            assertEquals(4, context.getStatistics().getTimedOut());
+            assertEquals(4, context.getStatistics().getSkipped());
+        }
+    }
+
+    @Test
+    public void testFallbackForSlowItems() {
+        try (ParallelContext context = new ParallelContext()) {
+            final List<Integer> result = context.runParallelWithConsumer(range(50),
+                    ArrayList::new,
+                    (value, accumulator) -> {
+                        if (value == 13) {
+                            blockUntilInterrupted();
+                        }
+                        accumulator.add(value);
+                    },
+                    (first, second) -> {
+                        first.addAll(second);
+                        return first;
+                    },
+                    ItemBudget.fallback(BUDGET_MILLIS, TimeUnit.MILLISECONDS,
+                            (Integer value, List<Integer> accumulator) -> accumulator.add(-value)));
+            final List<Integer> expected = range(50);
+            expected.set(13, -13);
+            assertEquals(expected, result);
+            assertEquals(1, context.getStatistics().getTimedOut());
+            assertEquals(1, context.getStatistics().getFallbacks());
+        }
+    }
+
+    @Test
+    public void testReportsSlowItems() {
+        final long budget = TimeUnit.MILLISECONDS.toNanos(BUDGET_MILLIS);
+        try (ParallelContext context = new ParallelContext()) {
+            assertEquals(4950L, (long) context.runParallel(range(100),
+                    () -> 0L,
+                    () -> null,
+                    (value, ignored, accumulator) -> {
+                        if (value == 42) {
+                            // runs past the budget by its own clock, however slow the machine is
+                            final long start = System.nanoTime();
+                            while (System.nanoTime() - start <= budget) {
+                                LockSupport.parkNanos(budget);
+                            }
+                        }
+                        return accumulator + value;
+                    },
+                    Long::sum,
+                    ItemBudget.report(BUDGET_MILLIS, TimeUnit.MILLISECONDS)));
+            assertEquals(1, context.getStatistics().getTimedOut());
+            assertEquals(0, context.getStatistics().getSkipped());
+        }
+    }
+
+    @Test
+    public void testItemsIgnoringInterruptionDontExhaustThreads() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger runaways = new AtomicInteger();
+        final int count = ParallelContext.ITEM_WORKERS + 10;
+        try (ParallelContext context = new ParallelContext()) {
+            final List<Integer> result = context.runParallelWithConsumer(range(count),
+                    ParallelUtils::<Integer>defaultListImplementation,
+                    (value, accumulator) -> {
+                        final boolean runaway = Thread.currentThread().getName().equals("parallel-item-worker")
+                                && runaways.getAndIncrement() < ParallelContext.ITEM_WORKERS;
+                        while (runaway) {
+                            try {
+                                release.await();
+                                return;
+                            } catch (InterruptedException ignored) {
+                                // runaway item
+                            }
+                        }
+                        accumulator.add(value);
+                    },
+                    ParallelUtils::combineLists,
+                    ItemBudget.skip(50, TimeUnit.MILLISECONDS));
+            assertEquals(count - ParallelContext.ITEM_WORKERS, result.size());
+            assertEquals(ParallelContext.ITEM_WORKERS, context.getStatistics().getSkipped());
+            assertEquals(10, context.getStatistics().getInlined());
+            final long workers = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().equals("parallel-item-worker"))
+                    .count();
+            assertTrue(workers <= ParallelContext.ITEM_WORKERS);
+        } finally {
+            release.countDown();
+        }
+        while (ParallelContext.getAbandonedItems() > 0) {
+            Thread.sleep(10);
+        }
+    }
+}
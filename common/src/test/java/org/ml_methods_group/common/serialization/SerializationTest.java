@@ -311,4 +311,29 @@ public class SerializationTest {
         assertEquals(data.get(1), solution2);
         assertEquals(data.get(2), solution3);
     }
+
+    @Test
+    public void testDendrogramTransformation() throws Exception {
+        final Solution solution1 = new Solution("", 1, 1, 1, FAIL);
+        final Solution solution2 = new Solution("", 1, 2, 4, FAIL);
+        final Solution solution3 = new Solution("", 2, 3, 6, FAIL);
+        final Dendrogram<Solution> dendrogram = new Dendrogram<>(Arrays.asList(solution1, solution2, solution3),
+                new int[]{1, 0}, new int[]{2, 1}, new float[]{0.5f, 0.25f}, 0.75);
+
+        final var parsedDendrogram = SerializationTest.writeAndRead(dendrogram,
+                EntityToProtoUtils::transformDendrogram,
+                ProtoToEntityUtils::transform,
+                ProtoDendrogram::writeTo,
+                ProtoDendrogram::parseFrom);
+        assertEquals(2, parsedDendrogram.getMergesCount());
+        assertEquals(0.75, parsedDendrogram.getDistanceLimit(), 0);
+        assertEquals(0.25f, parsedDendrogram.getHeight(0), 0);
+        assertEquals(0.5f, parsedDendrogram.getHeight(1), 0);
+        assertEquals(3, parsedDendrogram.cut(0.1).getClusters().size());
+        assertEquals(2, parsedDendrogram.cut(0.3).getClusters().size());
+        assertEquals(1, parsedDendrogram.cut(1.0).getClusters().size());
+        assertEquals(2, parsedDendrogram.cut(2).getClusters().size());
+        assertEquals(Arrays.asList(solution1, solution2),
+                parsedDendrogram.cut(0.3).getClusters().get(0).getElements());
+    }
 }
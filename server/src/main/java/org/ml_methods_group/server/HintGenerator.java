@@ -8,42 +8,58 @@ import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.server.ResourceConfig;
-import org.ml_methods_group.classification.classifiers.AdapterClassifier;
+import org.ml_methods_group.classification.classifiers.CompositeClassifier;
 import org.ml_methods_group.classification.classifiers.KNearestNeighbors;
 import org.ml_methods_group.common.Classifier;
 import org.ml_methods_group.common.CommonUtils;
+import org.ml_methods_group.common.MarkedClusters;
+import org.ml_methods_group.common.OptionSelector;
 import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.Wrapper;
 import org.ml_methods_group.common.ast.ASTUtils;
 import org.ml_methods_group.common.ast.changes.BasicChangeGenerator;
+import org.ml_methods_group.common.ast.changes.ChangeGenerator;
 import org.ml_methods_group.common.ast.changes.Changes;
+import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
 import org.ml_methods_group.common.ast.generation.CachedASTGenerator;
 import org.ml_methods_group.common.ast.normalization.NamesASTNormalizer;
-import org.ml_methods_group.common.extractors.ChangesExtractor;
 import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor;
-import org.ml_methods_group.common.metrics.functions.CodeChangeSimilarityMetric;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor.HeuristicASTRepresentation;
+import org.ml_methods_group.common.metrics.functions.CompactCodeChangeSimilarityMetric;
 import org.ml_methods_group.common.metrics.functions.EditDistance;
 import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction;
+import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction.Prepared;
 import org.ml_methods_group.common.metrics.selectors.HeuristicClosestPairSelector;
 import org.ml_methods_group.common.preparation.Unifier;
 import org.ml_methods_group.common.preparation.basic.BasicUnifier;
 import org.ml_methods_group.common.preparation.basic.MinValuePicker;
+import org.ml_methods_group.common.serialization.ProtoToEntityUtils;
 import org.ml_methods_group.common.serialization.ProtobufSerializationUtils;
 import org.ml_methods_group.parsing.CodeValidator;
 import org.ml_methods_group.parsing.JavaCodeValidator;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 import static org.ml_methods_group.common.Solution.Verdict.FAIL;
 import static org.ml_methods_group.common.Solution.Verdict.OK;
@@ -51,14 +67,76 @@ import static org.ml_methods_group.common.Solution.Verdict.OK;
 @Singleton
 @javax.ws.rs.Path("/bugs-classification")
 public class HintGenerator {
-    private final Map<Integer, Classifier<Solution, String>> classifiers = new HashMap<>();
+    private static final int WORKERS = Integer.getInteger("org.ml_methods_group.server.workers",
+            Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Integer.getInteger("org.ml_methods_group.server.queue", 1024);
+    private static final long DEFAULT_TIMEOUT = Long.getLong("org.ml_methods_group.server.timeout", 10_000);
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    private static final int LOADERS = Integer.getInteger("org.ml_methods_group.server.loaders",
+            Runtime.getRuntime().availableProcessors());
+    private static final boolean WARM_UP = Boolean.parseBoolean(
+            System.getProperty("org.ml_methods_group.server.warmup", "true"));
+    private static final String SNAPSHOT_FILE = "model.snapshot";
+
+    private final Set<Integer> problems;
+    private final LazyLoader<Integer, HintPipeline> pipelines;
     private final CodeValidator validator = new JavaCodeValidator();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKERS, WORKERS,
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), task -> {
+        final Thread thread = new Thread(task, "hint-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService loader = Executors.newFixedThreadPool(LOADERS, task -> {
+        final Thread thread = new Thread(task, "classifier-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     static {
         new ResourceConfig().packages("org.ml_methods_group.server").register(JacksonFeature.class);
     }
 
     public HintGenerator() throws IOException {
+        this(findProblems());
+    }
+
+    private HintGenerator(Map<Integer, Path> directories) throws IOException {
+        this(directories.keySet(), problem -> {
+            final Path directory = directories.get(problem);
+            try {
+                return loadPipeline(directory);
+            } catch (Exception e) {
+                throw new IOException("Failed to load classifier from " + directory, e);
+            }
+        }, WARM_UP);
+    }
+
+    /**
+     * @param warmUp whether all pipelines should be loaded (in parallel) before the constructor returns,
+     *               otherwise every pipeline is loaded on the first request to its problem
+     */
+    HintGenerator(Set<Integer> problems, LazyLoader.Loader<Integer, HintPipeline> pipelineLoader,
+                  boolean warmUp) throws IOException {
+        this.problems = new HashSet<>(problems);
+        this.pipelines = new LazyLoader<>(pipelineLoader, loader);
+        if (warmUp) {
+            final Map<Integer, CompletableFuture<HintPipeline>> loading = new HashMap<>();
+            this.problems.forEach(problem -> loading.put(problem, pipelines.get(problem)));
+            for (var entry : loading.entrySet()) {
+                try {
+                    entry.getValue().join();
+                } catch (CompletionException e) {
+                    shutdown();
+                    throw new IOException("Failed to load classifier for problem " + entry.getKey(), e.getCause());
+                }
+            }
+        }
+    }
+
+    private static Map<Integer, Path> findProblems() throws IOException {
         final Path path = Paths.get(new String(
                 HintGenerator.class.getResourceAsStream("/data.txt").readAllBytes(),
                 Charset.defaultCharset()).trim());
@@ -67,50 +145,78 @@ public class HintGenerator {
         if (data == null) {
             throw new IOException("Data folder wasn't found!");
         }
+        final Map<Integer, Path> directories = new HashMap<>();
         for (var problem : data) {
-            try {
-                final var problemId = Integer.parseInt(problem);
-                final var marksPath = path.resolve(problem).resolve("prepared.tmp");
-                final var dataPath = path.resolve(problem).resolve("solutions.tmp");
-                classifiers.put(problemId, loadClassifier(marksPath, dataPath));
-            } catch (Exception e) {
-                throw new IOException("Failed to load classifier from " + path.resolve(problem), e);
-            }
+            directories.put(Integer.parseInt(problem), path.resolve(problem));
         }
+        return directories;
     }
 
-    private static Classifier<Solution, String> loadClassifier(Path markedDataset, Path dataset) throws IOException {
-        final var data = ProtobufSerializationUtils.loadDataset(dataset)
-                .filter(CommonUtils.check(Solution::getVerdict, OK::equals));
-        final var marks = ProtobufSerializationUtils.loadMarkedChangesClusters(markedDataset);
+    private CompletableFuture<HintPipeline> pipelineFor(int problem) {
+        return problems.contains(problem) ? pipelines.get(problem) : null;
+    }
+
+    private static HintPipeline loadPipeline(Path directory) throws IOException {
+        final var marksPath = directory.resolve("prepared.tmp");
+        final var dataPath = directory.resolve("solutions.tmp");
+        final var snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        final long fingerprint = ModelSnapshot.fingerprint(marksPath, dataPath);
         final var treeGenerator = new CachedASTGenerator(new NamesASTNormalizer());
         final var changeGenerator = new BasicChangeGenerator(treeGenerator,
                 Collections.singletonList((Serializable & BiFunction<ITree, ITree, Matcher>) (x, y) ->
                         new CompositeMatchers.ClassicGumtree(x, y, new MappingStore())));
-        final Unifier<Solution> unifier = new BasicUnifier<>(
-                CommonUtils.compose(treeGenerator::buildTree, ITree::getHash)::apply,
-                CommonUtils.checkEquals(treeGenerator::buildTree, ASTUtils::deepEquals),
-                new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
-        final var heuristicExtractor = new HeuristicASTRepresentationExtractor();
-        final var selector = new HeuristicClosestPairSelector<>(
-                treeGenerator::buildTree,
-                new EditDistance(changeGenerator),
-                heuristicExtractor,
-                heuristicExtractor.getDistanceFunction(),
-                unifier.unify(data.getValues()));
-        final var metric = CommonUtils.metricFor(
-                new FuzzyJaccardDistanceFunction<>(new CodeChangeSimilarityMetric()),
-                Changes::getChanges);
-        final var changeClassifier = new KNearestNeighbors<Changes, String>(5, metric);
+        final var snapshot = ModelSnapshot.load(snapshotPath, fingerprint);
+        final HeuristicClosestPairSelector<Solution, ITree, HeuristicASTRepresentation> selector;
+        final var table = new SymbolTable();
+        final MarkedClusters<List<CompactCodeChange>, String> marks;
+        if (snapshot.isPresent()) {
+            final var heuristicExtractor = snapshot.get().getHeuristicExtractor();
+            selector = new HeuristicClosestPairSelector<>(
+                    treeGenerator::buildSharedTree,
+                    new EditDistance(changeGenerator),
+                    heuristicExtractor,
+                    heuristicExtractor.getDistanceFunction(),
+                    snapshot.get().getOptions(),
+                    snapshot.get().getHeuristics());
+            marks = snapshot.get().getMarks(table);
+        } else {
+            final var data = ProtobufSerializationUtils.loadDataset(dataPath)
+                    .filter(CommonUtils.check(Solution::getVerdict, OK::equals));
+            final var serializedMarks = ModelSnapshot.loadMarks(marksPath);
+            marks = ProtoToEntityUtils.transform(serializedMarks, table);
+            final Unifier<Solution> unifier = new BasicUnifier<>(
+                    CommonUtils.compose(treeGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(treeGenerator::buildSharedTree, ASTUtils::deepEquals),
+                    new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
+            final var heuristicExtractor = new HeuristicASTRepresentationExtractor();
+            selector = new HeuristicClosestPairSelector<>(
+                    treeGenerator::buildSharedTree,
+                    new EditDistance(changeGenerator),
+                    heuristicExtractor,
+                    heuristicExtractor.getDistanceFunction(),
+                    unifier.unify(data.getValues()));
+            try {
+                new ModelSnapshot(new ArrayList<>(selector.getOptions()), heuristicExtractor,
+                        selector.getHeuristics(), serializedMarks).store(snapshotPath, fingerprint);
+            } catch (IOException e) {
+                System.err.println("Failed to store snapshot " + snapshotPath + ": " + e.getMessage());
+            }
+        }
+        final var metric = new FuzzyJaccardDistanceFunction<>(new CompactCodeChangeSimilarityMetric());
+        final var changeClassifier = new CompositeClassifier<List<CompactCodeChange>,
+                Prepared<CompactCodeChange>, String>(
+                metric::prepare,
+                new KNearestNeighbors<>(5, CommonUtils.metricFor(metric.getPreparedDistance(), Wrapper::getFeatures),
+                        CommonUtils.metricFor(metric.getPreparedLowerBound(), Wrapper::getFeatures)));
         changeClassifier.train(marks);
-        return new AdapterClassifier<>(changeClassifier, new ChangesExtractor(changeGenerator, selector));
+        return new HintPipeline(selector, changeGenerator, changeClassifier, table);
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @javax.ws.rs.Path("/classifiers")
     public List<Integer> getClassifiers() {
-        return new ArrayList<>(classifiers.keySet());
+        return new ArrayList<>(problems);
     }
 
     @POST
@@ -119,22 +225,134 @@ public class HintGenerator {
     @javax.ws.rs.Path("/hint")
     public HintResponse getHint(HintRequest request) {
         final long requestTime = System.currentTimeMillis();
+        if (request == null || request.getTimeout() <= 0) {
+            return generateHint(request, requestTime, NO_DEADLINE, System.nanoTime());
+        }
+        final long deadline = requestTime + request.getTimeout();
+        final CompletableFuture<HintResponse> future;
+        try {
+            future = submit(request, requestTime, deadline);
+        } catch (RejectedExecutionException e) {
+            throw new WebApplicationException(overloaded(HintResponse.rejected(requestTime)));
+        }
+        try {
+            return await(future, deadline);
+        } catch (DeadlineExceededException e) {
+            return HintResponse.timeout(requestTime, Collections.emptyMap());
+        }
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @javax.ws.rs.Path("/hint/async")
+    public void getHintAsync(HintRequest request, @Suspended AsyncResponse response) {
+        final long requestTime = System.currentTimeMillis();
+        final long deadline = deadlineFor(request, requestTime);
+        response.setTimeout(Math.max(1, deadline - requestTime), TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(suspended ->
+                suspended.resume(HintResponse.timeout(requestTime, Collections.emptyMap())));
+        try {
+            submit(request, requestTime, deadline).thenAccept(response::resume);
+        } catch (RejectedExecutionException e) {
+            response.resume(overloaded(HintResponse.rejected(requestTime)));
+        }
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @javax.ws.rs.Path("/hints")
+    public void getHints(List<HintRequest> requests, @Suspended AsyncResponse response) {
+        final long requestTime = System.currentTimeMillis();
+        if (requests == null) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(HintResponse.error("Request body is missing", requestTime))
+                    .build());
+            return;
+        }
+        if (requests.size() > executor.getQueue().remainingCapacity()) {
+            response.resume(overloaded(Collections.nCopies(requests.size(), HintResponse.rejected(requestTime))));
+            return;
+        }
+        final List<CompletableFuture<HintResponse>> futures = new ArrayList<>(requests.size());
+        long batchDeadline = requestTime;
+        boolean rejected = false;
+        for (HintRequest request : requests) {
+            final long deadline = deadlineFor(request, requestTime);
+            batchDeadline = Math.max(batchDeadline, deadline);
+            CompletableFuture<HintResponse> future = null;
+            if (!rejected) {
+                try {
+                    future = submit(request, requestTime, deadline);
+                } catch (RejectedExecutionException e) {
+                    // queue was filled by concurrent requests after the capacity check
+                    rejected = true;
+                }
+            }
+            futures.add(future != null ? future
+                    : CompletableFuture.completedFuture(HintResponse.rejected(requestTime)));
+        }
+        final boolean overloaded = rejected;
+        response.setTimeout(Math.max(1, batchDeadline - requestTime), TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(suspended -> suspended.resume(batchResponse(futures, requestTime, overloaded)));
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenRun(() -> response.resume(batchResponse(futures, requestTime, overloaded)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        loader.shutdownNow();
+    }
+
+    private CompletableFuture<HintResponse> submit(HintRequest request, long requestTime, long deadline) {
+        final long submitTime = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> generateHint(request, requestTime, deadline, submitTime),
+                executor);
+    }
+
+    private HintResponse generateHint(HintRequest request, long requestTime, long deadline, long submitTime) {
+        final Map<String, Long> stageTimes = new LinkedHashMap<>();
+        stageTimes.put("queue", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitTime));
+        if (request == null) {
+            return HintResponse.error("Request body is missing", requestTime, stageTimes);
+        }
+        if (request.getCode() == null) {
+            return HintResponse.error("Code is missing", requestTime, stageTimes);
+        }
         try {
-            final var classifier = classifiers.get(request.getProblem());
-            if (classifier == null) {
-                return HintResponse.error("Unsupported problem: " + request.getProblem(), requestTime);
+            final var loading = pipelineFor(request.getProblem());
+            if (loading == null) {
+                return HintResponse.error("Unsupported problem: " + request.getProblem(), requestTime, stageTimes);
             }
-            final var solution = asSolution(request);
+            final var pipeline = measure("loading", stageTimes, () -> await(loading, deadline));
+            checkDeadline(deadline);
+            final var solution = measure("validation", stageTimes, () -> asSolution(request));
             if (solution.isEmpty()) {
-                return HintResponse.error("Failed to build AST", requestTime);
+                return HintResponse.error("Failed to build AST", requestTime, stageTimes);
             }
-            final var result = classifier.mostProbable(solution.get());
-            return HintResponse.success(result.getKey(), result.getValue(), requestTime);
-
+            checkDeadline(deadline);
+            final var option = measure("selection", stageTimes, () -> pipeline.selector.selectOption(solution.get()));
+            if (option.isEmpty()) {
+                return HintResponse.error("Failed to find a correct solution to compare with",
+                        requestTime, stageTimes);
+            }
+            checkDeadline(deadline);
+            final var changes = measure("diff", stageTimes,
+                    () -> pipeline.changeGenerator.getChanges(solution.get(), option.get()));
+            checkDeadline(deadline);
+            final var result = measure("classification", stageTimes,
+                    () -> pipeline.classify(changes));
+            return HintResponse.success(result.getKey(), result.getValue(), requestTime, stageTimes);
+        } catch (DeadlineExceededException e) {
+            return HintResponse.timeout(requestTime, stageTimes);
         } catch (Exception e) {
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
             return HintResponse.error(
-                    "Unexpected exception: " + e.getClass().getName() + " " + e.getMessage(),
-                    requestTime);
+                    "Unexpected exception: " + cause.getClass().getName() + " " + cause.getMessage(),
+                    requestTime, stageTimes);
         }
     }
 
@@ -143,6 +361,100 @@ public class HintGenerator {
                 .map(code -> new Solution(code, request.getProblem(), -1, -1, FAIL));
     }
 
+    /**
+     * Deadline of asynchronous requests, which are bounded by {@link #DEFAULT_TIMEOUT} unless the caller
+     * sets its own timeout. Synchronous requests without a timeout wait for the hint as long as it takes.
+     */
+    private static long deadlineFor(HintRequest request, long requestTime) {
+        return requestTime + (request != null && request.getTimeout() > 0 ? request.getTimeout() : DEFAULT_TIMEOUT);
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static void checkDeadline(long deadline) {
+        if (System.currentTimeMillis() > deadline) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    private static <T> T measure(String stage, Map<String, Long> stageTimes, Supplier<T> action) {
+        final long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            stageTimes.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static List<HintResponse> collect(List<CompletableFuture<HintResponse>> futures, long requestTime) {
+        final List<HintResponse> responses = new ArrayList<>(futures.size());
+        for (CompletableFuture<HintResponse> future : futures) {
+            responses.add(future.getNow(HintResponse.timeout(requestTime, Collections.emptyMap())));
+        }
+        return responses;
+    }
+
+    /**
+     * Batches, part of which was rejected, are answered with {@code 503} as a whole, so that clients retry
+     * rejected requests after {@link #RETRY_AFTER_SECONDS}, hints of accepted requests are still returned.
+     */
+    private static Object batchResponse(List<CompletableFuture<HintResponse>> futures, long requestTime,
+                                        boolean overloaded) {
+        final List<HintResponse> responses = collect(futures, requestTime);
+        return overloaded ? overloaded(responses) : responses;
+    }
+
+    private static Response overloaded(Object entity) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", RETRY_AFTER_SECONDS)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(entity)
+                .build();
+    }
+
+    static class HintPipeline {
+        private final OptionSelector<Solution, Solution> selector;
+        private final ChangeGenerator changeGenerator;
+        private final Classifier<List<CompactCodeChange>, String> classifier;
+        private final SymbolTable table;
+
+        /**
+         * @param table symbol table, which the classifier's samples are encoded with
+         */
+        HintPipeline(OptionSelector<Solution, Solution> selector, ChangeGenerator changeGenerator,
+                     Classifier<List<CompactCodeChange>, String> classifier, SymbolTable table) {
+            this.selector = selector;
+            this.changeGenerator = changeGenerator;
+            this.classifier = classifier;
+            this.table = table;
+        }
+
+        private Map.Entry<String, Double> classify(Changes changes) {
+            final List<CompactCodeChange> encoded = new ArrayList<>(changes.getChanges().size());
+            for (CodeChange change : changes.getChanges()) {
+                encoded.add(CompactCodeChange.of(change, table));
+            }
+            return classifier.mostProbable(encoded);
+        }
+    }
+
+    private static class DeadlineExceededException extends RuntimeException {
+        private DeadlineExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
     public static void main(String[] args) throws IOException {
         final HintGenerator generator = new HintGenerator();
         System.out.println(generator.getClassifiers());
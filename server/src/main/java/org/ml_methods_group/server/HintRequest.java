@@ -3,15 +3,22 @@ package org.ml_methods_group.server;
 public class HintRequest {
     private int problem;
     private String code;
+    private long timeout;
 
     public HintRequest() {
         problem = -1;
         code = "";
+        timeout = 0;
     }
 
     public HintRequest(int problem, String code) {
+        this(problem, code, 0);
+    }
+
+    public HintRequest(int problem, String code, long timeout) {
         this.problem = problem;
         this.code = code;
+        this.timeout = timeout;
     }
 
     public int getProblem() {
@@ -29,4 +36,15 @@ public class HintRequest {
     public void setCode(String code) {
         this.code = code;
     }
+
+    /**
+     * @return time budget of the request in milliseconds, non-positive values mean the server default
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
 }
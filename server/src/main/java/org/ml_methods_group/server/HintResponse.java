@@ -1,18 +1,24 @@
 package org.ml_methods_group.server;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class HintResponse {
     private String hint;
     private double confidence;
     private String errorMessage;
     private ResponseStatus status;
     private long time;
+    private Map<String, Long> stageTimes;
 
-    private HintResponse(String hint, double confidence, String errorMessage, ResponseStatus status, long time) {
+    private HintResponse(String hint, double confidence, String errorMessage, ResponseStatus status, long time,
+                         Map<String, Long> stageTimes) {
         this.hint = hint;
         this.confidence = confidence;
         this.errorMessage = errorMessage;
         this.status = status;
         this.time = time;
+        this.stageTimes = stageTimes;
     }
 
     public String getHint() {
@@ -55,17 +61,38 @@ public class HintResponse {
         this.time = time;
     }
 
-    public enum ResponseStatus {OK, ERROR}
+    public Map<String, Long> getStageTimes() {
+        return stageTimes;
+    }
+
+    public void setStageTimes(Map<String, Long> stageTimes) {
+        this.stageTimes = stageTimes;
+    }
 
-    static HintResponse success(String hint, double confidence, long requestTime) {
+    public enum ResponseStatus {OK, ERROR, TIMEOUT, REJECTED}
+
+    static HintResponse success(String hint, double confidence, long requestTime, Map<String, Long> stageTimes) {
         return new HintResponse(hint, confidence,"", ResponseStatus.OK,
-                System.currentTimeMillis() - requestTime);
+                System.currentTimeMillis() - requestTime, stageTimes);
     }
 
-    static HintResponse error(String message, long requestTime) {
+    static HintResponse error(String message, long requestTime, Map<String, Long> stageTimes) {
         return new HintResponse("", 0, message, ResponseStatus.ERROR,
-                System.currentTimeMillis() - requestTime);
+                System.currentTimeMillis() - requestTime, stageTimes);
     }
-}
 
+    static HintResponse error(String message, long requestTime) {
+        return error(message, requestTime, Collections.emptyMap());
+    }
+
+    static HintResponse timeout(long requestTime, Map<String, Long> stageTimes) {
+        return new HintResponse("", 0, "Deadline exceeded", ResponseStatus.TIMEOUT,
+                System.currentTimeMillis() - requestTime, stageTimes);
+    }
+
+    static HintResponse rejected(long requestTime) {
+        return new HintResponse("", 0, "Server is overloaded, try again later", ResponseStatus.REJECTED,
+                System.currentTimeMillis() - requestTime, Collections.emptyMap());
+    }
+}
 
@@ -0,0 +1,50 @@
+package org.ml_methods_group.server;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Loads values on first request, concurrent requests of the same key share one load.
+ * Failed loads are forgotten, so the next request for the key starts loading again.
+ */
+class LazyLoader<K, V> {
+    private final Map<K, CompletableFuture<V>> values = new ConcurrentHashMap<>();
+    private final Loader<K, V> loader;
+    private final Executor executor;
+
+    LazyLoader(Loader<K, V> loader, Executor executor) {
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    CompletableFuture<V> get(K key) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> running = values.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    final V value = loader.load(key);
+                    created.complete(value);
+                } catch (Exception | Error e) {
+                    values.remove(key, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            values.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    @FunctionalInterface
+    interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+}
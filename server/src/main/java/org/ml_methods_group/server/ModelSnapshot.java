@@ -0,0 +1,152 @@
+package org.ml_methods_group.server;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.ml_methods_group.common.MarkedClusters;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.changes.CompactCodeChange;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor.HeuristicASTRepresentation;
+import org.ml_methods_group.common.proto.ProtoHeuristicVector;
+import org.ml_methods_group.common.proto.ProtoHintModelSnapshot;
+import org.ml_methods_group.common.proto.ProtoMarkedChangesClusters;
+import org.ml_methods_group.common.proto.ProtoSolution;
+import org.ml_methods_group.common.serialization.EntityToProtoUtils;
+import org.ml_methods_group.common.serialization.ProtoToEntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Precomputed state of a hint pipeline: unified correct solutions, their heuristic count vectors
+ * and marked changes. Snapshot is bound to the sources it was built from by a hash of their contents,
+ * so stale snapshots are ignored.
+ */
+class ModelSnapshot {
+    private static final int VERSION = 1;
+
+    private final List<Solution> options;
+    private final HeuristicASTRepresentationExtractor heuristicExtractor;
+    private final List<HeuristicASTRepresentation> heuristics;
+    private final ProtoMarkedChangesClusters marks;
+
+    ModelSnapshot(List<Solution> options, HeuristicASTRepresentationExtractor heuristicExtractor,
+                  List<HeuristicASTRepresentation> heuristics, ProtoMarkedChangesClusters marks) {
+        this.options = options;
+        this.heuristicExtractor = heuristicExtractor;
+        this.heuristics = heuristics;
+        this.marks = marks;
+    }
+
+    List<Solution> getOptions() {
+        return options;
+    }
+
+    HeuristicASTRepresentationExtractor getHeuristicExtractor() {
+        return heuristicExtractor;
+    }
+
+    List<HeuristicASTRepresentation> getHeuristics() {
+        return heuristics;
+    }
+
+    /**
+     * Marks are kept serialized and are encoded straight into ids of the {@code table}.
+     */
+    MarkedClusters<List<CompactCodeChange>, String> getMarks(SymbolTable table) {
+        return ProtoToEntityUtils.transform(marks, table);
+    }
+
+    static long fingerprint(Path... sources) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(VERSION).array());
+        final byte[] buffer = new byte[1 << 16];
+        for (Path source : sources) {
+            try (InputStream input = Files.newInputStream(source)) {
+                for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(Files.size(source)).array());
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    static Optional<ModelSnapshot> load(Path path, long fingerprint) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        final ProtoHintModelSnapshot proto;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            proto = ProtoHintModelSnapshot.parseFrom(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (InvalidProtocolBufferException e) {
+            return Optional.empty();
+        }
+        if (proto.getVersion() != VERSION || proto.getSourcesFingerprint() != fingerprint
+                || proto.getOptionsCount() != proto.getHeuristicsCount()) {
+            return Optional.empty();
+        }
+        final List<Solution> options = new ArrayList<>(proto.getOptionsCount());
+        for (ProtoSolution option : proto.getOptionsList()) {
+            options.add(ProtoToEntityUtils.transform(option));
+        }
+        final int[] nodeTypes = proto.getNodeTypesList().stream().mapToInt(Integer::intValue).toArray();
+        final var heuristicExtractor = new HeuristicASTRepresentationExtractor(nodeTypes);
+        final List<HeuristicASTRepresentation> heuristics = new ArrayList<>(proto.getHeuristicsCount());
+        for (ProtoHeuristicVector vector : proto.getHeuristicsList()) {
+            final int[] counters = vector.getCountersList().stream().mapToInt(Integer::intValue).toArray();
+            heuristics.add(heuristicExtractor.restore(counters, vector.getLimit(), vector.getSum()));
+        }
+        return Optional.of(new ModelSnapshot(options, heuristicExtractor, heuristics, proto.getMarks()));
+    }
+
+    static ProtoMarkedChangesClusters loadMarks(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ProtoMarkedChangesClusters.parseFrom(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    void store(Path path, long fingerprint) throws IOException {
+        final var builder = ProtoHintModelSnapshot.newBuilder()
+                .setVersion(VERSION)
+                .setSourcesFingerprint(fingerprint)
+                .setMarks(marks);
+        for (Solution option : options) {
+            builder.addOptions(EntityToProtoUtils.transform(option));
+        }
+        for (int nodeType : heuristicExtractor.getNodeTypes()) {
+            builder.addNodeTypes(nodeType);
+        }
+        for (HeuristicASTRepresentation heuristic : heuristics) {
+            final var vector = ProtoHeuristicVector.newBuilder()
+                    .setLimit(heuristic.getLimit())
+                    .setSum(heuristic.getSum());
+            for (int counter : heuristic.getCounters()) {
+                vector.addCounters(counter);
+            }
+            builder.addHeuristics(vector);
+        }
+        final Path temporary = path.resolveSibling(path.getFileName() + ".partial");
+        try (OutputStream output = Files.newOutputStream(temporary)) {
+            builder.build().writeTo(output);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
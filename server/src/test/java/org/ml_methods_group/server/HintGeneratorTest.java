@@ -0,0 +1,170 @@
+package org.ml_methods_group.server;
+
+import org.junit.Test;
+import org.ml_methods_group.common.OptionSelector;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.server.HintGenerator.HintPipeline;
+import org.ml_methods_group.server.HintResponse.ResponseStatus;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HintGeneratorTest {
+
+    private static final String CODE = "class A {}";
+    private static final String NO_OPTIONS = "Failed to find a correct solution to compare with";
+
+    private static HintPipeline emptyPipeline() {
+        final OptionSelector<Solution, Solution> selector = new OptionSelector<>() {
+            @Override
+            public Optional<Solution> selectOption(Solution value) {
+                return Optional.empty();
+            }
+
+            @Override
+            public Collection<Solution> getOptions() {
+                return Collections.emptyList();
+            }
+        };
+        return new HintPipeline(selector, null, null, null);
+    }
+
+    @Test
+    public void testWarmUpLoadsAllPipelines() throws IOException {
+        final Set<Integer> loaded = Collections.synchronizedSet(new HashSet<>());
+        final HintGenerator generator = new HintGenerator(Set.of(1, 2, 3), problem -> {
+            loaded.add(problem);
+            return emptyPipeline();
+        }, true);
+        try {
+            assertEquals(Set.of(1, 2, 3), loaded);
+            assertEquals(Set.of(1, 2, 3), new HashSet<>(generator.getClassifiers()));
+            final HintResponse response = generator.getHint(new HintRequest(2, CODE));
+            assertEquals(ResponseStatus.ERROR, response.getStatus());
+            assertEquals(NO_OPTIONS, response.getErrorMessage());
+            assertEquals(Set.of(1, 2, 3), loaded);
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testWarmUpFailureIsThrown() {
+        try {
+            new HintGenerator(Set.of(1, 2), problem -> {
+                if (problem == 2) {
+                    throw new IOException("Failed to load classifier from 2");
+                }
+                return emptyPipeline();
+            }, true);
+            fail("Failure wasn't reported");
+        } catch (IOException e) {
+            assertEquals("Failed to load classifier from 2", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testLazyLoading() throws IOException {
+        final AtomicInteger loads = new AtomicInteger();
+        final HintGenerator generator = new HintGenerator(Set.of(1), problem -> {
+            loads.incrementAndGet();
+            return emptyPipeline();
+        }, false);
+        try {
+            assertEquals(0, loads.get());
+            assertEquals(NO_OPTIONS, generator.getHint(new HintRequest(1, CODE)).getErrorMessage());
+            assertEquals(NO_OPTIONS, generator.getHint(new HintRequest(1, CODE)).getErrorMessage());
+            assertEquals(1, loads.get());
+            final HintResponse unsupported = generator.getHint(new HintRequest(5, CODE));
+            assertEquals(ResponseStatus.ERROR, unsupported.getStatus());
+            assertEquals(1, loads.get());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedLoadIsReportedAndRetried() throws IOException {
+        final AtomicInteger loads = new AtomicInteger();
+        final HintGenerator generator = new HintGenerator(Set.of(1), problem -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IOException("Failed to load classifier from 1");
+            }
+            return emptyPipeline();
+        }, false);
+        try {
+            final HintResponse failed = generator.getHint(new HintRequest(1, CODE));
+            assertEquals(ResponseStatus.ERROR, failed.getStatus());
+            assertTrue(failed.getErrorMessage().contains("Failed to load classifier from 1"));
+            assertEquals(NO_OPTIONS, generator.getHint(new HintRequest(1, CODE)).getErrorMessage());
+            assertEquals(NO_OPTIONS, generator.getHint(new HintRequest(1, CODE)).getErrorMessage());
+            assertEquals(2, loads.get());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidRequests() throws IOException {
+        final HintGenerator generator = new HintGenerator(Set.of(1), problem -> emptyPipeline(), false);
+        try {
+            final HintResponse empty = generator.getHint(null);
+            assertEquals(ResponseStatus.ERROR, empty.getStatus());
+            assertEquals("Request body is missing", empty.getErrorMessage());
+            final HintResponse noCode = generator.getHint(new HintRequest(1, null));
+            assertEquals(ResponseStatus.ERROR, noCode.getStatus());
+            assertEquals("Code is missing", noCode.getErrorMessage());
+            final HintResponse timedNoCode = generator.getHint(new HintRequest(1, null, 60_000));
+            assertEquals("Code is missing", timedNoCode.getErrorMessage());
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestTimeoutInterruptsWaitingForSlowStage() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final HintGenerator generator = new HintGenerator(Set.of(1), problem -> {
+            release.await();
+            return emptyPipeline();
+        }, false);
+        try {
+            final HintResponse response = generator.getHint(new HintRequest(1, CODE, 50));
+            assertEquals(ResponseStatus.TIMEOUT, response.getStatus());
+        } finally {
+            release.countDown();
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestWithoutTimeoutWaitsForLoading() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final HintGenerator generator = new HintGenerator(Set.of(1), problem -> {
+            loading.countDown();
+            release.await();
+            return emptyPipeline();
+        }, false);
+        try {
+            final CompletableFuture<HintResponse> response = CompletableFuture.supplyAsync(
+                    () -> generator.getHint(new HintRequest(1, CODE)));
+            loading.await();
+            assertFalse(response.isDone());
+            release.countDown();
+            assertEquals(NO_OPTIONS, response.get().getErrorMessage());
+        } finally {
+            release.countDown();
+            generator.shutdown();
+        }
+    }
+}
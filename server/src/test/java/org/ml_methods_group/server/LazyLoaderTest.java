@@ -0,0 +1,87 @@
+package org.ml_methods_group.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LazyLoaderTest {
+
+    @Test
+    public void testConcurrentRequestsShareLoad() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final LazyLoader<Integer, String> loader = new LazyLoader<>(key -> {
+                loads.incrementAndGet();
+                release.await();
+                return "value" + key;
+            }, executor);
+            final CompletableFuture<String> first = loader.get(1);
+            final CompletableFuture<String> second = loader.get(1);
+            assertSame(first, second);
+            release.countDown();
+            assertEquals("value1", first.get());
+            assertEquals("value1", loader.get(1).get());
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeysAreLoadedSeparately() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LazyLoader<Integer, String> loader = new LazyLoader<>(key -> {
+            loads.incrementAndGet();
+            return "value" + key;
+        }, Runnable::run);
+        assertEquals("value1", loader.get(1).join());
+        assertEquals("value2", loader.get(2).join());
+        assertEquals("value1", loader.get(1).join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsRetried() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LazyLoader<Integer, String> loader = new LazyLoader<>(key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IOException("broken");
+            }
+            return "value" + key;
+        }, Runnable::run);
+        try {
+            loader.get(1).join();
+            fail("Failure wasn't reported");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        assertEquals("value1", loader.get(1).join());
+        assertEquals("value1", loader.get(1).join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testRejectedLoadIsRetried() {
+        final AtomicInteger submissions = new AtomicInteger();
+        final LazyLoader<Integer, String> loader = new LazyLoader<>(key -> "value" + key, task -> {
+            if (submissions.incrementAndGet() == 1) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        });
+        assertTrue(loader.get(1).isCompletedExceptionally());
+        assertEquals("value1", loader.get(1).join());
+    }
+}
@@ -0,0 +1,101 @@
+package org.ml_methods_group.server;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.ast.changes.SymbolTable;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor.HeuristicASTRepresentation;
+import org.ml_methods_group.common.proto.ProtoMarkedChangesClusters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.ml_methods_group.common.Solution.Verdict.OK;
+
+public class ModelSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ModelSnapshot snapshot() {
+        final var extractor = new HeuristicASTRepresentationExtractor(new int[]{3, 7});
+        final List<Solution> options = Arrays.asList(
+                new Solution("class A {}", 1, 10, 100, OK),
+                new Solution("class B {}", 1, 11, 101, OK));
+        final List<HeuristicASTRepresentation> heuristics = Arrays.asList(
+                extractor.restore(new int[]{1, 2}, 5, 3),
+                extractor.restore(new int[]{0, 4}, 5, 4));
+        return new ModelSnapshot(options, extractor, heuristics, ProtoMarkedChangesClusters.getDefaultInstance());
+    }
+
+    private Path source(String name, String content) throws IOException {
+        final Path path = folder.getRoot().toPath().resolve(name);
+        Files.writeString(path, content);
+        return path;
+    }
+
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        final Path marks = source("prepared.tmp", "marks");
+        final Path data = source("solutions.tmp", "data");
+        final Path path = folder.getRoot().toPath().resolve("model.snapshot");
+        final long fingerprint = ModelSnapshot.fingerprint(marks, data);
+        snapshot().store(path, fingerprint);
+
+        final ModelSnapshot loaded = ModelSnapshot.load(path, ModelSnapshot.fingerprint(marks, data)).orElseThrow();
+        assertEquals(Arrays.asList(100, 101), Arrays.asList(
+                loaded.getOptions().get(0).getSolutionId(), loaded.getOptions().get(1).getSolutionId()));
+        assertArrayEquals(new int[]{3, 7}, loaded.getHeuristicExtractor().getNodeTypes());
+        assertArrayEquals(new int[]{0, 4}, loaded.getHeuristics().get(1).getCounters());
+        assertEquals(5, loaded.getHeuristics().get(1).getLimit());
+        assertEquals(4, loaded.getHeuristics().get(1).getSum());
+        assertTrue(loaded.getMarks(new SymbolTable()).getMarks().isEmpty());
+    }
+
+    @Test
+    public void testMissingSnapshot() throws IOException {
+        final Path marks = source("prepared.tmp", "marks");
+        final Path path = folder.getRoot().toPath().resolve("model.snapshot");
+        assertFalse(ModelSnapshot.load(path, ModelSnapshot.fingerprint(marks)).isPresent());
+    }
+
+    @Test
+    public void testChangedSourcesInvalidateSnapshot() throws IOException {
+        final Path marks = source("prepared.tmp", "marks");
+        final Path data = source("solutions.tmp", "data");
+        final Path path = folder.getRoot().toPath().resolve("model.snapshot");
+        final FileTime modified = Files.getLastModifiedTime(data);
+        snapshot().store(path, ModelSnapshot.fingerprint(marks, data));
+
+        // same size and modification time, but other content
+        Files.writeString(data, "date");
+        Files.setLastModifiedTime(data, modified);
+        assertFalse(ModelSnapshot.load(path, ModelSnapshot.fingerprint(marks, data)).isPresent());
+    }
+
+    @Test
+    public void testTouchedSourcesKeepSnapshot() throws IOException {
+        final Path marks = source("prepared.tmp", "marks");
+        final Path data = source("solutions.tmp", "data");
+        final Path path = folder.getRoot().toPath().resolve("model.snapshot");
+        snapshot().store(path, ModelSnapshot.fingerprint(marks, data));
+
+        Files.setLastModifiedTime(data, FileTime.fromMillis(Files.getLastModifiedTime(data).toMillis() + 60_000));
+        assertTrue(ModelSnapshot.load(path, ModelSnapshot.fingerprint(marks, data)).isPresent());
+    }
+
+    @Test
+    public void testFingerprintDependsOnSourcesOrder() throws IOException {
+        final Path marks = source("prepared.tmp", "ab");
+        final Path data = source("solutions.tmp", "c");
+        assertEquals(ModelSnapshot.fingerprint(marks, data), ModelSnapshot.fingerprint(marks, data));
+        assertNotEquals(ModelSnapshot.fingerprint(marks, data), ModelSnapshot.fingerprint(data, marks));
+    }
+}
@@ -3,6 +3,8 @@ package org.ml_methods_group;
 import com.github.gumtreediff.matchers.CompositeMatchers;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.ITree;
+import org.ml_methods_group.cache.LogRepository;
+import org.ml_methods_group.cache.TieredChangesExtractor;
 import org.ml_methods_group.clustering.clusterers.CompositeClusterer;
 import org.ml_methods_group.clustering.clusterers.HAC;
 import org.ml_methods_group.common.*;
@@ -26,7 +28,6 @@ import org.ml_methods_group.common.preparation.basic.MinValuePicker;
 import org.ml_methods_group.common.serialization.ProtobufSerializationUtils;
 import org.ml_methods_group.parsing.JavaCodeValidator;
 import org.ml_methods_group.parsing.ParsingUtils;
-import org.ml_methods_group.testing.extractors.CachedFeaturesExtractor;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -41,6 +42,9 @@ import static org.ml_methods_group.common.Solution.Verdict.FAIL;
 import static org.ml_methods_group.common.Solution.Verdict.OK;
 
 public class Application {
+    private static final Path CHANGES_CACHE = Paths.get(".cache", "changes", "changes");
+    private static final long CHANGES_CACHE_WEIGHT = 1_000_000;
+
     public static void main(String[] args) throws Exception {
         if (args.length == 0) {
             System.out.println("Command expected: parse, cluster or mark");
@@ -104,19 +108,26 @@ public class Application {
         final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
         final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
         final Unifier<Solution> unifier = new BasicUnifier<>(
-                CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                 new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
+        final List<Solution> options = unifier.unify(
+                dataset.getValues(CommonUtils.check(Solution::getVerdict, OK::equals)));
         final OptionSelector<Solution, Solution> selector = new ClosestPairSelector<>(
-                unifier.unify(dataset.getValues(CommonUtils.check(Solution::getVerdict, OK::equals))),
+                options,
                 new HeuristicChangesBasedDistanceFunction(changeGenerator));
-        final var extractor = new CachedFeaturesExtractor<>(
-                new ChangesExtractor(changeGenerator, selector),
-                Solution::getSolutionId);
-        final var changes = dataset.getValues(CommonUtils.check(Solution::getVerdict, FAIL::equals))
-                .stream()
-                .map(extractor::process)
-                .collect(Collectors.toList());
+        final List<Changes> changes;
+        try (LogRepository<String, byte[]> cache = new LogRepository<>(CHANGES_CACHE, String.class, byte[].class)) {
+            final var extractor = new TieredChangesExtractor(
+                    new ChangesExtractor(changeGenerator, selector),
+                    fingerprint(changeGenerator, options),
+                    CHANGES_CACHE_WEIGHT,
+                    cache);
+            changes = dataset.getValues(CommonUtils.check(Solution::getVerdict, FAIL::equals))
+                    .stream()
+                    .map(extractor::process)
+                    .collect(Collectors.toList());
+        }
         final var bowExtractor = getBOWExtractor(20000, changes);
         final Clusterer<Changes> clusterer = new CompositeClusterer<>(bowExtractor, new HAC<>(
                 0.3,
@@ -173,18 +184,24 @@ public class Application {
                 astGenerator,
                 Collections.singletonList((x, y) -> new CompositeMatchers.ClassicGumtree(x, y, new MappingStore())));
         final Unifier<Solution> unifier = new BasicUnifier<>(
-                CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                 new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
+        final List<Solution> options = unifier.unify(
+                dataset.getValues(CommonUtils.check(Solution::getVerdict, OK::equals)));
         final OptionSelector<Solution, Solution> selector = new ClosestPairSelector<>(
-                unifier.unify(dataset.getValues(CommonUtils.check(Solution::getVerdict, OK::equals))),
+                options,
                 new HeuristicChangesBasedDistanceFunction(changeGenerator));
-        final var extractor = new CachedFeaturesExtractor<>(
-                new ChangesExtractor(changeGenerator, selector),
-                Solution::getSolutionId);
-        final var changes = ProtobufSerializationUtils.loadMarkedChangesClusters(marks);
-        final var prepared = changes.map(change -> extractor.process(change.getOrigin()));
-        ProtobufSerializationUtils.storeMarkedChangesClusters(prepared, dst);
+        try (LogRepository<String, byte[]> cache = new LogRepository<>(CHANGES_CACHE, String.class, byte[].class)) {
+            final var extractor = new TieredChangesExtractor(
+                    new ChangesExtractor(changeGenerator, selector),
+                    fingerprint(changeGenerator, options),
+                    CHANGES_CACHE_WEIGHT,
+                    cache);
+            final var changes = ProtobufSerializationUtils.loadMarkedChangesClusters(marks);
+            final var prepared = changes.map(change -> extractor.process(change.getOrigin()));
+            ProtobufSerializationUtils.storeMarkedChangesClusters(prepared, dst);
+        }
     }
 
     public static void classify(Path data, Path marks, Path element) throws IOException {
@@ -266,4 +283,12 @@ public class Application {
                 wordsLimit);
         return new BOWExtractor<>(dict, extractors).extend(Changes::getChanges);
     }
+
+    private static String fingerprint(ChangeGenerator generator, List<Solution> options) {
+        final int[] ids = options.stream()
+                .mapToInt(Solution::getSolutionId)
+                .sorted()
+                .toArray();
+        return generator.getFingerprint() + "+options=" + Arrays.hashCode(ids);
+    }
 }
@@ -76,8 +76,8 @@ public class ClassificationEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
             final Unifier<Solution> unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             for (String problem : problems) {
                 final DistanceFunction<Solution> metric =
@@ -29,6 +29,7 @@ import org.ml_methods_group.testing.markers.SolutionMarksHolderExpander;
 import org.ml_methods_group.testing.selectors.CacheOptionSelector;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -72,8 +73,8 @@ public class ClusterizationEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
             final Unifier<Solution> unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             for (String problem : problems) {
                 System.out.println("Start problem: " + problem);
@@ -100,10 +101,14 @@ public class ClusterizationEvaluation {
                     for (ClusteringApproachTemplate template : approaches) {
                         final ClusteringApproach approach = template.createApproach(train, generator);
                         System.out.println("        Start approach: " + approach.getName());
+                        final Dendrogram<Solution> dendrogram = loadOrBuildDendrogram(approach, incorrect,
+                                approach.getFingerprint() + "+" + changeGenerator.getFingerprint(),
+                                results.resolve(approach.getName() + "_dendrogram")
+                                        .resolve("step_" + i)
+                                        .resolve("dendrogram.tmp"));
                         for (double threshold : hacThresholds) {
                             System.out.println("            Start threshold: " + threshold);
-                            final Clusterer<Solution> clusterer = approach.getClusterer(threshold);
-                            final Clusters<Solution> clusters = clusterer.buildClusters(incorrect);
+                            final Clusters<Solution> clusters = dendrogram.cut(threshold);
                             for (var result : markClusters(clusters, holder, expander).entrySet()) {
                                 final Path path = results.resolve(approach.getName() + "_" + threshold)
                                         .resolve("step_" + i)
@@ -118,6 +123,22 @@ public class ClusterizationEvaluation {
         }
     }
 
+    private static Dendrogram<Solution> loadOrBuildDendrogram(ClusteringApproach approach, List<Solution> values,
+                                                              String fingerprint, Path path) throws IOException {
+        final double maxThreshold = Arrays.stream(hacThresholds).max().orElse(0);
+        if (Files.exists(path)) {
+            final Optional<Dendrogram<Solution>> stored = loadSolutionDendrogram(path, fingerprint);
+            if (stored.isPresent() && stored.get().getDistanceLimit() >= maxThreshold
+                    && new HashSet<>(stored.get().getValues()).equals(new HashSet<>(values))) {
+                return stored.get();
+            }
+        }
+        final Dendrogram<Solution> dendrogram = approach.buildDendrogram(values, maxThreshold);
+        System.out.println("        Pairs pruning: " + approach.getPruningStatistics());
+        storeSolutionDendrogram(dendrogram, fingerprint, path);
+        return dendrogram;
+    }
+
     private static SolutionMarksHolder loadExtendedHolder(Path path) throws IOException {
         try {
             return loadSolutionMarksHolder(path.resolve("extended.tmp"));
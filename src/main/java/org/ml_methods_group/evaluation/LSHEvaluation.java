@@ -0,0 +1,121 @@
+package org.ml_methods_group.evaluation;
+
+import com.github.gumtreediff.tree.ITree;
+import org.ml_methods_group.cache.HashDatabase;
+import org.ml_methods_group.clustering.ClusteringUtils;
+import org.ml_methods_group.clustering.clusterers.LSHClusterer;
+import org.ml_methods_group.clustering.clusterers.NNChainHAC;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.SparseBOWIndex;
+import org.ml_methods_group.common.*;
+import org.ml_methods_group.common.ast.ASTUtils;
+import org.ml_methods_group.common.ast.changes.BasicChangeGenerator;
+import org.ml_methods_group.common.ast.changes.ChangeGenerator;
+import org.ml_methods_group.common.ast.changes.Changes;
+import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.ast.generation.ASTGenerator;
+import org.ml_methods_group.common.ast.generation.CachedASTGenerator;
+import org.ml_methods_group.common.ast.normalization.NamesASTNormalizer;
+import org.ml_methods_group.common.extractors.ChangesExtractor;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+import org.ml_methods_group.common.metrics.functions.HeuristicChangesBasedDistanceFunction;
+import org.ml_methods_group.common.metrics.selectors.ClosestPairSelector;
+import org.ml_methods_group.common.preparation.Unifier;
+import org.ml_methods_group.common.preparation.basic.BasicUnifier;
+import org.ml_methods_group.common.preparation.basic.MinValuePicker;
+import org.ml_methods_group.testing.selectors.CacheOptionSelector;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.ml_methods_group.common.Hashers.CODE_CHANGE_HASHERS;
+import static org.ml_methods_group.common.Solution.Verdict.FAIL;
+import static org.ml_methods_group.common.Solution.Verdict.OK;
+import static org.ml_methods_group.common.serialization.ProtobufSerializationUtils.loadDataset;
+
+/**
+ * Compares approximate {@link LSHClusterer} with exhaustive clustering of sparse bag of words vectors.
+ */
+public class LSHEvaluation {
+
+    public static double[] hacThresholds = {0.1, 0.2, 0.3, 0.4, 0.5};
+
+    public static int[][] lshParameters = {{16, 2}, {32, 2}, {16, 4}};
+
+    public static String[] problems = {
+            "loggers",
+            "deserialization",
+            "reflection",
+            "factorial",
+    };
+
+    public static void main(String[] args) throws Exception {
+        try (final HashDatabase database = new HashDatabase(EvaluationInfo.PATH_TO_CACHE)) {
+            final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
+            final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
+            final Unifier<Solution> unifier = new BasicUnifier<>(
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
+                    new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
+            final DistanceFunction<Solution> metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
+            final double maxThreshold = Arrays.stream(hacThresholds).max().orElse(0);
+            for (String problem : problems) {
+                System.out.println("Start problem: " + problem);
+                final Path dataset = EvaluationInfo.PATH_TO_DATASET.resolve(problem);
+                final Dataset train = loadDataset(dataset.resolve("train.tmp"));
+                final OptionSelector<Solution, Solution> selector = new CacheOptionSelector<>(
+                        new ClosestPairSelector<>(unifier.unify(train.getValues(x -> x.getVerdict() == OK)), metric),
+                        database,
+                        Solution::getSolutionId,
+                        Solution::getSolutionId);
+                final FeaturesExtractor<Solution, Changes> generator = new ChangesExtractor(changeGenerator, selector);
+                final List<Changes> changes = train.getValues(x -> x.getVerdict() == FAIL).stream()
+                        .map(generator::process)
+                        .collect(Collectors.toList());
+                final HashMap<String, Integer> dictionary = SparseBOWExtractor.getDictionary(CODE_CHANGE_HASHERS,
+                        changes.stream()
+                                .map(Changes::getChanges)
+                                .flatMap(List::stream)
+                                .collect(Collectors.toList()));
+                final FeaturesExtractor<Changes, SparseBOWVector> extractor =
+                        new SparseBOWExtractor<CodeChange>(dictionary, CODE_CHANGE_HASHERS).extend(Changes::getChanges);
+                final List<SparseBOWVector> vectors = changes.stream()
+                        .map(extractor::process)
+                        .collect(Collectors.toList());
+                System.out.println("    Vectors: " + vectors.size());
+
+                long start = System.currentTimeMillis();
+                final NNChainHAC<SparseBOWVector> exhaustive = new NNChainHAC<>(maxThreshold, 1,
+                        SparseBOWExtractor::cosineDistance, new PairsPruner<>(new SparseBOWIndex()));
+                final Dendrogram<SparseBOWVector> expected = exhaustive.buildDendrogram(vectors);
+                System.out.println("    Exhaustive: " + (System.currentTimeMillis() - start) + "ms, "
+                        + exhaustive.getPruningStatistics());
+
+                for (int[] parameters : lshParameters) {
+                    start = System.currentTimeMillis();
+                    final LSHClusterer<SparseBOWVector> approximate = new LSHClusterer<>(maxThreshold, 1,
+                            SparseBOWExtractor::cosineDistance, LSHEvaluation::tokens, parameters[0], parameters[1]);
+                    final Dendrogram<SparseBOWVector> actual = approximate.buildDendrogram(vectors);
+                    System.out.println("    LSH bands=" + parameters[0] + " rows=" + parameters[1] + ": "
+                            + (System.currentTimeMillis() - start) + "ms, " + approximate.getPruningStatistics());
+                    for (double threshold : hacThresholds) {
+                        final Clusters<SparseBOWVector> expectedClusters = expected.cut(threshold);
+                        final Clusters<SparseBOWVector> actualClusters = actual.cut(threshold);
+                        System.out.println("        Threshold " + threshold
+                                + ": clusters " + expectedClusters.getClusters().size()
+                                + " -> " + actualClusters.getClusters().size()
+                                + ", pairs recall " + ClusteringUtils.pairsRecall(expectedClusters, actualClusters));
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] tokens(SparseBOWVector vector) {
+        return vector.getIndices().stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
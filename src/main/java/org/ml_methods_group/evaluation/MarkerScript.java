@@ -51,8 +51,8 @@ public class MarkerScript {
             final ChangeGenerator changesGenerator = new BasicChangeGenerator(generator);
             final Unifier<Solution> unifier =
                     new BasicUnifier<>(
-                            CommonUtils.compose(generator::buildTree, ITree::getHash)::apply,
-                            CommonUtils.checkEquals(generator::buildTree, ASTUtils::deepEquals),
+                            CommonUtils.compose(generator::buildSharedTree, ITree::getHash)::apply,
+                            CommonUtils.checkEquals(generator::buildSharedTree, ASTUtils::deepEquals),
                             new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             final DistanceFunction<Solution> metric =
                     new HeuristicChangesBasedDistanceFunction(changesGenerator);
@@ -39,8 +39,8 @@ public class MarkingEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final var changeGenerator = new BasicChangeGenerator(astGenerator);
             final var unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             final var metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
             final var generatorByProblemId = new HashMap<Integer, FeaturesExtractor<Solution, Changes>>();
@@ -130,8 +130,8 @@ public class MarkingEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final var changeGenerator = new BasicChangeGenerator(astGenerator);
             final var unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             final var metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
 
@@ -202,8 +202,8 @@ public class MarkingEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final var changeGenerator = new BasicChangeGenerator(astGenerator);
             final var unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             final var metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
             final Dataset test = loadDataset(PATH_TO_DATASET.resolve("test.tmp"));
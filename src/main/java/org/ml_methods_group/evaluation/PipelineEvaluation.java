@@ -5,15 +5,18 @@ import org.ml_methods_group.cache.HashDatabase;
 import org.ml_methods_group.common.*;
 import org.ml_methods_group.common.ast.ASTUtils;
 import org.ml_methods_group.common.ast.changes.BasicChangeGenerator;
+import org.ml_methods_group.common.ast.changes.CachingChangeGenerator;
 import org.ml_methods_group.common.ast.changes.ChangeGenerator;
 import org.ml_methods_group.common.ast.changes.Changes;
 import org.ml_methods_group.common.ast.generation.ASTGenerator;
 import org.ml_methods_group.common.ast.generation.CachedASTGenerator;
 import org.ml_methods_group.common.ast.normalization.NamesASTNormalizer;
 import org.ml_methods_group.common.extractors.ChangesExtractor;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor;
+import org.ml_methods_group.common.extractors.HeuristicASTRepresentationExtractor.HeuristicASTRepresentation;
 import org.ml_methods_group.common.extractors.KNearestNeighborsChangesExtractor;
 import org.ml_methods_group.common.metrics.functions.HeuristicChangesBasedDistanceFunction;
-import org.ml_methods_group.common.metrics.representatives.CentroidPicker;
+import org.ml_methods_group.common.metrics.representatives.SamplingMedoidPicker;
 import org.ml_methods_group.common.metrics.selectors.ClosestPairSelector;
 import org.ml_methods_group.common.metrics.selectors.KClosestPairsSelector;
 import org.ml_methods_group.common.preparation.Unifier;
@@ -46,6 +49,8 @@ import static org.ml_methods_group.common.serialization.ProtobufSerializationUti
 
 public class PipelineEvaluation {
 
+    private static final long CHANGES_CACHE_WEIGHT = 1_000_000;
+
     public static final ClusteringApproachTemplate clusteringTemplate =
             new ClusteringApproachTemplate(((dataset, generator) ->
                     BOWApproach.getDefaultApproach(20000, dataset, generator)));
@@ -104,10 +109,12 @@ public class PipelineEvaluation {
             throws Exception {
         try (final HashDatabase database = new HashDatabase(EvaluationInfo.PATH_TO_CACHE)) {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
-            final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
+            final ChangeGenerator changeGenerator = new CachingChangeGenerator(
+                    new BasicChangeGenerator(astGenerator), CHANGES_CACHE_WEIGHT,
+                    database.repositoryForName("changes_spill", String.class, byte[].class));
             final Unifier<Solution> unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             final DistanceFunction<Solution> metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
 
@@ -125,7 +132,7 @@ public class PipelineEvaluation {
                     .concat(incorrectFromTrain.stream(), incorrectFromTest.stream())
                     .collect(Collectors.toList());
 
-            // Prepare centroid picker and clusters of correct solutions
+            // Prepare medoid picker and clusters of correct solutions
             final int minClustersCount = (int) Math.round(Math.sqrt(unifier.unify(correctFromTrain).size()));
             final Clusters<Solution> clusters = new Clusters<>(
                     loadSolutionClusters(pathToDataset.resolve("sqrt-clusters-100.tmp"))
@@ -135,15 +142,19 @@ public class PipelineEvaluation {
                             .collect(Collectors.toList())
             );
             final var picker = getCacheRepresentativesPickerFromTemplate(
-                    new CentroidPicker<>(metric), database, correctFromTrain);
+                    new SamplingMedoidPicker<>(metric), database, correctFromTrain);
 
             // Create selectors & extractors
-            final var heuristicSelector =
-                    new KClosestPairsSelector<>(unifier.unify(correctFromTrain), metric, 1);
+            final var heuristicExtractor = new HeuristicASTRepresentationExtractor();
+            final FeaturesExtractor<Solution, HeuristicASTRepresentation> heuristics =
+                    CommonUtils.compose(astGenerator::buildSharedTree, heuristicExtractor::process)::apply;
+            final var heuristicSelector = new KClosestPairsSelector<>(unifier.unify(correctFromTrain), metric, 1,
+                    heuristics, heuristicExtractor.getDistanceFunction(), false);
             final FeaturesExtractor<Solution, List<Changes>> generator =
                     new KNearestNeighborsChangesExtractor(changeGenerator, heuristicSelector);
             final var threeNearestSelector = getCacheSelectorFromTemplate(
-                    new KClosestPairsSelector<>(unifier.unify(correctFromTrain), metric, 3), database);
+                    new KClosestPairsSelector<>(unifier.unify(correctFromTrain), metric, 3,
+                            heuristics, heuristicExtractor.getDistanceFunction(), false), database);
             final FeaturesExtractor<Solution, List<Changes>> threeNearestGenerator =
                     new KNearestNeighborsChangesExtractor(changeGenerator, threeNearestSelector);
 
@@ -198,8 +209,8 @@ public class PipelineEvaluation {
             final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
             final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
             final Unifier<Solution> unifier = new BasicUnifier<>(
-                    CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                    CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                    CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                    CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                     new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
             System.out.println("Start problem: " + problem);
             final DistanceFunction<Solution> metric =
@@ -60,8 +60,8 @@ public class SizeEvaluation {
                     final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
                     final ChangeGenerator changeGenerator = new BasicChangeGenerator(astGenerator);
                     final Unifier<Solution> unifier = new BasicUnifier<>(
-                            CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                            CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                            CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                            CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                             new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
                     System.out.println("Start problem: " + problem);
                     final DistanceFunction<Solution> metric =
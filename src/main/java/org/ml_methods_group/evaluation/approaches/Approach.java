@@ -1,17 +1,38 @@
 package org.ml_methods_group.evaluation.approaches;
 
+import org.ml_methods_group.clustering.pruning.PairsPruner;
 import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Solution;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
+
+import java.util.function.Function;
 
 public class Approach<F> {
     public final FeaturesExtractor<Solution, F> extractor;
     public final DistanceFunction<F> metric;
     public final String name;
+    public final PairsPruner<F> pruner;
+    /**
+     * View of features as bags of words or null, if features aren't bags of words.
+     */
+    public final Function<F, SparseBOWVector> bagOfWords;
 
     public Approach(FeaturesExtractor<Solution, F> extractor, DistanceFunction<F> metric, String name) {
+        this(extractor, metric, name, PairsPruner.exhaustive());
+    }
+
+    public Approach(FeaturesExtractor<Solution, F> extractor, DistanceFunction<F> metric, String name,
+                    PairsPruner<F> pruner) {
+        this(extractor, metric, name, pruner, null);
+    }
+
+    public Approach(FeaturesExtractor<Solution, F> extractor, DistanceFunction<F> metric, String name,
+                    PairsPruner<F> pruner, Function<F, SparseBOWVector> bagOfWords) {
         this.extractor = extractor;
         this.metric = metric;
         this.name = name;
+        this.pruner = pruner;
+        this.bagOfWords = bagOfWords;
     }
 }
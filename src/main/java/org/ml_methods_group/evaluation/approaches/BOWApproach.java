@@ -1,5 +1,7 @@
 package org.ml_methods_group.evaluation.approaches;
 
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.SparseBOWIndex;
 import org.ml_methods_group.common.Dataset;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Solution;
@@ -14,6 +16,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.ml_methods_group.common.Hashers.CODE_CHANGE_HASHERS;
@@ -33,7 +38,8 @@ public class BOWApproach {
         final HashMap<String, Integer> dict = BOWExtractor.mostCommon(CODE_CHANGE_HASHERS, changes, wordsLimit);
         final FeaturesExtractor<Solution, BOWVector> extractor = generator.compose(
                 new BOWExtractor<>(dict, CODE_CHANGE_HASHERS).extend(Changes::getChanges));
-        return new Approach<>(extractor, BOWExtractor::cosineDistance, "BOW" + wordsLimit);
+        return new Approach<>(extractor, BOWExtractor::cosineDistance, "BOW" + wordsLimit, PairsPruner.exhaustive(),
+                BOWApproach::toSparse);
     }
 
     public static Approach<SparseBOWExtractor.SparseBOWVector> getManyProblemsBasedApproach(
@@ -56,6 +62,18 @@ public class BOWApproach {
         FeaturesExtractor<Solution, SparseBOWExtractor.SparseBOWVector> extractor =
                 new ManyProblemsBasedChangesExtractor(generatorByProblemId).compose(
                         new SparseBOWExtractor<>(dict, CODE_CHANGE_HASHERS).extend(Changes::getChanges));
-        return new Approach<>(extractor, SparseBOWExtractor::cosineDistance, "SPARSE_BOW");
+        return new Approach<>(extractor, SparseBOWExtractor::cosineDistance, "SPARSE_BOW",
+                new PairsPruner<>(new SparseBOWIndex()), Function.identity());
+    }
+
+    private static SparseBOWExtractor.SparseBOWVector toSparse(BOWVector vector) {
+        final SortedMap<Integer, Integer> counterByIndex = new TreeMap<>();
+        final int[] counters = vector.getCounters();
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] != 0) {
+                counterByIndex.put(i, counters[i]);
+            }
+        }
+        return new SparseBOWExtractor.SparseBOWVector(counterByIndex);
     }
 }
@@ -1,25 +1,21 @@
 package org.ml_methods_group.evaluation.approaches;
 
-import org.ml_methods_group.common.CommonUtils;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.ast.changes.Changes;
 import org.ml_methods_group.common.ast.changes.CodeChange;
 import org.ml_methods_group.common.metrics.functions.CodeChangeSimilarityMetric;
 import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction;
-
-import java.io.Serializable;
-import java.util.List;
-import java.util.function.Function;
+import org.ml_methods_group.common.metrics.functions.FuzzyJaccardDistanceFunction.Prepared;
 
 public class FuzzyJaccardApproach {
 
-    public static final ApproachTemplate<Changes> TEMPLATE = (d, g) -> getDefaultApproach(g);
+    public static final ApproachTemplate<Prepared<CodeChange>> TEMPLATE = (d, g) -> getDefaultApproach(g);
 
-    public static Approach<Changes> getDefaultApproach(FeaturesExtractor<Solution, Changes> generator) {
-        return new Approach<>(generator,
-                CommonUtils.metricFor(
-                        new FuzzyJaccardDistanceFunction<>(new CodeChangeSimilarityMetric()),
-                        (Function<Changes, List<CodeChange>> & Serializable) Changes::getChanges), "fuz_jac");
+    public static Approach<Prepared<CodeChange>> getDefaultApproach(FeaturesExtractor<Solution, Changes> generator) {
+        final FuzzyJaccardDistanceFunction<CodeChange> metric =
+                new FuzzyJaccardDistanceFunction<>(new CodeChangeSimilarityMetric());
+        return new Approach<>(generator.compose(changes -> metric.prepare(changes.getChanges())),
+                metric.getPreparedDistance(), "fuz_jac");
     }
 }
@@ -1,5 +1,7 @@
 package org.ml_methods_group.evaluation.approaches;
 
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.SizeBoundStage;
 import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.ast.changes.Changes;
@@ -9,6 +11,7 @@ import org.ml_methods_group.common.extractors.HashExtractor;
 import org.ml_methods_group.common.extractors.PointwiseExtractor;
 import org.ml_methods_group.common.metrics.functions.JaccardDistanceFunction;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.ml_methods_group.common.Hashers.*;
@@ -24,7 +27,7 @@ public class JaccardApproach {
         final HashExtractor<CodeChange> extractor = getCodeChangeHasher(hasher);
         return new Approach<>(generator.compose(Changes::getChanges)
                 .compose(new PointwiseExtractor<>(extractor)),
-                new JaccardDistanceFunction<>(), "def_jac");
+                new JaccardDistanceFunction<>(), "def_jac", sizePruner());
     }
 
     public static Approach<List<String>> getExtendedApproach(FeaturesExtractor<Solution, Changes> generator) {
@@ -37,7 +40,7 @@ public class JaccardApproach {
         final HashExtractor<CodeChange> extractor = getCodeChangeHasher(hasher);
         return new Approach<>(generator.compose(Changes::getChanges)
                 .compose(new PointwiseExtractor<>(extractor)),
-                new JaccardDistanceFunction<>(), "ext_jac");
+                new JaccardDistanceFunction<>(), "ext_jac", sizePruner());
     }
 
     public static Approach<List<String>> getFullApproach(FeaturesExtractor<Solution, Changes> generator) {
@@ -50,7 +53,11 @@ public class JaccardApproach {
         final HashExtractor<CodeChange> extractor = getCodeChangeHasher(hasher);
         return new Approach<>(generator.compose(Changes::getChanges)
                 .compose(new PointwiseExtractor<>(extractor)),
-                new JaccardDistanceFunction<>(), "ful_jac");
+                new JaccardDistanceFunction<>(), "ful_jac", sizePruner());
+    }
+
+    private static PairsPruner<List<String>> sizePruner() {
+        return new PairsPruner<>(Collections.singletonList(SizeBoundStage.jaccard(List::size)));
     }
 
     public static final ApproachTemplate<List<String>> TEMPLATE = (d, g) -> getDefaultApproach(g);
@@ -2,32 +2,134 @@ package org.ml_methods_group.evaluation.approaches.clustering;
 
 import org.ml_methods_group.clustering.clusterers.CompositeClusterer;
 import org.ml_methods_group.clustering.clusterers.HAC;
+import org.ml_methods_group.clustering.clusterers.IncrementalClusterer;
+import org.ml_methods_group.clustering.clusterers.NNChainHAC;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.PruningStatistics;
 import org.ml_methods_group.common.Clusterer;
 import org.ml_methods_group.common.CommonUtils;
+import org.ml_methods_group.common.Dendrogram;
+import org.ml_methods_group.common.DistanceFunction;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.Wrapper;
+import org.ml_methods_group.common.parallel.ItemBudget;
+import org.ml_methods_group.common.parallel.ParallelContext;
+import org.ml_methods_group.common.parallel.ParallelUtils;
 import org.ml_methods_group.evaluation.approaches.Approach;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ClusteringApproach {
 
+    private static final long CHECKPOINT_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * Time limit of features extraction (including changes generation) for a single solution in milliseconds,
+     * solutions exceeding it are only reported, so clusters and checkpoints don't depend on timing. Disabled
+     * by default. Dendrograms are built without the limit, as they are cached for exactly the given solutions.
+     */
+    private static final long EXTRACTION_TIMEOUT = Long.getLong("org.ml_methods_group.extraction.timeout", 0);
+
     private final Function<Double, Clusterer<Solution>> creator;
+    private final BiFunction<Double, Path, Clusterer<Solution>> resumableCreator;
+    private final BiFunction<List<Solution>, Double, Dendrogram<Solution>> dendrogramCreator;
+    private final Function<Double, IncrementalClusterer<Solution, ?, String>> incrementalCreator;
     private final String name;
+    private final String fingerprint;
+    private final Supplier<PruningStatistics> pruningStatistics;
 
     public <T> ClusteringApproach(String name, Approach<T> approach) {
         this.name = name;
+        // metrics are mostly lambdas, their class names differ between runs, so approach name identifies them
+        this.fingerprint = name + "+" + approach.name;
+        final PairsPruner<Wrapper<T, Solution>> pruner = approach.pruner.extend(Wrapper::getFeatures);
+        this.pruningStatistics = pruner::getStatistics;
         this.creator = threshold -> new CompositeClusterer<>(approach.extractor, new HAC<>(
                 threshold,
                 1,
-                CommonUtils.metricFor(approach.metric, Wrapper::getFeatures)));
+                CommonUtils.metricFor(approach.metric, Wrapper::getFeatures),
+                pruner),
+                extractionBudget());
+        this.resumableCreator = (threshold, checkpoint) -> {
+            final HAC<Wrapper<T, Solution>> clusterer = new HAC<>(
+                    threshold,
+                    1,
+                    CommonUtils.metricFor(approach.metric, Wrapper::getFeatures),
+                    pruner);
+            clusterer.enableCheckpoints(checkpoint, CHECKPOINT_INTERVAL, wrapper -> wrapper.getMeta().getSolutionId(),
+                    fingerprint);
+            return new CompositeClusterer<>(approach.extractor, clusterer::resumeClusters, extractionBudget());
+        };
+        this.incrementalCreator = threshold -> new IncrementalClusterer<>(approach.extractor, approach.metric,
+                threshold, approach.bagOfWords);
+        this.dendrogramCreator = (values, threshold) -> {
+            final Function<Solution, Wrapper<T, Solution>> processor = Wrapper.wrap(approach.extractor::process);
+            final List<Wrapper<T, Solution>> wrappers;
+            try (ParallelContext context = new ParallelContext()) {
+                wrappers = context.runParallelWithConsumer(
+                        values,
+                        ParallelUtils::defaultListImplementation,
+                        (x, accumulator) -> accumulator.add(processor.apply(x)),
+                        ParallelUtils::combineLists);
+            }
+            final DistanceFunction<Wrapper<T, Solution>> metric =
+                    CommonUtils.metricFor(approach.metric, Wrapper::getFeatures);
+            return new NNChainHAC<>(threshold, 1, metric, pruner)
+                    .buildDendrogram(wrappers)
+                    .map(Wrapper::getMeta);
+        };
+    }
+
+    private static <A> ItemBudget<Solution, Object, A> extractionBudget() {
+        return EXTRACTION_TIMEOUT > 0 ? ItemBudget.report(EXTRACTION_TIMEOUT, TimeUnit.MILLISECONDS) : null;
     }
 
     public Clusterer<Solution> getClusterer(double threshold) {
         return creator.apply(threshold);
     }
 
+    /**
+     * Clusterer, which periodically stores its state to {@code checkpoint} and continues
+     * from it after restart with the same solutions.
+     */
+    public Clusterer<Solution> getResumableClusterer(double threshold, Path checkpoint) {
+        return resumableCreator.apply(threshold, checkpoint);
+    }
+
+    /**
+     * Clusterer, which attaches new solutions to loaded clusters one by one.
+     */
+    public IncrementalClusterer<Solution, ?, String> getIncrementalClusterer(double threshold) {
+        return incrementalCreator.apply(threshold);
+    }
+
+    /**
+     * Builds merge history once, clusters for any threshold up to {@code maxThreshold}
+     * are then given by {@link Dendrogram#cut(double)}.
+     */
+    public Dendrogram<Solution> buildDendrogram(List<Solution> values, double maxThreshold) {
+        return dendrogramCreator.apply(values, maxThreshold);
+    }
+
+    /**
+     * Pairs pruned before exact distance computations, summed over all clusterings built by this approach.
+     */
+    public PruningStatistics getPruningStatistics() {
+        return pruningStatistics.get();
+    }
+
     public String getName() {
         return name;
     }
+
+    /**
+     * Identifies features and metric of the approach, results built with different fingerprints aren't comparable.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
 }
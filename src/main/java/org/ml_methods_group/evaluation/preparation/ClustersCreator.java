@@ -3,6 +3,11 @@ package org.ml_methods_group.evaluation.preparation;
 import com.github.gumtreediff.tree.ITree;
 import org.ml_methods_group.cache.HashDatabase;
 import org.ml_methods_group.clustering.clusterers.ClusterSizeLimitedHAC;
+import org.ml_methods_group.clustering.clusterers.IncrementalClusterer;
+import org.ml_methods_group.clustering.clusterers.ShardedClusterer;
+import org.ml_methods_group.clustering.pruning.PairsPruner;
+import org.ml_methods_group.clustering.pruning.PruningStage;
+import org.ml_methods_group.clustering.pruning.SizeBoundStage;
 import org.ml_methods_group.common.*;
 import org.ml_methods_group.common.ast.ASTUtils;
 import org.ml_methods_group.common.ast.changes.BasicChangeGenerator;
@@ -12,17 +17,20 @@ import org.ml_methods_group.common.ast.generation.ASTGenerator;
 import org.ml_methods_group.common.ast.generation.CachedASTGenerator;
 import org.ml_methods_group.common.ast.normalization.NamesASTNormalizer;
 import org.ml_methods_group.common.extractors.ChangesExtractor;
+import org.ml_methods_group.common.extractors.SparseBOWExtractor.SparseBOWVector;
 import org.ml_methods_group.common.metrics.functions.HeuristicChangesBasedDistanceFunction;
 import org.ml_methods_group.common.metrics.selectors.ClosestPairSelector;
 import org.ml_methods_group.common.preparation.Unifier;
 import org.ml_methods_group.common.preparation.basic.BasicUnifier;
 import org.ml_methods_group.common.preparation.basic.MinValuePicker;
 import org.ml_methods_group.evaluation.EvaluationInfo;
+import org.ml_methods_group.evaluation.approaches.Approach;
 import org.ml_methods_group.evaluation.approaches.BOWApproach;
 import org.ml_methods_group.evaluation.approaches.clustering.ClusteringApproach;
 import org.ml_methods_group.evaluation.approaches.clustering.ClusteringApproachTemplate;
 import org.ml_methods_group.testing.selectors.CacheOptionSelector;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
@@ -37,16 +45,20 @@ public class ClustersCreator {
     private final Unifier<Solution> unifier;
     private final ChangeGenerator changeGenerator;
     private final DistanceFunction<Solution> metric;
+    private final List<PruningStage<Solution>> pruningStages;
     public final ClusteringApproachTemplate clusteringTemplate;
 
     public ClustersCreator(ClusteringApproachTemplate clusteringTemplate) {
         final ASTGenerator astGenerator = new CachedASTGenerator(new NamesASTNormalizer());
         this.changeGenerator = new BasicChangeGenerator(astGenerator);
         this.unifier = new BasicUnifier<>(
-                CommonUtils.compose(astGenerator::buildTree, ITree::getHash)::apply,
-                CommonUtils.checkEquals(astGenerator::buildTree, ASTUtils::deepEquals),
+                CommonUtils.compose(astGenerator::buildSharedTree, ITree::getHash)::apply,
+                CommonUtils.checkEquals(astGenerator::buildSharedTree, ASTUtils::deepEquals),
                 new MinValuePicker<>(Comparator.comparingInt(Solution::getSolutionId)));
         this.metric = new HeuristicChangesBasedDistanceFunction(changeGenerator);
+        // node type counters bound is checked by the metric itself
+        this.pruningStages = Collections.singletonList(
+                SizeBoundStage.difference(solution -> astGenerator.buildSharedTree(solution).getSize()));
         this.clusteringTemplate = clusteringTemplate;
 
     }
@@ -75,7 +87,81 @@ public class ClustersCreator {
     }
 
 
+    /**
+     * Adds failed solutions, which appeared in the train set after clusters were created,
+     * to stored unmarked and marked clusters.
+     */
+    public void updateClusters(String problem) throws Exception {
+        final Path pathToDataset = EvaluationInfo.PATH_TO_DATASET.resolve(problem);
+        try (final HashDatabase database = new HashDatabase(EvaluationInfo.PATH_TO_CACHE)) {
+            final Dataset train = loadDataset(pathToDataset.resolve("train.tmp"));
+            final List<Solution> correct = train.getValues(x -> x.getVerdict() == OK);
+            final List<Solution> incorrect = train.getValues(x -> x.getVerdict() == FAIL);
+            final OptionSelector<Solution, Solution> selector = new CacheOptionSelector<>(
+                    new ClosestPairSelector<>(unifier.unify(correct), metric),
+                    database,
+                    Solution::getSolutionId,
+                    Solution::getSolutionId);
+            final FeaturesExtractor<Solution, Changes> generator = new ChangesExtractor(changeGenerator, selector);
+            final ClusteringApproach approach = clusteringTemplate.createApproach(train, generator);
+
+            final Path unmarkedPath = pathToDataset.resolve("unmarked_clusters.tmp");
+            // solutions, which were already clustered, may only stay in their clusters
+            final List<Solution> added;
+            try (IncrementalClusterer<Solution, ?, String> clusterer = approach.getIncrementalClusterer(0.3)) {
+                final Clusters<Solution> clusters = loadSolutionClusters(unmarkedPath);
+                added = newSolutions(incorrect, clusters.getClusters());
+                clusterer.addClusters(clusters);
+                clusterer.addAll(added);
+                clusterer.rebalance();
+                storeSolutionClusters(clusterer.getClusters(), unmarkedPath);
+                System.out.println("clusters: " + clusters.getClusters().size() + " -> "
+                        + clusterer.getClustersCount());
+            }
+
+            final Path markedPath = pathToDataset.resolve("clusters.tmp");
+            if (Files.exists(markedPath)) {
+                try (IncrementalClusterer<Solution, ?, String> clusterer = approach.getIncrementalClusterer(0.3)) {
+                    final MarkedClusters<Solution, String> clusters = loadMarkedClusters(markedPath);
+                    clusterer.addMarkedClusters(clusters);
+                    clusterer.addAll(newSolutions(added, clusters.getMarks().keySet()));
+                    storeMarkedClusters(clusterer.getMarkedClusters(), markedPath);
+                }
+            }
+        }
+    }
+
+    private static List<Solution> newSolutions(List<Solution> solutions, Collection<Cluster<Solution>> clusters) {
+        final Set<Solution> known = clusters.stream()
+                .flatMap(Cluster::stream)
+                .collect(Collectors.toSet());
+        return solutions.stream()
+                .filter(solution -> !known.contains(solution))
+                .collect(Collectors.toList());
+    }
+
     public void createGlobalClusters(String[] problems) throws Exception {
+        createGlobalClusters(problems, approach -> new ClusteringApproach("SPARSE_BOW_ALL_PROBLEMS", approach)
+                // Interrupted run continues from the last checkpoint
+                .getResumableClusterer(0.3, EvaluationInfo.PATH_TO_CLUSTERS.resolve("global_clusters.checkpoint")));
+    }
+
+    /**
+     * Clusters every problem in a separate worker process and merges problem clusters by their medoids.
+     */
+    public void createShardedGlobalClusters(String[] problems, int workers) throws Exception {
+        createGlobalClusters(problems, approach -> new ShardedClusterer<>(
+                approach.extractor,
+                approach.metric,
+                0.3,
+                ShardedClusterer.Partitioner.byKey(Solution::getProblemId),
+                workers,
+                EvaluationInfo.PATH_TO_CLUSTERS.resolve("global_shards")));
+    }
+
+    private void createGlobalClusters(String[] problems,
+                                      Function<Approach<SparseBOWVector>, Clusterer<Solution>> clustererFactory)
+            throws Exception {
         try (final HashDatabase database = new HashDatabase(EvaluationInfo.PATH_TO_CACHE)) {
             final var generatorByDataset = new HashMap<Dataset, FeaturesExtractor<Solution, Changes>>();
             final var incorrect = new ArrayList<Solution>();
@@ -96,11 +182,8 @@ public class ClustersCreator {
             System.out.println(incorrect.size());
 
             // Create global clusters based on edit scripts to nearest solution from the same problem
-            final ClusteringApproach approach = new ClusteringApproach(
-                    "SPARSE_BOW_ALL_PROBLEMS",
-                    BOWApproach.getManyProblemsBasedApproach(generatorByDataset)
-            );
-            final Clusterer<Solution> clusterer = approach.getClusterer(0.3);
+            final Clusterer<Solution> clusterer = clustererFactory.apply(
+                    BOWApproach.getManyProblemsBasedApproach(generatorByDataset));
             Clusters<Solution> globalClusters = clusterer.buildClusters(incorrect);
             storeSolutionClusters(globalClusters, EvaluationInfo.PATH_TO_CLUSTERS.resolve("global_clusters.tmp"));
 
@@ -184,8 +267,11 @@ public class ClustersCreator {
             // Create clusters based on correct solutions
             int threshold = 100;
             int maxClusterSize = (int) Math.round(Math.sqrt(unifiedCorrect.size()));
-            final Clusterer<Solution> clusterer = new ClusterSizeLimitedHAC<>(threshold, maxClusterSize, metric);
+            final PairsPruner<Solution> pruner = new PairsPruner<>(pruningStages);
+            final Clusterer<Solution> clusterer = new ClusterSizeLimitedHAC<>(threshold, maxClusterSize, metric,
+                    pruner);
             final Clusters<Solution> clusters = clusterer.buildClusters(unifiedCorrect);
+            System.out.println("pairs pruning: " + pruner.getStatistics());
             storeSolutionClusters(clusters, pathToDataset.resolve("sqrt-clusters-" + threshold + ".tmp"));
 
             System.out.println(unifiedCorrect.size());
@@ -4,6 +4,8 @@ import org.ml_methods_group.common.FeaturesExtractor;
 import org.ml_methods_group.common.Solution;
 import org.ml_methods_group.common.ast.changes.Changes;
 import org.ml_methods_group.common.ast.changes.CodeChange;
+import org.ml_methods_group.common.instrumentation.Metrics;
+import org.ml_methods_group.common.instrumentation.MetricsReporter;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
@@ -12,7 +14,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.ml_methods_group.common.Hashers.FULL_HASHER;
@@ -28,11 +29,15 @@ public class TokenBasedDatasetCreator implements DatasetCreator {
                               FeaturesExtractor<Solution, List<Changes>> generator,
                               Map<Solution, List<String>> marksDictionary,
                               Path datasetPath) {
-        long startTime = System.nanoTime();
-        Map<Integer, List<Changes>> preprocessedNeighbours = solutions.parallelStream()
-                .collect(Collectors.toMap(Solution::getSolutionId, generator::process));
-        long endTime = System.nanoTime();
-        System.out.println("Time elapsed: " + TimeUnit.NANOSECONDS.toMillis(endTime - startTime));
+        final Map<Integer, List<Changes>> preprocessedNeighbours;
+        Metrics.stage("dataset.neighbours").expect(solutions.size());
+        try (MetricsReporter reporter = new MetricsReporter(
+                datasetPath.resolveSibling(datasetPath.getFileName() + ".metrics.json"))) {
+            final FeaturesExtractor<Solution, List<Changes>> instrumented =
+                    generator.instrumented("dataset.neighbours");
+            preprocessedNeighbours = solutions.parallelStream()
+                    .collect(Collectors.toMap(Solution::getSolutionId, instrumented::process));
+        }
 
         int maxTokens = preprocessedNeighbours.values().parallelStream()
                 .flatMap(Collection::stream)
@@ -9,6 +9,9 @@ import org.ml_methods_group.common.ast.changes.MetadataKeys;
 import org.ml_methods_group.common.ast.generation.ASTGenerator;
 import org.ml_methods_group.common.ast.generation.BasicASTGenerator;
 import org.ml_methods_group.common.ast.normalization.BasicASTNormalizer;
+import org.ml_methods_group.common.instrumentation.Metrics;
+import org.ml_methods_group.common.instrumentation.MetricsReporter;
+import org.ml_methods_group.common.instrumentation.StageMetrics;
 import org.ml_methods_group.common.serialization.ProtobufSerializationUtils;
 
 import java.io.IOException;
@@ -23,11 +26,14 @@ public class ParseAllNodes {
                 Paths.get(".cache", "datasets", "train_dataset.tmp"));
         System.out.println("Loaded");
         final ASTGenerator generator = new BasicASTGenerator(new BasicASTNormalizer());
-        int cnt = 0;
         final Path path = Paths.get(".cache", "out", "train_nodes.tmp");
-        try (PrintWriter output = new PrintWriter(path.toFile())) {
-            final List<Solution> values = dataset.getValues();
+        final List<Solution> values = dataset.getValues();
+        final StageMetrics stage = Metrics.stage("parse.nodes");
+        stage.expect(values.size());
+        try (PrintWriter output = new PrintWriter(path.toFile());
+             MetricsReporter reporter = new MetricsReporter(path.resolveSibling("train_nodes.metrics.json"))) {
             for (Solution solution : values) {
+                final long start = System.nanoTime();
                 final ITree tree = generator.buildTree(solution);
                 for (ITree node : tree.getTrees()) {
                     SerializationUtils.print(output, NodeState.getState(node));
@@ -36,10 +42,7 @@ public class ParseAllNodes {
                     SerializationUtils.print(output, (double) node.getPos() / solution.getCode().length());
                     output.println("END");
                 }
-                cnt++;
-                if (cnt % 100 == 0) {
-                    System.out.println(100.0 * cnt / values.size());
-                }
+                stage.record(start);
             }
         }
     }
@@ -7,7 +7,7 @@ import org.ml_methods_group.common.RepresentativesPicker;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
@@ -49,17 +49,20 @@ public class CacheRepresentativesPicker<V> implements RepresentativesPicker<V> {
         String valueId = listEncoder.apply(values.getElements().stream()
                 .map(valueIdExtractor::applyAsInt)
                 .collect(Collectors.toList()));
-        final Optional<List<Integer>> cache = repository.loadValue(valueId).map(listDecoder);
-        if (cache.isPresent()) {
-            return cache.get().stream()
-                    .map(options::get)
-                    .collect(Collectors.toList());
+        // freshly picked representatives are returned as is, only cached ids are mapped back to options
+        final AtomicReference<List<V>> picked = new AtomicReference<>();
+        final String representativesId = repository.computeIfAbsent(valueId, id -> {
+            final List<V> representatives = oracle.getRepresentatives(values);
+            picked.set(representatives);
+            return listEncoder.apply(representatives.stream()
+                    .map(optionIdExtractor::applyAsInt)
+                    .collect(Collectors.toList()));
+        });
+        if (picked.get() != null) {
+            return picked.get();
         }
-        final List<V> representatives = oracle.getRepresentatives(values);
-        var representativesId = listEncoder.apply(representatives.stream()
-                .map(optionIdExtractor::applyAsInt)
-                .collect(Collectors.toList()));
-        repository.storeValue(valueId, representativesId);
-        return representatives;
+        return listDecoder.apply(representativesId).stream()
+                .map(options::get)
+                .collect(Collectors.toList());
     }
 }
@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
@@ -59,19 +60,24 @@ public class CacheManyOptionsSelector<V, O> implements ManyOptionsSelector<V, O>
         if (valueId < 0) {
             return oracle.selectOptions(value);
         }
-        final Optional<List<Integer>> cache = repository.loadValue(valueId).map(optionsListDecoder);
-        if (cache.isPresent()) {
-            return Optional.of(cache.get().stream()
-                    .map(options::get)
-                    .collect(Collectors.toList()));
-        }
-        final Optional<List<O>> options = oracle.selectOptions(value);
-        options.ifPresent(list -> {
-            var optionsTupleId = optionsListEncoder.apply(list.stream()
+        // freshly selected options are returned as is, only cached ids are mapped back to options
+        final AtomicReference<Optional<List<O>>> selected = new AtomicReference<>();
+        final String optionsTupleId = repository.computeIfAbsent(valueId, id -> {
+            final Optional<List<O>> selection = oracle.selectOptions(value);
+            selected.set(selection);
+            return selection.map(list -> optionsListEncoder.apply(list.stream()
                     .map(optionIdExtractor::applyAsInt)
-                    .collect(Collectors.toList()));
-            repository.storeValue(valueId, optionsTupleId);
+                    .collect(Collectors.toList())))
+                    .orElse(null);
         });
-        return options;
+        final Optional<List<O>> selection = selected.get();
+        if (selection != null) {
+            return selection;
+        }
+        return Optional.ofNullable(optionsTupleId)
+                .map(optionsListDecoder)
+                .map(ids -> ids.stream()
+                        .map(options::get)
+                        .collect(Collectors.toList()));
     }
 }
@@ -7,6 +7,7 @@ import org.ml_methods_group.common.Repository;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
@@ -47,13 +48,14 @@ public class CacheOptionSelector<V, O> implements OptionSelector<V, O> {
         if (valueId < 0) {
             return oracle.selectOption(value);
         }
-        final Optional<O> cache = repository.loadValue(valueId).map(options::get);
-        if (cache.isPresent()) {
-            return cache;
-        }
-        final Optional<O> option = oracle.selectOption(value);
-        option.map(optionIdExtractor::applyAsInt)
-                .ifPresent(id -> repository.storeValue(valueId, id));
-        return option;
+        // freshly selected option is returned as is, only cached ids are mapped back to options
+        final AtomicReference<Optional<O>> selected = new AtomicReference<>();
+        final Integer optionId = repository.computeIfAbsent(valueId, id -> {
+            final Optional<O> option = oracle.selectOption(value);
+            selected.set(option);
+            return option.map(optionIdExtractor::applyAsInt).orElse(null);
+        });
+        final Optional<O> option = selected.get();
+        return option != null ? option : Optional.ofNullable(optionId).map(options::get);
     }
 }